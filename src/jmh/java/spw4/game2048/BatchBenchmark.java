@@ -0,0 +1,84 @@
+package spw4.game2048;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time per move when a bot plays {@value #MOVES} moves per game through {@link GameServlet}: one request per move
+ * with the HTML page or the JSON state as answer, or all moves in one {@code action=batch} request. Every game starts
+ * with a request for a new game. Requests go through a {@link ServletStub}, without a container.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BatchBenchmark {
+
+    private static final int MOVES = 100;
+    private static final String[] ACTIONS = {"up", "left", "down", "right"};
+    private static final String BATCH = "ULDR".repeat(MOVES / 4);
+
+    private ServletStub stub;
+
+    @Setup
+    public void setUp() throws Exception {
+        System.setProperty(GameServlet.ASYNC_THREADS_PROPERTY, "0");
+        GameServlet servlet = new GameServlet();
+        servlet.init();
+        stub = new ServletStub(servlet);
+    }
+
+    @TearDown
+    public void tearDown() {
+        stub.servlet.destroy();
+        System.clearProperty(GameServlet.ASYNC_THREADS_PROPERTY);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MOVES)
+    public long singleHtml() throws Exception {
+        return playSingle("html");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MOVES)
+    public long singleJson() throws Exception {
+        return playSingle("json");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MOVES)
+    public long batch() throws Exception {
+        String id = stub.newGame();
+        stub.parameters.put("id", id);
+        stub.parameters.put("action", "batch");
+        stub.parameters.put("moves", BATCH);
+        return stub.get();
+    }
+
+    private long playSingle(String format) throws Exception {
+        String id = stub.newGame();
+        stub.parameters.put("id", id);
+        stub.parameters.put("format", format);
+        long written = 0;
+        for (int i = 0; i < MOVES; i++) {
+            stub.parameters.put("action", ACTIONS[i & 3]);
+            written = stub.get();
+        }
+        return written;
+    }
+}
@@ -0,0 +1,70 @@
+package spw4.game2048;
+
+/**
+ * Representative boards shared by the benchmarks.
+ */
+final class BoardFixtures {
+
+    /**
+     * Shortly after the start: few small tiles, mostly empty.
+     */
+    static final long EARLY = Bitboard.fromTiles(new int[][]{
+            {0, 0, 2, 0},
+            {0, 4, 0, 0},
+            {2, 0, 0, 0},
+            {0, 0, 0, 2},
+    });
+    /**
+     * Mid game: half full, several possible merges.
+     */
+    static final long MID = Bitboard.fromTiles(new int[][]{
+            {2, 4, 0, 0},
+            {16, 8, 8, 2},
+            {64, 32, 4, 0},
+            {256, 128, 0, 0},
+    });
+    /**
+     * Late game: nearly full with large tiles.
+     */
+    static final long LATE = Bitboard.fromTiles(new int[][]{
+            {2, 8, 4, 2},
+            {32, 16, 64, 4},
+            {128, 256, 512, 8},
+            {2048, 1024, 0, 16},
+    });
+    /**
+     * Full board without any possible move.
+     */
+    static final long LOST = Bitboard.fromTiles(new int[][]{
+            {4, 8, 2, 32},
+            {32, 128, 4, 2},
+            {4, 8, 64, 4},
+            {2, 4, 32, 2},
+    });
+
+    /**
+     * Seed of all random number generators used by benchmarks.
+     */
+    static final long SEED = 2048;
+
+    private BoardFixtures() {
+    }
+
+    /**
+     * Returns the fixture with the given name, as used in {@code @Param} values.
+     */
+    static long byName(String name) {
+        switch (name) {
+            case "early":
+                return EARLY;
+            case "mid":
+                return MID;
+            case "late":
+                return LATE;
+            case "lost":
+                return LOST;
+            default:
+                throw new IllegalArgumentException("unknown board " + name);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package spw4.game2048;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a move through {@link Game} per board size. Every move starts from the same fixture, so the time of
+ * {@link #setTiles()} has to be subtracted from {@link #setTilesAndMove()}. Whether the {@link Board} abstraction
+ * slows down the 4x4 hot path is measured by {@link MoveBenchmark#gameTryMove()} against the bitboard.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BoardSizeBenchmark {
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    @Param({"3", "4", "5", "6", "8"})
+    private int size;
+
+    private int[][] tiles;
+    private Game game;
+    private int direction;
+
+    /**
+     * Fills about half of the cells with small tiles, so moves slide and merge.
+     */
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(BoardFixtures.SEED);
+        tiles = new int[size][size];
+        for (int[] row : tiles) {
+            for (int y = 0; y < size; y++) {
+                row[y] = random.nextBoolean() ? 0 : 1 << (1 + random.nextInt(6));
+            }
+        }
+        game = new Game(size, Game.WIN_SCORE);
+    }
+
+    @Benchmark
+    public int setTiles() {
+        game.setTiles(tiles);
+        return game.getEmptyCount();
+    }
+
+    /**
+     * Moves the fixture in the next of the four directions.
+     */
+    @Benchmark
+    public long setTilesAndMove() {
+        game.setTiles(tiles);
+        direction = (direction + 1) & 3;
+        return game.tryMove(DIRECTIONS[direction]);
+    }
+}
@@ -0,0 +1,86 @@
+package spw4.game2048;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost per board of {@link Bitboard#canonical} and {@link Bitboard#canonicalHash}, next to the plain
+ * {@link Bitboard#hash} and a single {@link Bitboard#transpose} as baselines. Each invocation runs over
+ * {@value #BOARDS} random boards, so the branches of the minimum cannot be predicted.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CanonicalBenchmark {
+
+    private static final int BOARDS = 1024;
+
+    private final long[] boards = new long[BOARDS];
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(2048);
+        for (int i = 0; i < BOARDS; i++) {
+            for (int shift = 0; shift < 64; shift += 4) {
+                if (random.nextBoolean()) {
+                    boards[i] |= (long) (1 + random.nextInt(11)) << shift;
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BOARDS)
+    public long transpose() {
+        long sum = 0;
+        for (long board : boards) {
+            sum += Bitboard.transpose(board);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BOARDS)
+    public long hash() {
+        long sum = 0;
+        for (long board : boards) {
+            sum += Bitboard.hash(board);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BOARDS)
+    public long canonical() {
+        long sum = 0;
+        for (long board : boards) {
+            sum += Bitboard.canonical(board);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BOARDS)
+    public long canonicalHash() {
+        long sum = 0;
+        for (long board : boards) {
+            sum += Bitboard.canonicalHash(board);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,62 @@
+package spw4.game2048;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link GameCodec} per board size into heap and direct buffers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GameCodecBenchmark {
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    @Param({"3", "4", "8"})
+    private int size;
+
+    @Param({"false", "true"})
+    private boolean direct;
+
+    private Game game;
+    private ByteBuffer buffer;
+
+    @Setup
+    public void setUp() {
+        game = new Game(size, Game.WIN_SCORE);
+        game.random = new StatefulRandom(BoardFixtures.SEED);
+        for (int turn = 0; turn < 100 && !game.isOver(true); turn++) {
+            game.tryMove(DIRECTIONS[turn & 3]);
+        }
+        buffer = direct ? ByteBuffer.allocateDirect(GameCodec.ENCODED_SIZE)
+                : ByteBuffer.allocate(GameCodec.ENCODED_SIZE);
+        GameCodec.encode(game, buffer, 0);
+    }
+
+    @Benchmark
+    public ByteBuffer encode() {
+        GameCodec.encode(game, buffer, 0);
+        return buffer;
+    }
+
+    @Benchmark
+    public Game decode() {
+        return GameCodec.decode(buffer, 0);
+    }
+}
@@ -0,0 +1,77 @@
+package spw4.game2048;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of game-over and win detection and of spawning a random tile.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GameStateBenchmark {
+
+    @Param({"early", "mid", "late", "lost"})
+    private String board;
+
+    private long tiles;
+    private Game game;
+    private Game uniformGame;
+
+    @Setup
+    public void setUp() {
+        tiles = BoardFixtures.byName(board);
+        game = new Game();
+        game.random = new Random(BoardFixtures.SEED);
+        game.setBoard(tiles);
+        uniformGame = new Game();
+        uniformGame.setSpawner(TileSpawner.uniform(new SplittableRandom(BoardFixtures.SEED)));
+        uniformGame.setBoard(tiles);
+    }
+
+    @Benchmark
+    public boolean isOver() {
+        return game.isOver(false);
+    }
+
+    @Benchmark
+    public boolean isWon() {
+        return game.isWon();
+    }
+
+    /**
+     * Spawns a tile through {@link Game#isOver(boolean)} on a fresh copy of the fixture.
+     */
+    @Benchmark
+    public long spawnTile() {
+        game.setBoard(tiles);
+        game.isOver(true);
+        return game.getBoard();
+    }
+
+    /**
+     * Like {@link #spawnTile()}, but with a {@link TileSpawner#uniform(SplittableRandom) uniform} spawner.
+     */
+    @Benchmark
+    public long spawnTileUniform() {
+        uniformGame.setBoard(tiles);
+        uniformGame.isOver(true);
+        return uniformGame.getBoard();
+    }
+}
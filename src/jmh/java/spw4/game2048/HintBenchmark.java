@@ -0,0 +1,90 @@
+package spw4.game2048;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time per hint from a {@link HintCache} backed by a {@link Solver} with the given time budget, as configured in
+ * {@link GameServlet}. The boards are sampled from greedy games, and every request picks one of them with a skewed
+ * distribution, so popular boards are answered from the cache and rare ones are searched. Hit rate and search
+ * latency of the cache since the start of the trial are printed after each iteration.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HintBenchmark {
+
+    private static final int BOARDS = 4096;
+
+    @Param({"10"})
+    private long budgetMillis;
+
+    @Param({"256", "4096"})
+    private int cacheSize;
+
+    private final long[] boards = new long[BOARDS];
+    private HintCache hints;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(2048);
+        TileSpawner spawner = TileSpawner.uniform(random);
+        Policy policy = Policy.greedy();
+        long board = spawner.spawn(spawner.spawn(0));
+        for (int i = 0; i < BOARDS; i++) {
+            Direction move = policy.choose(board, random);
+            if (move == null) {
+                board = spawner.spawn(spawner.spawn(0));
+                move = policy.choose(board, random);
+            }
+            board = spawner.spawn(Bitboard.move(board, move));
+            boards[i] = board;
+        }
+        TranspositionTable table = new TranspositionTable(Solver.DEFAULT_TABLE_CAPACITY);
+        hints = new HintCache(cacheSize, HintCache.DEFAULT_TTL_MINUTES, TimeUnit.MINUTES,
+                b -> new Solver(Solver.DEFAULT_MAX_DEPTH, budgetMillis, table).bestMove(b));
+    }
+
+    @TearDown(Level.Iteration)
+    public void report() {
+        LatencyHistogram searches = hints.getSearchLatency();
+        System.out.printf(Locale.ROOT, "%nhit rate %.3f, %d searches, search p50 %.2f ms, p99 %.2f ms%n",
+                hints.getHitRate(), searches.getCount(), searches.getPercentile(50) / 1e6,
+                searches.getPercentile(99) / 1e6);
+    }
+
+    @Benchmark
+    public Direction hint(Requests requests) {
+        return hints.get(boards[requests.next()]);
+    }
+
+    /**
+     * Index of the requested board per thread: the minimum of three uniform draws, which favours the first boards.
+     */
+    @State(Scope.Thread)
+    public static class Requests {
+        private final SplittableRandom random = new SplittableRandom();
+
+        int next() {
+            return Math.min(random.nextInt(BOARDS), Math.min(random.nextInt(BOARDS), random.nextInt(BOARDS)));
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package spw4.game2048;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long {@link GameJournal#recover(GameSessions)} takes to rebuild a large number of sessions: plays a
+ * few moves in every game, writes a snapshot, plays some more moves into the log and recovers a fresh registry.
+ * <p>
+ * Run with {@code mvn -P benchmark test-compile exec:exec -Dexec.mainClass=spw4.game2048.JournalRecoveryBenchmark
+ * -Djvm.args=-Xmx4g -Djmh.args="[sessions] [dir]"}.
+ */
+public class JournalRecoveryBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Path directory = args.length > 1 ? Paths.get(args[1]) : Files.createTempDirectory("game2048-journal");
+
+        GameSessions games = new GameSessions(sessions, 1, TimeUnit.DAYS);
+        UUID[] ids = new UUID[sessions];
+        try (GameJournal journal = new GameJournal(directory)) {
+            journal.recover(games);
+            long start = System.nanoTime();
+            for (int i = 0; i < sessions; i++) {
+                ids[i] = games.create();
+                play(games, ids[i], 10);
+            }
+            System.out.printf("created %d sessions in %d ms%n", sessions, millisSince(start));
+
+            start = System.nanoTime();
+            journal.compact();
+            System.out.printf("snapshot written in %d ms%n", millisSince(start));
+
+            // moves after the snapshot have to be replayed from the log
+            for (int i = 0; i < sessions; i += 10) {
+                play(games, ids[i], 5);
+            }
+        }
+
+        games = null;
+        System.gc();
+        GameSessions recovered = new GameSessions(sessions, 1, TimeUnit.DAYS);
+        try (GameJournal journal = new GameJournal(directory)) {
+            long start = System.nanoTime();
+            int count = journal.recover(recovered);
+            System.out.printf("recovered %d sessions in %d ms%n", count, millisSince(start));
+        }
+    }
+
+    private static void play(GameSessions games, UUID id, int moves) {
+        Direction[] directions = Direction.values();
+        games.withGame(id, game -> {
+            for (int i = 0; i < moves && !game.isOver(true); i++) {
+                game.tryMove(directions[i % directions.length]);
+            }
+            return null;
+        });
+    }
+
+    private static long millisSince(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
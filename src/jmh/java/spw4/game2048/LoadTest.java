@@ -0,0 +1,199 @@
+package spw4.game2048;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.servlets.DefaultServlet;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.tomcat.websocket.server.WsSci;
+
+import javax.servlet.ServletContainerInitializer;
+import javax.servlet.ServletException;
+import javax.websocket.DeploymentException;
+import javax.websocket.server.ServerContainer;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Load test comparing a move through {@link GameServlet} - one page request per move - with a move through
+ * {@link GameSocket} - one byte per move over an open connection - against an embedded Tomcat on localhost.
+ * <p>
+ * Every client thread plays its own game and waits for the answer to a move before sending the next one; the test
+ * reports the moves per second of all threads together and the median and 99th percentile latency of a move.
+ * <p>
+ * Run with {@code mvn -P benchmark test-compile exec:exec -Dexec.mainClass=spw4.game2048.LoadTest
+ * -Djmh.args="[threads] [moves per thread]"}.
+ */
+public class LoadTest {
+
+    private static final Pattern ID = Pattern.compile("Game\\?id=([0-9a-f-]+)&");
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int moves = args.length > 1 ? Integer.parseInt(args[1]) : 5_000;
+
+        Path baseDir = Files.createTempDirectory("game2048-tomcat");
+        Tomcat tomcat = new Tomcat();
+        tomcat.setBaseDir(baseDir.toString());
+        tomcat.setPort(0);
+        Context context = tomcat.addContext("", baseDir.toString());
+        Wrapper servlet = Tomcat.addServlet(context, "game", new GameServlet());
+        servlet.setLoadOnStartup(1);
+        servlet.setAsyncSupported(true);
+        context.addServletMappingDecoded("/Game", "game");
+        // the WebSocket upgrade is done by a filter, which only runs for requests mapped to a servlet
+        Tomcat.addServlet(context, "default", new DefaultServlet());
+        context.addServletMappingDecoded("/", "default");
+        context.addServletContainerInitializer(new WsSci(), null);
+        ServletContainerInitializer endpoints = (classes, servletContext) -> {
+            ServerContainer container = (ServerContainer) servletContext.getAttribute(ServerContainer.class.getName());
+            try {
+                container.addEndpoint(GameSocket.class);
+            } catch (DeploymentException e) {
+                throw new ServletException(e);
+            }
+        };
+        context.addServletContainerInitializer(endpoints, null);
+        tomcat.getConnector();
+        tomcat.start();
+        int port = tomcat.getConnector().getLocalPort();
+        System.out.printf("Tomcat listening on port %d, %d threads with %d moves each%n", port, threads, moves);
+
+        try {
+            HttpClient client = HttpClient.newBuilder().executor(Executors.newCachedThreadPool()).build();
+            for (int round = 0; round < 3; round++) {
+                // the first round warms up both paths
+                run("servlet", threads, moves, () -> new ServletPlayer(client, port));
+                run("socket", threads, moves, () -> new SocketPlayer(client, port));
+            }
+        } finally {
+            tomcat.stop();
+            tomcat.destroy();
+        }
+        System.exit(0);
+    }
+
+    private static void run(String name, int threads, int moves, PlayerFactory players) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long[] latencies = new long[threads * moves];
+        long start = System.nanoTime();
+        try {
+            Future<?>[] results = new Future<?>[threads];
+            for (int t = 0; t < threads; t++) {
+                int offset = t * moves;
+                results[t] = pool.submit(() -> {
+                    Player player = players.create();
+                    for (int i = 0; i < moves; i++) {
+                        long before = System.nanoTime();
+                        player.move(i & 3);
+                        latencies[offset + i] = System.nanoTime() - before;
+                    }
+                    player.close();
+                    return null;
+                });
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Arrays.sort(latencies);
+        System.out.printf(Locale.ROOT, "%-8s %10.0f moves/s   p50 %7.1f us   p99 %7.1f us%n", name,
+                latencies.length / seconds, latencies[latencies.length / 2] / 1e3,
+                latencies[(int) (latencies.length * 0.99)] / 1e3);
+    }
+
+    @FunctionalInterface
+    private interface PlayerFactory {
+        Player create() throws Exception;
+    }
+
+    private interface Player {
+        void move(int direction) throws Exception;
+
+        void close() throws Exception;
+    }
+
+    private static final class ServletPlayer implements Player {
+        private final HttpClient client;
+        private final String base;
+
+        ServletPlayer(HttpClient client, int port) throws Exception {
+            this.client = client;
+            String page = get("http://localhost:" + port + "/Game?action=new");
+            Matcher matcher = ID.matcher(page);
+            if (!matcher.find()) {
+                throw new IllegalStateException("no game id in " + page);
+            }
+            this.base = "http://localhost:" + port + "/Game?id=" + matcher.group(1) + "&action=";
+        }
+
+        @Override
+        public void move(int direction) throws Exception {
+            get(base + DIRECTIONS[direction].name());
+        }
+
+        @Override
+        public void close() {
+        }
+
+        private String get(String uri) throws Exception {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(uri)).build();
+            return client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+        }
+    }
+
+    private static final class SocketPlayer implements Player, WebSocket.Listener {
+        // the first frame may arrive before buildAsync() completes, so it must not block the receiving thread
+        private final LinkedBlockingQueue<ByteBuffer> frames = new LinkedBlockingQueue<>();
+        private final WebSocket socket;
+        private final ByteBuffer message = ByteBuffer.allocate(1);
+
+        SocketPlayer(HttpClient client, int port) throws Exception {
+            socket = client.newWebSocketBuilder()
+                    .buildAsync(URI.create("ws://localhost:" + port + "/socket"), this).get(10, TimeUnit.SECONDS);
+            frames.take();
+        }
+
+        @Override
+        public void move(int direction) throws Exception {
+            message.clear();
+            message.put((byte) DIRECTIONS[direction].ordinal()).flip();
+            socket.sendBinary(message, true).get();
+            frames.take();
+        }
+
+        @Override
+        public void close() throws Exception {
+            socket.sendClose(WebSocket.NORMAL_CLOSURE, "").get();
+        }
+
+        @Override
+        public CompletionStage<?> onBinary(WebSocket webSocket, ByteBuffer data, boolean last) {
+            webSocket.request(1);
+            if (last) {
+                frames.add(data);
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+}
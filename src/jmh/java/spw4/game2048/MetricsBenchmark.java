@@ -0,0 +1,71 @@
+package spw4.game2048;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead of {@link GameMetrics} on a move request to {@link GameServlet}, with the page rendered as HTML and as
+ * JSON, comparing recording switched on and off by {@value GameServlet#METRICS_PROPERTY}. Requests go through a
+ * {@link ServletStub}, so the work of the container is left out and the relative overhead is an upper bound.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MetricsBenchmark {
+
+    private static final String[] ACTIONS = {"up", "left", "down", "right"};
+
+    @Param({"true", "false"})
+    private boolean metrics;
+
+    @Param({"html", "json"})
+    private String format;
+
+    private ServletStub stub;
+    private int turn;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        System.setProperty(GameServlet.METRICS_PROPERTY, String.valueOf(metrics));
+        System.setProperty(GameServlet.ASYNC_THREADS_PROPERTY, "0");
+        GameServlet servlet = new GameServlet();
+        servlet.init();
+        stub = new ServletStub(servlet);
+    }
+
+    @Setup(Level.Iteration)
+    public void newGame() throws Exception {
+        String id = stub.newGame();
+        stub.parameters.put("id", id);
+        stub.parameters.put("format", format);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        stub.servlet.destroy();
+        System.clearProperty(GameServlet.METRICS_PROPERTY);
+        System.clearProperty(GameServlet.ASYNC_THREADS_PROPERTY);
+    }
+
+    @Benchmark
+    public long move() throws Exception {
+        stub.parameters.put("action", ACTIONS[turn++ & 3]);
+        return stub.get();
+    }
+}
@@ -0,0 +1,58 @@
+package spw4.game2048;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of a single move per direction, on the bitboard and through {@link Game}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MoveBenchmark {
+
+    @Param({"up", "down", "left", "right"})
+    private Direction direction;
+
+    @Param({"early", "mid", "late"})
+    private String board;
+
+    private long tiles;
+    private Game game;
+
+    @Setup
+    public void setUp() {
+        tiles = BoardFixtures.byName(board);
+        game = new Game();
+    }
+
+    @Benchmark
+    public long bitboardMove() {
+        return Bitboard.move(tiles, direction);
+    }
+
+    @Benchmark
+    public long bitboardScore() {
+        return Bitboard.score(tiles, direction);
+    }
+
+    @Benchmark
+    public long gameTryMove() {
+        game.setBoard(tiles);
+        return game.tryMove(direction);
+    }
+}
@@ -0,0 +1,57 @@
+package spw4.game2048;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of rendering a game as HTML page and as JSON document into a reused buffer.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RenderBenchmark {
+
+    private final UUID id = new UUID(BoardFixtures.SEED, BoardFixtures.SEED);
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+    private GameTemplate template;
+    private GameJson json;
+    private Game game;
+
+    @Setup
+    public void setUp() {
+        template = new GameTemplate();
+        json = new GameJson();
+        game = new Game();
+        game.setBoard(BoardFixtures.MID);
+    }
+
+    @Benchmark
+    public int html() throws IOException {
+        out.reset();
+        template.render(id, game, out);
+        return out.size();
+    }
+
+    @Benchmark
+    public int json() throws IOException {
+        out.reset();
+        json.render(id, game, out);
+        return out.size();
+    }
+}
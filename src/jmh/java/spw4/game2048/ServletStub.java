@@ -0,0 +1,120 @@
+package spw4.game2048;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Minimal request and response for driving {@link GameServlet#doGet} in benchmarks without a container: the request
+ * only answers parameters, the response counts the written bytes.
+ */
+final class ServletStub {
+
+    private static final Pattern ID = Pattern.compile("Game\\?id=([0-9a-f-]+)&");
+
+    final GameServlet servlet;
+    final Map<String, String> parameters = new HashMap<>();
+    private final CountingStream out = new CountingStream();
+    private final HttpServletRequest request;
+    private final HttpServletResponse response;
+
+    ServletStub(GameServlet servlet) {
+        this.servlet = servlet;
+        request = (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{HttpServletRequest.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getParameter":
+                            return parameters.get(args[0]);
+                        case "getServletPath":
+                            return "/Game";
+                        case "isAsyncSupported":
+                            return false;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        response = (HttpServletResponse) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{HttpServletResponse.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getOutputStream":
+                            return out;
+                        case "setContentType":
+                            return null;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    /**
+     * Sends a request with the current {@link #parameters}.
+     *
+     * @return number of bytes written by all requests so far
+     */
+    long get() throws Exception {
+        servlet.doGet(request, response);
+        return out.count;
+    }
+
+    /**
+     * Starts a new game and returns its id; the other parameters are cleared.
+     */
+    String newGame() throws Exception {
+        parameters.clear();
+        parameters.put("action", "new");
+        StringBuilder page = new StringBuilder();
+        out.page = page;
+        try {
+            get();
+        } finally {
+            out.page = null;
+        }
+        Matcher matcher = ID.matcher(page);
+        if (!matcher.find()) {
+            throw new IllegalStateException("no game id in " + page + " (" + out.count + " bytes)");
+        }
+        parameters.clear();
+        return matcher.group(1);
+    }
+
+    /**
+     * Counts the written bytes, and keeps them while {@link #page} is set.
+     */
+    private static final class CountingStream extends ServletOutputStream {
+        long count;
+        StringBuilder page;
+
+        @Override
+        public void write(int b) {
+            count++;
+            if (page != null) {
+                page.append((char) b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            count += len;
+            if (page != null) {
+                page.append(new String(b, off, len, StandardCharsets.UTF_8));
+            }
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+        }
+    }
+}
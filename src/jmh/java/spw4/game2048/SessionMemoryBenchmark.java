@@ -0,0 +1,59 @@
+package spw4.game2048;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the memory taken by {@link GameSessions} and {@link OffHeapSessions} for a large number of games, and the
+ * time of a move through each of them.
+ * <p>
+ * Run with {@code mvn -P benchmark test-compile exec:exec -Dexec.mainClass=spw4.game2048.SessionMemoryBenchmark
+ * -Djvm.args="-Xmx8g -XX:MaxDirectMemorySize=8g" -Djmh.args="[games] [heap|offheap]"}.
+ */
+public class SessionMemoryBenchmark {
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        String kind = args.length > 1 ? args[1] : "offheap";
+
+        long before = usedHeap();
+        long start = System.nanoTime();
+        SessionStore games = "heap".equals(kind)
+                ? new GameSessions(count, 1, TimeUnit.DAYS)
+                : new OffHeapSessions(count, 1, TimeUnit.DAYS);
+        UUID[] ids = new UUID[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = games.create();
+        }
+        long created = System.nanoTime() - start;
+        long heap = usedHeap() - before;
+        // ids are kept by the clients, not by the registry
+        long idBytes = (long) count * 32;
+        int slotSize = OffHeapSessions.slotSize(Game.SIZE);
+        long offHeap = "heap".equals(kind) ? 0
+                : (long) OffHeapSessions.capacity(count / OffHeapSessions.SEGMENTS, slotSize)
+                * OffHeapSessions.SEGMENTS * slotSize;
+        System.out.printf("%s: %d games created in %d ms, heap %d MB (%d bytes/game), off-heap about %d MB%n",
+                kind, count, TimeUnit.NANOSECONDS.toMillis(created), (heap - idBytes) >> 20,
+                (heap - idBytes) / count, offHeap >> 20);
+
+        Direction[] directions = Direction.values();
+        for (int round = 0; round < 3; round++) {
+            start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                Direction direction = directions[i & 3];
+                games.withGame(ids[i], game -> game.isOver(true) ? 0L : game.tryMove(direction));
+            }
+            System.out.printf("move: %d ns/game%n", (System.nanoTime() - start) / count);
+        }
+        games.close();
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
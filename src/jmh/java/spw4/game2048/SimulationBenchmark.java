@@ -0,0 +1,50 @@
+package spw4.game2048;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to play a complete game with a cheap policy, including spawning.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SimulationBenchmark {
+
+    @Param({"random", "greedy"})
+    private String policyName;
+
+    private Policy policy;
+    private SplittableRandom random;
+    private TileSpawner spawner;
+    private SimulationStats stats;
+
+    @Setup
+    public void setUp() {
+        policy = "greedy".equals(policyName) ? Policy.greedy() : Policy.random();
+        random = new SplittableRandom(BoardFixtures.SEED);
+        spawner = TileSpawner.uniform(random);
+        stats = new SimulationStats();
+    }
+
+    @Benchmark
+    public long fullGame() {
+        BatchSimulator.play(policy, random, spawner, stats);
+        return stats.getGames();
+    }
+}
@@ -0,0 +1,81 @@
+package spw4.game2048;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Measures how the parallel {@link Solver} scales: searches a fixed set of mid-game boards with 1, 2, 4, 8 and all
+ * available threads and prints nodes per second.
+ * <p>
+ * Run with {@code mvn -P benchmark test-compile exec:exec -Dexec.mainClass=spw4.game2048.SolverScalingBenchmark
+ * -Djmh.args="[depth] [boards]"}.
+ */
+public class SolverScalingBenchmark {
+
+    private static final long NO_TIME_LIMIT = TimeUnit.HOURS.toMillis(1);
+
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int boardCount = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        long[] boards = boards(boardCount, new Random(2048));
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        int[] threadCounts = IntStream.of(1, 2, 4, 8, cores).distinct().sorted().toArray();
+        System.out.printf("depth %d, %d boards, %d cores%n", depth, boardCount, cores);
+        System.out.printf("%8s %14s %10s %8s%n", "threads", "nodes/s", "ms", "speedup");
+
+        double baseline = 0;
+        for (int threads : threadCounts) {
+            ForkJoinPool pool = threads == 1 ? null : new ForkJoinPool(threads);
+            try {
+                // warm up, then measure on a cold transposition table
+                run(new Solver(depth, NO_TIME_LIMIT, new TranspositionTable(1 << 20), pool), boards);
+                Solver solver = new Solver(depth, NO_TIME_LIMIT, new TranspositionTable(1 << 20), pool);
+                long start = System.nanoTime();
+                long nodes = run(solver, boards);
+                long elapsed = System.nanoTime() - start;
+                double nodesPerSecond = nodes * 1e9 / elapsed;
+                if (threads == 1) {
+                    baseline = nodesPerSecond;
+                }
+                System.out.printf("%8d %14.0f %10.1f %8.2f%n",
+                        threads, nodesPerSecond, elapsed / 1e6, nodesPerSecond / baseline);
+            } finally {
+                if (pool != null) {
+                    pool.shutdown();
+                }
+            }
+        }
+    }
+
+    private static long run(Solver solver, long[] boards) {
+        long nodes = 0;
+        for (long board : boards) {
+            solver.bestMove(board);
+            nodes += solver.getNodes();
+        }
+        return nodes;
+    }
+
+    /**
+     * Plays random games for a while to get representative boards with some empty cells.
+     */
+    private static long[] boards(int count, Random random) {
+        long[] boards = new long[count];
+        Direction[] directions = Direction.values();
+        TileSpawner spawner = TileSpawner.uniform(random);
+        for (int i = 0; i < count; i++) {
+            long board = spawner.spawn(spawner.spawn(0));
+            for (int move = 0; move < 60 + random.nextInt(60); move++) {
+                long moved = Bitboard.move(board, directions[random.nextInt(directions.length)]);
+                if (moved != board && Bitboard.countEmpty(moved) > 4) {
+                    board = spawner.spawn(moved);
+                }
+            }
+            boards[i] = board;
+        }
+        return boards;
+    }
+}
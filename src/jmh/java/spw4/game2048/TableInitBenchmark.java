@@ -0,0 +1,33 @@
+package spw4.game2048;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup cost of the shared move tables of {@link Bitboard}: the first move in a fresh JVM builds them, while a
+ * conversion does not. Every fork measures a single call.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class TableInitBenchmark {
+
+    @Benchmark
+    public long firstMove() {
+        return Bitboard.moveLeft(BoardFixtures.MID);
+    }
+
+    @Benchmark
+    public long firstConversion() {
+        return Bitboard.fromTiles(new int[Game.SIZE][Game.SIZE]);
+    }
+}
@@ -0,0 +1,102 @@
+package spw4.game2048;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of answering a 3x3 position from a memory-mapped {@link Tablebase} up to {@value #WIN_SCORE}: the win
+ * probability is a single lookup, the best move looks up every spawn after every move. The positions are sampled
+ * from random games, and the table is generated once per fork.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TablebaseBenchmark {
+
+    private static final int WIN_SCORE = 128;
+    private static final int POSITIONS = 1024;
+
+    private Path file;
+    private Tablebase tablebase;
+    private final long[] boards = new long[POSITIONS];
+    private final List<int[][]> tiles = new ArrayList<>();
+
+    @Setup
+    public void setUp() throws IOException {
+        file = Files.createTempFile("game2048-3x3-", ".tb");
+        TablebaseGenerator.generate(WIN_SCORE, file);
+        tablebase = Tablebase.open(file);
+
+        SplittableRandom random = new SplittableRandom(2048);
+        Direction[] directions = Direction.values();
+        long board = 0;
+        for (int i = 0; i < POSITIONS; i++) {
+            if (!SmallBitboard.canMove(board) || SmallBitboard.maxExponent(board) >= Bitboard.toExponent(WIN_SCORE)) {
+                board = spawn(spawn(0, random), random);
+            } else {
+                long after;
+                do {
+                    after = SmallBitboard.move(board, directions[random.nextInt(directions.length)]);
+                } while (after == board);
+                board = spawn(after, random);
+            }
+            boards[i] = board;
+            tiles.add(SmallBitboard.toTiles(board));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POSITIONS)
+    public double winProbability() {
+        double sum = 0;
+        for (long board : boards) {
+            sum += tablebase.winProbability(board);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POSITIONS)
+    public int bestMove() {
+        int sum = 0;
+        for (int[][] position : tiles) {
+            Direction best = tablebase.bestMove(position);
+            sum += best == null ? 0 : best.ordinal();
+        }
+        return sum;
+    }
+
+    private static long spawn(long board, SplittableRandom random) {
+        int shift;
+        do {
+            shift = 4 * random.nextInt(SmallBitboard.CELLS);
+        } while (((board >>> shift) & 0xF) != 0);
+        return board | ((random.nextInt(10) == 0 ? 2L : 1L) << shift);
+    }
+}
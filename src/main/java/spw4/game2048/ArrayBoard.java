@@ -0,0 +1,208 @@
+package spw4.game2048;
+
+import java.util.Arrays;
+
+/**
+ * {@link Board} of any size kept in a flat array with one byte per cell, row by row.
+ * <p>
+ * A move walks every line once in place, addressing the cells by start index and stride, so moving in any direction
+ * needs neither a transposition nor temporary arrays.
+ */
+final class ArrayBoard implements Board {
+
+    private final int size;
+    private final byte[] cells;
+    /**
+     * Cells before the last move, to tell which cells it changed.
+     */
+    private final byte[] previous;
+
+    ArrayBoard(int size) {
+        this.size = size;
+        this.cells = new byte[size * size];
+        this.previous = new byte[size * size];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int exponentAt(int x, int y) {
+        return cells[x * size + y];
+    }
+
+    @Override
+    public void setExponent(int x, int y, int exponent) {
+        cells[x * size + y] = (byte) exponent;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(cells, (byte) 0);
+    }
+
+    @Override
+    public void setTiles(int[][] tiles) {
+        if (tiles.length != size) {
+            throw new IllegalArgumentException("board must have " + size + " rows");
+        }
+        byte[] exponents = new byte[cells.length];
+        for (int x = 0; x < size; x++) {
+            if (tiles[x].length != size) {
+                throw new IllegalArgumentException("board must have " + size + " columns");
+            }
+            for (int y = 0; y < size; y++) {
+                exponents[x * size + y] = (byte) Bitboard.toExponent(tiles[x][y]);
+            }
+        }
+        System.arraycopy(exponents, 0, cells, 0, cells.length);
+    }
+
+    @Override
+    public int[][] toTiles() {
+        int[][] tiles = new int[size][size];
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                tiles[x][y] = Bitboard.toValue(cells[x * size + y]);
+            }
+        }
+        return tiles;
+    }
+
+    @Override
+    public long move(Direction direction) {
+        // first cell of the first line, step to the next line and step along a line towards its first cell
+        int first, lineStep, cellStep;
+        switch (direction) {
+            case up:
+                first = 0;
+                lineStep = 1;
+                cellStep = size;
+                break;
+            case down:
+                first = (size - 1) * size;
+                lineStep = 1;
+                cellStep = -size;
+                break;
+            case left:
+                first = 0;
+                lineStep = size;
+                cellStep = 1;
+                break;
+            case right:
+                first = size - 1;
+                lineStep = size;
+                cellStep = -1;
+                break;
+            default:
+                throw new IllegalArgumentException("unknown direction " + direction);
+        }
+
+        System.arraycopy(cells, 0, previous, 0, cells.length);
+        int score = 0;
+        boolean moved = false;
+        for (int line = 0; line < size; line++) {
+            int start = first + line * lineStep;
+            for (int i = 1; i < size; i++) {
+                int from = start + i * cellStep;
+                int exponent = cells[from];
+                if (exponent == 0) {
+                    continue;
+                }
+                // travel over empty cells and cells of the same value, like the original array based move
+                boolean mergeable = exponent < Bitboard.MAX_EXPONENT;
+                int target = i;
+                int next;
+                while (target > 0 && (cells[next = start + (target - 1) * cellStep] == 0
+                        || (mergeable && cells[next] == exponent))) {
+                    target--;
+                }
+                if (target != i) {
+                    int to = start + target * cellStep;
+                    if (cells[to] == exponent) {
+                        cells[to] = (byte) (exponent + 1);
+                        score += 1 << (exponent + 1);
+                    } else {
+                        cells[to] = (byte) exponent;
+                    }
+                    cells[from] = 0;
+                    moved = true;
+                }
+            }
+        }
+        if (!moved) {
+            return Game.NO_CHANGE;
+        }
+        long changed = 0;
+        if (cells.length > 32) {
+            changed = 0xFFFF_FFFFL;
+        } else {
+            for (int cell = 0; cell < cells.length; cell++) {
+                if (cells[cell] != previous[cell]) {
+                    changed |= 1L << cell;
+                }
+            }
+        }
+        return (changed << 32) | score;
+    }
+
+    @Override
+    public int countEmpty() {
+        int empty = 0;
+        for (byte cell : cells) {
+            if (cell == 0) {
+                empty++;
+            }
+        }
+        return empty;
+    }
+
+    @Override
+    public int maxExponent() {
+        int max = 0;
+        for (byte cell : cells) {
+            max = Math.max(max, cell);
+        }
+        return max;
+    }
+
+    @Override
+    public boolean canMerge() {
+        // for every tile, look for the next tile to its right and below, skipping empty cells
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                int exponent = cells[x * size + y];
+                if (exponent == 0 || exponent == Bitboard.MAX_EXPONENT) {
+                    continue;
+                }
+                int right = y + 1;
+                while (right < size && cells[x * size + right] == 0) {
+                    right++;
+                }
+                if (right < size && cells[x * size + right] == exponent) {
+                    return true;
+                }
+                int below = x + 1;
+                while (below < size && cells[below * size + y] == 0) {
+                    below++;
+                }
+                if (below < size && cells[below * size + y] == exponent) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ArrayBoard && Arrays.equals(((ArrayBoard) o).cells, cells);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(cells);
+    }
+}
@@ -0,0 +1,52 @@
+package spw4.game2048;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.UUID;
+
+/**
+ * Helpers for writing numbers and ids as ASCII bytes without creating strings.
+ */
+final class Ascii {
+
+    private static final byte[] HEX_DIGITS = {
+            '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'
+    };
+
+    private Ascii() {
+    }
+
+    /**
+     * Writes the decimal digits of a non-negative number using {@code buffer} - at least 10 bytes - as scratch
+     * space.
+     */
+    static void writeInt(int value, byte[] buffer, OutputStream out) throws IOException {
+        int position = buffer.length;
+        do {
+            buffer[--position] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        out.write(buffer, position, buffer.length - position);
+    }
+
+    /**
+     * Encodes an id in its canonical textual form, e.g. {@code 123e4567-e89b-12d3-a456-426614174000}, into the
+     * first 36 bytes of {@code buffer}.
+     *
+     * @return {@code buffer}
+     */
+    static byte[] uuid(UUID id, byte[] buffer) {
+        long msb = id.getMostSignificantBits();
+        long lsb = id.getLeastSignificantBits();
+        int position = 0;
+        for (int i = 0; i < 32; i++) {
+            if (i == 8 || i == 12 || i == 16 || i == 20) {
+                buffer[position++] = '-';
+            }
+            long bits = i < 16 ? msb : lsb;
+            int shift = 60 - 4 * (i % 16);
+            buffer[position++] = HEX_DIGITS[(int) (bits >>> shift) & 0xF];
+        }
+        return buffer;
+    }
+}
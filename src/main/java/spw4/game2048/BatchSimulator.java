@@ -0,0 +1,129 @@
+package spw4.game2048;
+
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Headless simulator playing large batches of games on all cores.
+ * <p>
+ * Every worker plays a fixed share of the games with its own {@link Policy} instance and its own random number
+ * generator, split in worker order from a generator seeded with the batch seed. A batch is therefore reproducible
+ * for the same seed and number of threads. Games are played on {@link Bitboard}s, and finished games are only counted
+ * into {@link SimulationStats}, so no per-game objects are kept.
+ * <p>
+ * Usage: {@code BatchSimulator <games> [random|greedy|solver] [threads] [seed]}
+ */
+public class BatchSimulator {
+
+    private final Supplier<? extends Policy> policies;
+    private final int threads;
+    private final long seed;
+
+    public BatchSimulator(Supplier<? extends Policy> policies, int threads, long seed) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive");
+        }
+        this.policies = policies;
+        this.threads = threads;
+        this.seed = seed;
+    }
+
+    /**
+     * Starts playing {@code games} games; the returned statistics fill up while the games are played.
+     *
+     * @return executor running the workers; it is shut down already and terminates once all games are played
+     */
+    public ExecutorService start(long games, SimulationStats stats) {
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        SplittableRandom root = new SplittableRandom(seed);
+        for (int worker = 0; worker < threads; worker++) {
+            SplittableRandom random = root.split();
+            TileSpawner spawner = TileSpawner.uniform(random);
+            Policy policy = policies.get();
+            long share = games / threads + (worker < games % threads ? 1 : 0);
+            workers.execute(() -> {
+                for (long game = 0; game < share && !Thread.currentThread().isInterrupted(); game++) {
+                    play(policy, random, spawner, stats);
+                }
+            });
+        }
+        workers.shutdown();
+        return workers;
+    }
+
+    /**
+     * Plays {@code games} games and waits until all of them are finished.
+     */
+    public SimulationStats run(long games) throws InterruptedException {
+        SimulationStats stats = new SimulationStats();
+        ExecutorService workers = start(games, stats);
+        while (!workers.awaitTermination(1, TimeUnit.DAYS)) {
+            // keep waiting
+        }
+        return stats;
+    }
+
+    /**
+     * Plays a single game until no tile can be moved any more and records it.
+     */
+    static void play(Policy policy, SplittableRandom random, TileSpawner spawner, SimulationStats stats) {
+        long board = spawner.spawn(spawner.spawn(0));
+        int score = 0;
+        int moves = 0;
+        Direction direction;
+        while ((direction = policy.choose(board, random)) != null) {
+            long moved = Bitboard.move(board, direction);
+            if (moved == board) {
+                break;
+            }
+            score += Bitboard.score(board, direction);
+            board = spawner.spawn(moved);
+            moves++;
+        }
+        stats.record(score, moves, Bitboard.maxExponent(board));
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 1) {
+            System.out.println("usage: BatchSimulator <games> [random|greedy|solver] [threads] [seed]");
+            return;
+        }
+        long games = Long.parseLong(args[0]);
+        String policyName = args.length > 1 ? args[1] : "random";
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 2048;
+
+        Supplier<Policy> policies;
+        switch (policyName) {
+            case "random":
+                policies = Policy::random;
+                break;
+            case "greedy":
+                policies = Policy::greedy;
+                break;
+            case "solver":
+                policies = () -> Policy.solver(3, Solver.DEFAULT_TIME_BUDGET_MILLIS);
+                break;
+            default:
+                System.out.println("unknown policy " + policyName);
+                return;
+        }
+
+        SimulationStats stats = new SimulationStats();
+        long start = System.nanoTime();
+        ExecutorService workers = new BatchSimulator(policies, threads, seed).start(games, stats);
+        while (!workers.awaitTermination(1, TimeUnit.SECONDS)) {
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf(Locale.ROOT, "%d / %d games, %.0f games/s%n",
+                    stats.getGames(), games, stats.getGames() / seconds);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf(Locale.ROOT, "%s policy, %d threads, seed %d: %.1f s, %.0f games/s, %.0f moves/s%n",
+                policyName, threads, seed, seconds, stats.getGames() / seconds, stats.getMoves() / seconds);
+        stats.print(System.out);
+    }
+}
@@ -0,0 +1,489 @@
+package spw4.game2048;
+
+/**
+ * Bitboard representation of a 4x4 game board.
+ * <p>
+ * The whole board is packed into a single {@code long}: every cell holds the base-2 exponent of its tile value
+ * in 4 bits (0 = empty, 1 = 2, 2 = 4, ... 15 = 32768). Cell {@code (x, y)} - row {@code x}, column {@code y}
+ * in the same orientation as {@link Game#getValueAt(int, int)} - is stored at bit offset {@code 4 * (4 * x + y)},
+ * so every row occupies 16 consecutive bits.
+ * <p>
+ * Moves are applied through precomputed 65,536-entry lookup tables, one entry for every possible row state.
+ * The tables reproduce the slide and merge rules of the original array based {@link Game#move(Direction)}
+ * exactly. A tile with exponent 15 cannot be merged any further because the result would not fit into a cell.
+ * <p>
+ * The tables take 2 MB and are shared by all games. They are built on the first move, which takes some 50 ms in a
+ * cold JVM, so using only the conversions and cell accessors of this class does not pay for them.
+ */
+public final class Bitboard {
+
+    /**
+     * Number of possible states of a single row (4 cells x 4 bits).
+     */
+    static final int ROW_STATES = 1 << 16;
+    /**
+     * Largest exponent which fits into one cell.
+     */
+    static final int MAX_EXPONENT = 15;
+
+    private static final long ROW_MASK = 0xFFFFL;
+    private static final long COL_MASK = 0x000F_000F_000F_000FL;
+    /**
+     * Directions after mirroring the board, indexed by the ordinal of the direction before.
+     */
+    private static final Direction[] TRANSPOSED = {Direction.left, Direction.right, Direction.up, Direction.down};
+    private static final Direction[] FLIPPED_VERTICAL = {Direction.down, Direction.up, Direction.left, Direction.right};
+    private static final Direction[] FLIPPED_HORIZONTAL =
+            {Direction.up, Direction.down, Direction.right, Direction.left};
+    private static final int DELTA_MASK = 0xFFFF;
+
+    /**
+     * Lookup tables, initialized by the class loader when a move first needs them.
+     */
+    private static final class Tables {
+        /**
+         * For a row moved to the left (towards column 0): the XOR delta between the row before and after in the
+         * lower 16 bits - 0 if the row does not change - and a quarter of the gained score in the upper 16 bits;
+         * every merge scores a multiple of 4, so even three merges into 32768 tiles fit.
+         */
+        static final int[] LEFT = new int[ROW_STATES];
+        /**
+         * Like {@link #LEFT} for a row moved to the right (towards column 3).
+         */
+        static final int[] RIGHT = new int[ROW_STATES];
+        /**
+         * XOR deltas between a column and the column moved up (towards row 0), spread over the column's nibbles.
+         */
+        static final long[] COL_UP = new long[ROW_STATES];
+        /**
+         * XOR deltas between a column and the column moved down (towards row 3), spread over the column's nibbles.
+         */
+        static final long[] COL_DOWN = new long[ROW_STATES];
+        /**
+         * For every 16 bit cell mask, the indices of its set bits in ascending order, one per nibble.
+         */
+        static final long[] SET_BITS = new long[ROW_STATES];
+
+        static {
+            int[] cells = new int[Game.SIZE];
+            for (int row = 0; row < ROW_STATES; row++) {
+                unpackRow(row, cells);
+                int scoreLeft = slideTowardsStart(cells);
+                int left = packRow(cells);
+
+                unpackRow(reverseRow(row), cells);
+                int scoreRight = slideTowardsStart(cells);
+                int right = reverseRow(packRow(cells));
+
+                LEFT[row] = (scoreLeft >>> 2) << 16 | (row ^ left);
+                RIGHT[row] = (scoreRight >>> 2) << 16 | (row ^ right);
+                COL_UP[row] = unpackColumn(row ^ left);
+                COL_DOWN[row] = unpackColumn(row ^ right);
+
+                long indices = 0;
+                int count = 0;
+                for (int bit = 0; bit < 16; bit++) {
+                    if ((row & (1 << bit)) != 0) {
+                        indices |= (long) bit << (4 * count++);
+                    }
+                }
+                SET_BITS[row] = indices;
+            }
+        }
+    }
+
+    private Bitboard() {
+    }
+
+    /**
+     * Returns the exponent stored in cell {@code (x, y)}.
+     */
+    public static int exponentAt(long board, int x, int y) {
+        return (int) (board >>> shift(x, y)) & 0xF;
+    }
+
+    /**
+     * Returns the tile value stored in cell {@code (x, y)}, 0 for an empty cell.
+     */
+    public static int valueAt(long board, int x, int y) {
+        return toValue(exponentAt(board, x, y));
+    }
+
+    /**
+     * Returns a copy of {@code board} where cell {@code (x, y)} holds the given exponent.
+     */
+    public static long withExponent(long board, int x, int y, int exponent) {
+        int shift = shift(x, y);
+        return (board & ~(0xFL << shift)) | ((long) exponent << shift);
+    }
+
+    /**
+     * Packs a 4x4 tile array into a bitboard.
+     *
+     * @throws IllegalArgumentException if the array is not 4x4 or contains a value which is neither 0 nor a
+     *                                  power of two between 2 and 32768
+     */
+    public static long fromTiles(int[][] tiles) {
+        if (tiles.length != Game.SIZE) {
+            throw new IllegalArgumentException("board must have " + Game.SIZE + " rows");
+        }
+        long board = 0;
+        for (int x = 0; x < Game.SIZE; x++) {
+            if (tiles[x].length != Game.SIZE) {
+                throw new IllegalArgumentException("board must have " + Game.SIZE + " columns");
+            }
+            for (int y = 0; y < Game.SIZE; y++) {
+                board |= (long) toExponent(tiles[x][y]) << shift(x, y);
+            }
+        }
+        return board;
+    }
+
+    /**
+     * Unpacks a bitboard into a newly allocated 4x4 tile array.
+     */
+    public static int[][] toTiles(long board) {
+        int[][] tiles = new int[Game.SIZE][Game.SIZE];
+        for (int x = 0; x < Game.SIZE; x++) {
+            for (int y = 0; y < Game.SIZE; y++) {
+                tiles[x][y] = valueAt(board, x, y);
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * Returns the board after sliding all tiles in the given direction.
+     */
+    public static long move(long board, Direction direction) {
+        switch (direction) {
+            case up:
+                return moveUp(board);
+            case down:
+                return moveDown(board);
+            case left:
+                return moveLeft(board);
+            case right:
+                return moveRight(board);
+            default:
+                throw new IllegalArgumentException("unknown direction " + direction);
+        }
+    }
+
+    /**
+     * Returns the score gained by sliding all tiles of {@code board} in the given direction.
+     */
+    public static int score(long board, Direction direction) {
+        switch (direction) {
+            case up:
+                return scoreRows(transpose(board), Tables.LEFT);
+            case down:
+                return scoreRows(transpose(board), Tables.RIGHT);
+            case left:
+                return scoreRows(board, Tables.LEFT);
+            case right:
+                return scoreRows(board, Tables.RIGHT);
+            default:
+                throw new IllegalArgumentException("unknown direction " + direction);
+        }
+    }
+
+    public static long moveLeft(long board) {
+        return moveRows(board, Tables.LEFT);
+    }
+
+    public static long moveRight(long board) {
+        return moveRows(board, Tables.RIGHT);
+    }
+
+    public static long moveUp(long board) {
+        return moveColumns(board, Tables.COL_UP);
+    }
+
+    public static long moveDown(long board) {
+        return moveColumns(board, Tables.COL_DOWN);
+    }
+
+    /**
+     * Mirrors the board along its main diagonal, so that column {@code y} becomes row {@code y}.
+     */
+    public static long transpose(long board) {
+        long a1 = board & 0xF0F0_0F0F_F0F0_0F0FL;
+        long a2 = board & 0x0000_F0F0_0000_F0F0L;
+        long a3 = board & 0x0F0F_0000_0F0F_0000L;
+        long a = a1 | (a2 << 12) | (a3 >>> 12);
+        long b1 = a & 0xFF00_FF00_00FF_00FFL;
+        long b2 = a & 0x00FF_00FF_0000_0000L;
+        long b3 = a & 0x0000_0000_FF00_FF00L;
+        return b1 | (b2 >>> 24) | (b3 << 24);
+    }
+
+    /**
+     * Mirrors the board along its horizontal axis, so that row {@code x} becomes row {@code 3 - x}.
+     */
+    public static long flipVertical(long board) {
+        long a = (board >>> 32) | (board << 32);
+        return ((a >>> 16) & 0x0000_FFFF_0000_FFFFL) | ((a & 0x0000_FFFF_0000_FFFFL) << 16);
+    }
+
+    /**
+     * Mirrors the board along its vertical axis, so that column {@code y} becomes column {@code 3 - y}.
+     */
+    public static long flipHorizontal(long board) {
+        long a = ((board >>> 8) & 0x00FF_00FF_00FF_00FFL) | ((board & 0x00FF_00FF_00FF_00FFL) << 8);
+        return ((a >>> 4) & 0x0F0F_0F0F_0F0F_0F0FL) | ((a & 0x0F0F_0F0F_0F0F_0F0FL) << 4);
+    }
+
+    /**
+     * Returns the representative of the board among its 8 rotations and reflections: the smallest of them, compared
+     * as unsigned numbers. Boards which are symmetric to each other have the same canonical board, so caches keyed
+     * by it share entries between them.
+     */
+    public static long canonical(long board) {
+        // transposing a flipped board equals flipping the transposed board along the other axis,
+        // so one transpose and six cheap flips give all 8 symmetries
+        long t = transpose(board);
+        long h = flipHorizontal(board);
+        long th = flipHorizontal(t);
+        long min = minUnsigned(minUnsigned(board, h), minUnsigned(flipVertical(board), flipVertical(h)));
+        long tmin = minUnsigned(minUnsigned(t, th), minUnsigned(flipVertical(t), flipVertical(th)));
+        return minUnsigned(min, tmin);
+    }
+
+    /**
+     * Returns one of the 8 rotations and reflections of the board, numbered by the bits of {@code symmetry}: bit 2
+     * transposes the board, bit 1 then flips it vertically and bit 0 horizontally.
+     */
+    public static long symmetry(long board, int symmetry) {
+        long result = (symmetry & 4) != 0 ? transpose(board) : board;
+        result = (symmetry & 2) != 0 ? flipVertical(result) : result;
+        return (symmetry & 1) != 0 ? flipHorizontal(result) : result;
+    }
+
+    /**
+     * Returns the {@link #symmetry(long, int) symmetry} which turns the board into its {@link #canonical} board.
+     */
+    public static int canonicalSymmetry(long board) {
+        long canonical = canonical(board);
+        int symmetry = 0;
+        while (symmetry(board, symmetry) != canonical) {
+            symmetry++;
+        }
+        return symmetry;
+    }
+
+    /**
+     * Returns the direction which moves the board turned by {@link #symmetry(long, int) symmetry} like
+     * {@code direction} moves the board itself.
+     */
+    public static Direction symmetry(Direction direction, int symmetry) {
+        Direction result = (symmetry & 4) != 0 ? TRANSPOSED[direction.ordinal()] : direction;
+        result = (symmetry & 2) != 0 ? FLIPPED_VERTICAL[result.ordinal()] : result;
+        return (symmetry & 1) != 0 ? FLIPPED_HORIZONTAL[result.ordinal()] : result;
+    }
+
+    /**
+     * Returns the direction which moves the board like {@code direction} moves the board turned by
+     * {@link #symmetry(long, int) symmetry}, the inverse of {@link #symmetry(Direction, int)}.
+     */
+    public static Direction inverseSymmetry(Direction direction, int symmetry) {
+        Direction result = (symmetry & 1) != 0 ? FLIPPED_HORIZONTAL[direction.ordinal()] : direction;
+        result = (symmetry & 2) != 0 ? FLIPPED_VERTICAL[result.ordinal()] : result;
+        return (symmetry & 4) != 0 ? TRANSPOSED[result.ordinal()] : result;
+    }
+
+    /**
+     * Returns a well mixed 64 bit hash of the board.
+     */
+    public static long hash(long board) {
+        // murmur3 finalizer spreads the nibbles over all bits
+        long h = board;
+        h ^= h >>> 33;
+        h *= 0xFF51_AFD7_ED55_8CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CE_B9FE_1A85_EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Returns the {@link #hash} of the {@link #canonical} board, which is the same for all symmetric boards.
+     */
+    public static long canonicalHash(long board) {
+        return hash(canonical(board));
+    }
+
+    /**
+     * Counts the empty cells of the board.
+     */
+    public static int countEmpty(long board) {
+        // fold every nibble into its lowest bit: the bit is set if the nibble is non-zero
+        long x = board | (board >>> 2);
+        x |= x >>> 1;
+        return Game.SIZE * Game.SIZE - Long.bitCount(x & 0x1111_1111_1111_1111L);
+    }
+
+    /**
+     * Returns a 16 bit mask with bit {@code 4 * x + y} set for every cell {@code (x, y)} which differs between
+     * the two boards.
+     */
+    public static int changedCells(long before, long after) {
+        return occupiedCells(before ^ after);
+    }
+
+    /**
+     * Returns a 16 bit mask with bit {@code 4 * x + y} set for every non-empty cell {@code (x, y)}.
+     */
+    public static int occupiedCells(long board) {
+        long x = board;
+        x |= x >>> 2;
+        x |= x >>> 1;
+        x &= 0x1111_1111_1111_1111L;
+        // gather the lowest bit of every nibble into 16 consecutive bits
+        x = (x | (x >>> 3)) & 0x0303_0303_0303_0303L;
+        x = (x | (x >>> 6)) & 0x000F_000F_000F_000FL;
+        x = (x | (x >>> 12)) & 0x0000_00FF_0000_00FFL;
+        x = (x | (x >>> 24)) & 0xFFFFL;
+        return (int) x;
+    }
+
+    /**
+     * Returns the bit offset of the {@code k}-th empty cell (counting from 0 in cell order) in constant time.
+     *
+     * @param k index of the empty cell, less than {@link #countEmpty(long)}
+     */
+    public static int emptyCellShift(long board, int k) {
+        int empty = ~occupiedCells(board) & 0xFFFF;
+        return 4 * ((int) (Tables.SET_BITS[empty] >>> (4 * k)) & 0xF);
+    }
+
+    /**
+     * Returns whether two tiles of {@code board} would merge when sliding in some direction; a full board is lost
+     * if and only if this is {@code false}.
+     */
+    public static boolean canMerge(long board) {
+        // tiles merging to the right merge to the left as well, and likewise for down and up
+        return scoreRows(board, Tables.LEFT) != 0 || scoreRows(transpose(board), Tables.LEFT) != 0;
+    }
+
+    /**
+     * Returns the largest exponent on the board.
+     */
+    public static int maxExponent(long board) {
+        int max = 0;
+        while (board != 0) {
+            max = Math.max(max, (int) (board & 0xF));
+            board >>>= 4;
+        }
+        return max;
+    }
+
+    /**
+     * Converts a tile value into its exponent, e.g. 2048 into 11.
+     *
+     * @throws IllegalArgumentException if the value is neither 0 nor a power of two between 2 and 32768
+     */
+    public static int toExponent(int value) {
+        if (value == 0) {
+            return 0;
+        }
+        if (value < 2 || Integer.bitCount(value) != 1 || value > (1 << MAX_EXPONENT)) {
+            throw new IllegalArgumentException("invalid tile value " + value);
+        }
+        return Integer.numberOfTrailingZeros(value);
+    }
+
+    /**
+     * Converts an exponent into its tile value, e.g. 11 into 2048.
+     */
+    public static int toValue(int exponent) {
+        return exponent == 0 ? 0 : 1 << exponent;
+    }
+
+    private static int shift(int x, int y) {
+        return (x * Game.SIZE + y) * 4;
+    }
+
+    private static long moveRows(long board, int[] table) {
+        return board
+                ^ ((long) (table[(int) (board & ROW_MASK)] & DELTA_MASK))
+                ^ ((long) (table[(int) ((board >>> 16) & ROW_MASK)] & DELTA_MASK) << 16)
+                ^ ((long) (table[(int) ((board >>> 32) & ROW_MASK)] & DELTA_MASK) << 32)
+                ^ ((long) (table[(int) ((board >>> 48) & ROW_MASK)] & DELTA_MASK) << 48);
+    }
+
+    private static long moveColumns(long board, long[] table) {
+        long t = transpose(board);
+        return board
+                ^ table[(int) (t & ROW_MASK)]
+                ^ (table[(int) ((t >>> 16) & ROW_MASK)] << 4)
+                ^ (table[(int) ((t >>> 32) & ROW_MASK)] << 8)
+                ^ (table[(int) ((t >>> 48) & ROW_MASK)] << 12);
+    }
+
+    private static int scoreRows(long board, int[] table) {
+        return ((table[(int) (board & ROW_MASK)] >>> 16)
+                + (table[(int) ((board >>> 16) & ROW_MASK)] >>> 16)
+                + (table[(int) ((board >>> 32) & ROW_MASK)] >>> 16)
+                + (table[(int) ((board >>> 48) & ROW_MASK)] >>> 16)) << 2;
+    }
+
+    private static void unpackRow(int row, int[] cells) {
+        for (int i = 0; i < Game.SIZE; i++) {
+            cells[i] = (row >>> (4 * i)) & 0xF;
+        }
+    }
+
+    private static int packRow(int[] cells) {
+        int row = 0;
+        for (int i = 0; i < Game.SIZE; i++) {
+            row |= cells[i] << (4 * i);
+        }
+        return row;
+    }
+
+    private static int reverseRow(int row) {
+        return ((row & 0xF) << 12) | ((row & 0xF0) << 4) | ((row >>> 4) & 0xF0) | ((row >>> 12) & 0xF);
+    }
+
+    private static long unpackColumn(int row) {
+        long column = row & 0xFFFFL;
+        return (column | (column << 12) | (column << 24) | (column << 36)) & COL_MASK;
+    }
+
+    /**
+     * Slides a row of exponents towards index 0 with the same rules as the original array based move:
+     * every tile travels over empty cells and cells holding the same value, and merges with the cell it stops on
+     * when that cell has the same value.
+     *
+     * @return score gained by the merges
+     */
+    private static int slideTowardsStart(int[] cells) {
+        int score = 0;
+        for (int i = 0; i < cells.length; i++) {
+            int exponent = cells[i];
+            if (exponent == 0) {
+                continue;
+            }
+            boolean mergeable = exponent < MAX_EXPONENT;
+            int target = i;
+            while (target - 1 >= 0 && (cells[target - 1] == 0 || (mergeable && cells[target - 1] == exponent))) {
+                target--;
+            }
+            if (target != i) {
+                if (cells[target] == exponent) {
+                    cells[target] = exponent + 1;
+                    score += 1 << (exponent + 1);
+                } else {
+                    cells[target] = exponent;
+                }
+                cells[i] = 0;
+            }
+        }
+        return score;
+    }
+
+    private static long minUnsigned(long a, long b) {
+        return a + Long.MIN_VALUE < b + Long.MIN_VALUE ? a : b;
+    }
+}
@@ -0,0 +1,89 @@
+package spw4.game2048;
+
+/**
+ * Mutable tiles of a square game board, stored as base-2 exponents (0 = empty, 1 = 2, ... 15 = 32768).
+ * <p>
+ * {@link #of(int)} picks the fastest representation for a board size: a 4x4 board is packed into a single
+ * {@link Bitboard} and moved through its lookup tables, every other size is kept in a flat byte array. Both follow
+ * the slide and merge rules of the original 4x4 game.
+ */
+public interface Board {
+
+    /**
+     * Smallest supported board size.
+     */
+    int MIN_SIZE = 3;
+    /**
+     * Largest supported board size.
+     */
+    int MAX_SIZE = 8;
+
+    /**
+     * Creates an empty board of {@code size} x {@code size} cells.
+     *
+     * @throws IllegalArgumentException if the size is not between {@link #MIN_SIZE} and {@link #MAX_SIZE}
+     */
+    static Board of(int size) {
+        if (size < MIN_SIZE || size > MAX_SIZE) {
+            throw new IllegalArgumentException("size must be between " + MIN_SIZE + " and " + MAX_SIZE);
+        }
+        return size == Game.SIZE ? new PackedBoard() : new ArrayBoard(size);
+    }
+
+    /**
+     * Returns the number of rows, which equals the number of columns.
+     */
+    int size();
+
+    /**
+     * Returns the exponent stored in cell {@code (x, y)}.
+     */
+    int exponentAt(int x, int y);
+
+    /**
+     * Stores the exponent in cell {@code (x, y)}.
+     */
+    void setExponent(int x, int y, int exponent);
+
+    /**
+     * Removes all tiles.
+     */
+    void clear();
+
+    /**
+     * Replaces all tiles by the given tile values.
+     *
+     * @throws IllegalArgumentException if the array does not match the board size or contains a value which is
+     *                                  neither 0 nor a power of two between 2 and 32768
+     */
+    void setTiles(int[][] tiles);
+
+    /**
+     * Returns the tile values in a newly allocated array.
+     */
+    int[][] toTiles();
+
+    /**
+     * Slides all tiles in the given direction.
+     *
+     * @return {@link Game#NO_CHANGE} if nothing moved, otherwise the gained score in the lower 32 bits and the mask
+     * of changed cells (bit {@code size * x + y} for cell {@code (x, y)}) in the upper 32 bits; boards with more
+     * than 32 cells report all 32 bits set
+     */
+    long move(Direction direction);
+
+    /**
+     * Returns the number of empty cells.
+     */
+    int countEmpty();
+
+    /**
+     * Returns the largest exponent on the board.
+     */
+    int maxExponent();
+
+    /**
+     * Returns whether two tiles would merge when sliding in some direction.
+     */
+    boolean canMerge();
+}
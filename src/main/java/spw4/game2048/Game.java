@@ -1,30 +1,87 @@
 package spw4.game2048;
 
-import java.util.Arrays;
 import java.util.Random;
 
 public class Game {
 
     /**
-     * Size of tile board e.g. 4x4
+     * Size of the classic tile board e.g. 4x4
      */
     public static final int SIZE = 4;
     /**
-     * Score which needs to be reached to win the game.
+     * Score which needs to be reached to win the classic game.
      */
     public static final int WIN_SCORE = 2048;
+    /**
+     * Result of {@link #tryMove(Direction)} if no tile could be moved.
+     */
+    public static final long NO_CHANGE = 0L;
 
-    private int[][] tiles;
-    public Random random = new Random();
+    private final Board board;
+    /**
+     * The board if it is packed into a {@link Bitboard}, otherwise {@code null}.
+     */
+    private final PackedBoard packed;
+    private final int winScore;
+    /**
+     * Draws new tiles if there is no {@link #spawner}; a {@link StatefulRandom} by default, so its state can be saved
+     * with the game.
+     */
+    public Random random = new StatefulRandom();
+    /**
+     * Spawns new tiles; if {@code null}, tiles are placed by drawing random cells from {@link #random}.
+     */
+    private TileSpawner spawner;
+    private GameListener listener;
     private int moves = 0;
     private int score = 0;
+    /**
+     * State derived from {@link #board}, updated with every change of the board.
+     */
+    private int maxExponent;
+    private int emptyCount;
+    private boolean mergeable;
 
     public Game() {
+        this(SIZE, WIN_SCORE);
+    }
+
+    /**
+     * Creates a game on a board of {@code size} x {@code size} cells which is won by a tile of {@code winScore}.
+     *
+     * @throws IllegalArgumentException if the size is not supported by {@link Board#of(int)}
+     */
+    public Game(int size, int winScore) {
+        this(Board.of(size), winScore);
         initialize();
     }
 
+    /**
+     * Creates a game on the given empty board without spawning any tiles, e.g. to restore a saved game.
+     */
+    Game(Board board, int winScore) {
+        this.board = board;
+        this.packed = board instanceof PackedBoard ? (PackedBoard) board : null;
+        this.winScore = winScore;
+        updateState();
+    }
+
     public boolean compareBoards(Game toCompare) {
-        return Arrays.deepEquals(this.tiles, toCompare.getTiles());
+        return this.board.equals(toCompare.board);
+    }
+
+    /**
+     * Returns the number of rows and columns of the board.
+     */
+    public int getSize() {
+        return board.size();
+    }
+
+    /**
+     * Returns the tile value which wins the game.
+     */
+    public int getWinScore() {
+        return winScore;
     }
 
     public int getScore() {
@@ -36,45 +93,68 @@ public class Game {
     }
 
     public int getValueAt(int x, int y) {
-        return tiles[x][y];
+        return Bitboard.toValue(board.exponentAt(x, y));
+    }
+
+    /**
+     * Returns the base-2 exponent of the tile at {@code (x, y)}, 0 for an empty cell.
+     */
+    public int getExponentAt(int x, int y) {
+        return board.exponentAt(x, y);
     }
 
+    /**
+     * Returns whether the game is over, i.e. there is neither an empty cell nor a pair of tiles which could merge.
+     *
+     * @param initNewTile whether to put a new tile on a random empty cell if there is one
+     */
     public boolean isOver(boolean initNewTile) {
-        for (int i = 0; i < SIZE; i++) {
-            for (int j = 0; j < SIZE; j++) {
-                if (tiles[i][j] == 0) {
-                    if (initNewTile) {
-                        createRandomValueOnRandomEmptyTile();
-                    }
-                    return false;
-                }
+        if (emptyCount > 0) {
+            if (initNewTile) {
+                createRandomValueOnRandomEmptyTile();
             }
+            return false;
         }
-        return true;
+        return !mergeable;
     }
 
     public boolean isWon() {
-        for (int i = 0; i < SIZE; i++) {
-            for (int j = 0; j < SIZE; j++) {
-                if (tiles[i][j] >= WIN_SCORE) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        return Bitboard.toValue(maxExponent) >= winScore;
+    }
+
+    /**
+     * Returns the value of the largest tile on the board.
+     */
+    public int getMaxTile() {
+        return Bitboard.toValue(maxExponent);
+    }
+
+    /**
+     * Returns the number of empty cells.
+     */
+    public int getEmptyCount() {
+        return emptyCount;
+    }
+
+    /**
+     * Returns whether two tiles would merge when moving in some direction.
+     */
+    public boolean canMerge() {
+        return mergeable;
     }
 
     @Override
     public String toString() {
         StringBuilder s = new StringBuilder("Moves: " + getMoves() + " Score: " + getScore() + "\n");
-        for (int i = 0; i < SIZE; i++) {
-            for (int j = 0; j < SIZE; j++) {
-                s.append(tiles[i][j] == 0 ? "." : tiles[i][j]);
-                if (j < SIZE - 1) {
+        int size = board.size();
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                s.append(getValueAt(i, j) == 0 ? "." : getValueAt(i, j));
+                if (j < size - 1) {
                     s.append(" ");
                 }
             }
-            if (i < SIZE - 1) {
+            if (i < size - 1) {
                 s.append("\n");
             }
         }
@@ -82,137 +162,152 @@ public class Game {
     }
 
     public void initialize() {
-        tiles = new int[4][4];
+        clear();
+        if (listener != null) {
+            listener.initialized();
+        }
 
         createRandomValueOnRandomEmptyTile();
         createRandomValueOnRandomEmptyTile();
-
-        score = 0;
-        moves = 0;
     }
 
     public void move(Direction direction) {
-        switch (direction) {
-            case right:
-                for (int x = 0; x < SIZE; x++) {
-                    for (int y = SIZE-1; y >= 0; y--) {
-                        if (tiles[x][y] != 0) {
-                            int currentY = y;
-                            if (currentY < SIZE-1) {
-                                while (currentY+1 < SIZE) {
-                                    if (tiles[x][currentY+1] == 0 || tiles[x][currentY+1] == tiles[x][y]) {
-                                        currentY++;
-                                    } else {
-                                        break;
-                                    }
-                                }
-                                if (currentY != y) {
-                                    if (tiles[x][currentY] == tiles[x][y]) {
-                                        tiles[x][currentY] = tiles[x][y] * 2;
-                                        this.score += tiles[x][y] * 2;
-                                    } else {
-                                        tiles[x][currentY] = tiles[x][y];
-                                    }
-                                    tiles[x][y] = 0;
-                                }
-                            }
-                        }
-                    }
-                }
-                break;
-            case left:
-                for (int x = 0; x < SIZE; x++) {
-                    for (int y = 0; y < SIZE; y++) {
-                        if (tiles[x][y] != 0) {
-                            int currentY = y;
-                            if (currentY > 0) {
-                                while (currentY-1 >= 0) {
-                                    if (tiles[x][currentY-1] == 0 || tiles[x][currentY-1] == tiles[x][y]) {
-                                        currentY--;
-                                    } else {
-                                        break;
-                                    }
-                                }
-                                if (currentY != y) {
-                                    if (tiles[x][currentY] == tiles[x][y]) {
-                                        tiles[x][currentY] = tiles[x][y] * 2;
-                                        this.score += tiles[x][y] * 2;
-                                    } else {
-                                        tiles[x][currentY] = tiles[x][y];
-                                    }
-                                    tiles[x][y] = 0;
-                                }
-                            }
-                        }
-                    }
-                }
-                break;
-            case up:
-                for (int y = 0; y < SIZE; y++) {
-                    for (int x = 0; x < SIZE; x++) {
-                        if (tiles[x][y] != 0) {
-                            int currentX = x;
-                            if (currentX > 0) {
-                                while (currentX - 1 >= 0) {
-                                    if (tiles[currentX-1][y] == 0 || tiles[currentX-1][y] == tiles[x][y]) {
-                                        currentX--;
-                                    } else {
-                                        break;
-                                    }
-                                }
-                                if (currentX != x) {
-                                    if (tiles[currentX][y] == tiles[x][y]) {
-                                        tiles[currentX][y] = tiles[x][y] * 2;
-                                        this.score += tiles[x][y] * 2;
-                                    } else {
-                                        tiles[currentX][y] = tiles[x][y];
-                                    }
-                                    tiles[x][y] = 0;
-                                }
-                            }
-                        }
-                    }
-                }
-                break;
-            case down:
-                for (int y = 0; y < SIZE; y++) {
-                    for (int x = SIZE-1; x >= 0; x--) {
-                        if (tiles[x][y] != 0) {
-                            int currentX = x;
-                            if (currentX < SIZE-1) {
-                                while (currentX+1 < SIZE) {
-                                    if (tiles[currentX+1][y] == 0 || tiles[currentX+1][y] == tiles[x][y]) {
-                                        currentX++;
-                                    } else {
-                                        break;
-                                    }
-                                }
-                                if (currentX != x) {
-                                    if (tiles[currentX][y] == tiles[x][y]) {
-                                        tiles[currentX][y] = tiles[x][y] * 2;
-                                        this.score += tiles[x][y] * 2;
-                                    } else {
-                                        tiles[currentX][y] = tiles[x][y];
-                                    }
-                                    tiles[x][y] = 0;
-                                }
-                            }
-                        }
-                    }
-                }
-                break;
+        score += scoreDelta(board.move(direction));
+        updateState();
+        moves++;
+        if (listener != null) {
+            listener.moved(direction);
         }
+    }
+
+    /**
+     * Moves all tiles like {@link #move(Direction)}, but leaves the game untouched - including the move counter -
+     * if no tile can be moved in the given direction. Allocates nothing, so it can be driven from tight loops.
+     *
+     * @return {@link #NO_CHANGE} if nothing moved, otherwise the gained score in the lower 32 bits and the mask of
+     * changed cells (see {@link Board#move(Direction)}) in the upper 32 bits;
+     * use {@link #scoreDelta(long)} and {@link #changedCells(long)} to unpack it
+     */
+    public long tryMove(Direction direction) {
+        long result = board.move(direction);
+        if (result == NO_CHANGE) {
+            return NO_CHANGE;
+        }
+        updateState();
+        score += scoreDelta(result);
         moves++;
+        if (listener != null) {
+            listener.moved(direction);
+        }
+        return result;
     }
 
-    public int[][] getTiles() {
-        return tiles;
+    /**
+     * Returns the score gained by a move from the result of {@link #tryMove(Direction)}.
+     */
+    public static int scoreDelta(long moveResult) {
+        return (int) moveResult;
     }
 
+    /**
+     * Returns the mask of changed cells from the result of {@link #tryMove(Direction)}, with bit {@code size * x + y}
+     * set for cell {@code (x, y)}. The mask only has room for 32 cells: on larger boards all bits are set, and clients
+     * have to compare the tiles to find the changed cells.
+     */
+    public static int changedCells(long moveResult) {
+        return (int) (moveResult >>> 32);
+    }
 
+    /**
+     * Returns a copy of the current tiles; changes to the returned array do not affect the game.
+     */
+    public int[][] getTiles() {
+        return board.toTiles();
+    }
 
+    /**
+     * Replaces the current tiles by the given ones.
+     *
+     * @throws IllegalArgumentException if the array does not match the board size or contains a value which is not
+     *                                  a tile value
+     */
     public void setTiles(int[][] tiles) {
-        this.tiles = tiles;
+        board.setTiles(tiles);
+        updateState();
+    }
+
+    /**
+     * Returns the current tiles packed into a {@link Bitboard}.
+     *
+     * @throws IllegalStateException if the board is not 4x4
+     */
+    public long getBoard() {
+        return packed().getBits();
+    }
+
+    /**
+     * Replaces the current tiles by the given {@link Bitboard}.
+     *
+     * @throws IllegalStateException if the board is not 4x4
+     */
+    public void setBoard(long board) {
+        packed().setBits(board);
+        updateState();
+    }
+
+    /**
+     * Sets the strategy placing new tiles, e.g. a {@link TileSpawner#uniform(java.util.SplittableRandom) uniform}
+     * spawner with its own generator; {@code null} restores drawing random cells from {@link #random}.
+     *
+     * @throws IllegalStateException if a spawner is given and the board is not 4x4
+     */
+    public void setSpawner(TileSpawner spawner) {
+        if (spawner != null) {
+            packed();
+        }
+        this.spawner = spawner;
+    }
+
+    /**
+     * Returns the listener receiving the changes of this game, or {@code null}.
+     */
+    public GameListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Sets the listener receiving the changes of this game; {@code null} removes it.
+     */
+    public void setListener(GameListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Removes all tiles and resets score and moves without spawning new tiles or notifying the listener.
+     */
+    void clear() {
+        board.clear();
+        updateState();
+        score = 0;
+        moves = 0;
+    }
+
+    /**
+     * Puts a tile on the empty cell {@code (x, y)} without notifying the listener, e.g. to replay a spawn.
+     */
+    void placeTile(int x, int y, int exponent) {
+        board.setExponent(x, y, exponent);
+        maxExponent = Math.max(maxExponent, exponent);
+        emptyCount--;
+        mergeable = board.canMerge();
+    }
+
+    /**
+     * Sets score and moves, e.g. to restore a saved game.
+     */
+    void restore(int score, int moves) {
+        this.score = score;
+        this.moves = moves;
     }
 
     private int getRandomTileValue() {
@@ -221,11 +316,44 @@ public class Game {
     }
 
     private void createRandomValueOnRandomEmptyTile() {
+        if (spawner != null) {
+            long before = packed.getBits();
+            long after = spawner.spawn(before);
+            packed.setBits(after);
+            updateState();
+            if (listener != null && after != before) {
+                int cell = Integer.numberOfTrailingZeros(Bitboard.changedCells(before, after));
+                listener.tileSpawned(cell / SIZE, cell % SIZE, Bitboard.exponentAt(after, cell / SIZE, cell % SIZE));
+            }
+            return;
+        }
+        if (emptyCount == 0) {
+            return;
+        }
+        int size = board.size();
         int x, y;
         do {
-            x = random.nextInt(4);
-            y = random.nextInt(4);
-        } while (tiles[x][y] != 0);
-        tiles[x][y] = getRandomTileValue();
+            x = random.nextInt(size);
+            y = random.nextInt(size);
+        } while (board.exponentAt(x, y) != 0);
+        int exponent = Bitboard.toExponent(getRandomTileValue());
+        // a spawn only fills one cell, so just the merge check has to look at the board again
+        placeTile(x, y, exponent);
+        if (listener != null) {
+            listener.tileSpawned(x, y, exponent);
+        }
+    }
+
+    private PackedBoard packed() {
+        if (packed == null) {
+            throw new IllegalStateException("only 4x4 boards are packed into a bitboard");
+        }
+        return packed;
+    }
+
+    private void updateState() {
+        maxExponent = board.maxExponent();
+        emptyCount = board.countEmpty();
+        mergeable = board.canMerge();
     }
 }
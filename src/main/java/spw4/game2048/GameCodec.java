@@ -0,0 +1,189 @@
+package spw4.game2048;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes a {@link Game} into {@value #ENCODED_SIZE} bytes and back, e.g. to persist, replicate or cache sessions.
+ * <p>
+ * Every game takes the same number of bytes regardless of its board size, so encoded games can be stored in
+ * fixed-size slots; if only small boards are stored, they can be encoded into fewer bytes, see
+ * {@link #encodedSize(int)}. Values are read and written directly from and to the buffer - heap or direct - in its
+ * byte order, without any intermediate objects. The layout, at offsets from the start of an encoded game:
+ * <pre>
+ *  0  version (1 byte)
+ *  1  board size (1)
+ *  2  flags (1), bit 0 set if the random state is valid
+ *  3  reserved (1)
+ *  4  win score (4)
+ *  8  score (4)
+ * 12  moves (4)
+ * 16  state of the {@link StatefulRandom} drawing new tiles (8)
+ * 24  exponents (4 x 8): cell (x, y) in nibble size * x + y, 16 nibbles per long starting with the lowest bits,
+ *     so a 4x4 board is stored as its {@link Bitboard} in the first long
+ * </pre>
+ * A shorter encoding keeps this layout but ends after the longs its largest board needs, e.g. after the first one for
+ * boards up to 4x4.
+ * The {@link Game#setSpawner(TileSpawner) spawner} and the {@link Game#setListener(GameListener) listener} are not
+ * encoded. A game drawing its tiles from a plain {@link java.util.Random} is decoded with a freshly seeded generator.
+ */
+public final class GameCodec {
+
+    /**
+     * Number of bytes of an encoded game.
+     */
+    public static final int ENCODED_SIZE = 56;
+
+    private static final byte VERSION = 1;
+    private static final byte RANDOM_STATE = 1;
+    private static final int CELLS_PER_WORD = 16;
+
+    private GameCodec() {
+    }
+
+    /**
+     * Returns the number of bytes of an encoding for games on boards up to {@code maxSize} x {@code maxSize}, which
+     * is {@link #ENCODED_SIZE} for the largest boards and 32 bytes for boards up to 4x4.
+     */
+    public static int encodedSize(int maxSize) {
+        return 24 + 8 * ((maxSize * maxSize + CELLS_PER_WORD - 1) / CELLS_PER_WORD);
+    }
+
+    /**
+     * Writes the game at the position of {@code buffer} and advances the position by {@link #ENCODED_SIZE}.
+     *
+     * @throws java.nio.BufferOverflowException if fewer than {@link #ENCODED_SIZE} bytes remain
+     */
+    public static void encode(Game game, ByteBuffer buffer) {
+        int index = buffer.position();
+        encode(game, buffer, index);
+        buffer.position(index + ENCODED_SIZE);
+    }
+
+    /**
+     * Writes the game at {@code index} without changing the position of {@code buffer}.
+     *
+     * @throws IndexOutOfBoundsException if fewer than {@link #ENCODED_SIZE} bytes are left after {@code index}
+     */
+    public static void encode(Game game, ByteBuffer buffer, int index) {
+        encode(game, buffer, index, ENCODED_SIZE);
+    }
+
+    /**
+     * Writes the game at {@code index} into {@code encodedSize} bytes, as returned by {@link #encodedSize(int)},
+     * without changing the position of {@code buffer}.
+     *
+     * @throws IllegalArgumentException  if the board of the game does not fit into {@code encodedSize} bytes
+     * @throws IndexOutOfBoundsException if fewer than {@code encodedSize} bytes are left after {@code index}
+     */
+    public static void encode(Game game, ByteBuffer buffer, int index, int encodedSize) {
+        if (index < 0 || buffer.limit() - index < encodedSize) {
+            throw new IndexOutOfBoundsException("no room for an encoded game at " + index);
+        }
+        int words = (encodedSize - 24) / 8;
+        if (encodedSize(game.getSize()) > encodedSize) {
+            throw new IllegalArgumentException("a board of size " + game.getSize() + " does not fit into "
+                    + encodedSize + " bytes");
+        }
+        boolean stateful = game.random instanceof StatefulRandom;
+        int size = game.getSize();
+        buffer.put(index, VERSION)
+                .put(index + 1, (byte) size)
+                .put(index + 2, stateful ? RANDOM_STATE : 0)
+                .put(index + 3, (byte) 0)
+                .putInt(index + 4, game.getWinScore())
+                .putInt(index + 8, game.getScore())
+                .putInt(index + 12, game.getMoves())
+                .putLong(index + 16, stateful ? ((StatefulRandom) game.random).getState() : 0);
+
+        int offset = index + 24;
+        if (size == Game.SIZE) {
+            buffer.putLong(offset, game.getBoard());
+            for (int i = 1; i < words; i++) {
+                buffer.putLong(offset + 8 * i, 0);
+            }
+            return;
+        }
+        long word = 0;
+        int cell = 0;
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++, cell++) {
+                word |= (long) game.getExponentAt(x, y) << (4 * (cell % CELLS_PER_WORD));
+                if (cell % CELLS_PER_WORD == CELLS_PER_WORD - 1) {
+                    buffer.putLong(offset + 8 * (cell / CELLS_PER_WORD), word);
+                    word = 0;
+                }
+            }
+        }
+        for (int i = (cell + CELLS_PER_WORD - 1) / CELLS_PER_WORD; i < words; i++) {
+            buffer.putLong(offset + 8 * i, 0);
+        }
+        if (cell % CELLS_PER_WORD != 0) {
+            buffer.putLong(offset + 8 * (cell / CELLS_PER_WORD), word);
+        }
+    }
+
+    /**
+     * Reads a game at the position of {@code buffer} and advances the position by {@link #ENCODED_SIZE}.
+     *
+     * @throws IllegalArgumentException if the bytes are not an encoded game
+     */
+    public static Game decode(ByteBuffer buffer) {
+        int index = buffer.position();
+        Game game = decode(buffer, index);
+        buffer.position(index + ENCODED_SIZE);
+        return game;
+    }
+
+    /**
+     * Reads a game at {@code index} without changing the position of {@code buffer}.
+     *
+     * @throws IllegalArgumentException if the bytes are not an encoded game
+     */
+    public static Game decode(ByteBuffer buffer, int index) {
+        return decode(buffer, index, ENCODED_SIZE);
+    }
+
+    /**
+     * Reads a game encoded into {@code encodedSize} bytes at {@code index} without changing the position of
+     * {@code buffer}.
+     *
+     * @throws IllegalArgumentException if the bytes are not an encoded game
+     */
+    public static Game decode(ByteBuffer buffer, int index, int encodedSize) {
+        if (index < 0 || buffer.limit() - index < encodedSize) {
+            throw new IndexOutOfBoundsException("no encoded game at " + index);
+        }
+        if (buffer.get(index) != VERSION) {
+            throw new IllegalArgumentException("unknown encoding version " + buffer.get(index));
+        }
+        int size = buffer.get(index + 1);
+        if (encodedSize(size) > encodedSize) {
+            throw new IllegalArgumentException("no encoded game of size " + size);
+        }
+        int offset = index + 24;
+        Board board = Board.of(size);
+        if (board instanceof PackedBoard) {
+            ((PackedBoard) board).setBits(buffer.getLong(offset));
+        } else {
+            long word = 0;
+            int cell = 0;
+            for (int x = 0; x < size; x++) {
+                for (int y = 0; y < size; y++, cell++) {
+                    if (cell % CELLS_PER_WORD == 0) {
+                        word = buffer.getLong(offset + 8 * (cell / CELLS_PER_WORD));
+                    }
+                    board.setExponent(x, y, (int) (word >>> (4 * (cell % CELLS_PER_WORD))) & 0xF);
+                }
+            }
+        }
+
+        Game game = new Game(board, buffer.getInt(index + 4));
+        game.restore(buffer.getInt(index + 8), buffer.getInt(index + 12));
+        if ((buffer.get(index + 2) & RANDOM_STATE) != 0) {
+            StatefulRandom random = new StatefulRandom(0);
+            random.setState(buffer.getLong(index + 16));
+            game.random = random;
+        }
+        return game;
+    }
+}
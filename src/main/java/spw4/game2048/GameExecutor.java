@@ -0,0 +1,180 @@
+package spw4.game2048;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded executor for request processing which keeps the tasks of one game in order.
+ * <p>
+ * All threads are shared by all games. Tasks with the same key, e.g. the id of a game, wait in a queue of their own
+ * and are handed to the pool one at a time, in the order they were submitted; tasks of different games run in
+ * parallel on any free thread, so a slow task only holds up later tasks of its own game. After each task the queue
+ * of its game goes to the back of the pool's queue, so a game with many requests does not starve the others.
+ * <p>
+ * When the queue of a game or the tasks waiting in total exceed their bounds, further tasks are rejected instead of
+ * piling up, so the caller can shed load.
+ */
+public class GameExecutor implements AutoCloseable {
+
+    private final ThreadPoolExecutor pool;
+    private final int queueCapacity;
+    private final int maxQueued;
+    /**
+     * Games with a task running or about to run.
+     */
+    private final ConcurrentMap<Object, SerialQueue> queues = new ConcurrentHashMap<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private volatile boolean closed;
+
+    /**
+     * Creates an executor with {@code threads} threads, where each game queues up to {@code queueCapacity} tasks
+     * and all games together up to {@code threads * queueCapacity} tasks.
+     */
+    public GameExecutor(int threads, int queueCapacity) {
+        if (threads < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("threads and queueCapacity must be positive");
+        }
+        this.queueCapacity = queueCapacity;
+        this.maxQueued = (int) Math.min(Integer.MAX_VALUE, (long) threads * queueCapacity);
+        AtomicInteger count = new AtomicInteger();
+        // the bounds are enforced by the counters, the pool's queue only holds runnable tasks and game queues
+        pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "game-executor-" + count.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Runs {@code task} after all tasks submitted before with an equal key; a {@code null} key runs it on any thread
+     * without waiting for other tasks.
+     *
+     * @throws RejectedExecutionException if the queue of the key or all queues together are full, or the executor is
+     *                                    closed
+     */
+    public void execute(Object key, Runnable task) {
+        if (closed) {
+            throw new RejectedExecutionException("executor is closed");
+        }
+        if (key == null) {
+            reserve();
+            submit(() -> {
+                queued.decrementAndGet();
+                task.run();
+            });
+            return;
+        }
+        SerialQueue[] start = {null};
+        queues.compute(key, (k, serial) -> {
+            if (serial == null) {
+                // nothing to wait for, the task goes to the pool right away, but may still wait for a thread there
+                reserve();
+                serial = new SerialQueue(k, task);
+                start[0] = serial;
+                return serial;
+            }
+            if (serial.waiting.size() >= queueCapacity) {
+                throw new RejectedExecutionException("too many queued tasks for " + k);
+            }
+            reserve();
+            serial.waiting.add(task);
+            return serial;
+        });
+        if (start[0] != null) {
+            submit(start[0]);
+        }
+    }
+
+    /**
+     * Returns the number of tasks which have not started yet, waiting for an earlier task of their game or for a free
+     * thread.
+     */
+    public int getQueued() {
+        return queued.get();
+    }
+
+    /**
+     * Rejects new tasks and waits a few seconds for the queued ones to finish.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        try {
+            // queues hand their tasks to the pool one by one, so the pool is only shut down once they are empty
+            while (queued.get() > 0 && System.nanoTime() - deadline < 0) {
+                Thread.sleep(1);
+            }
+            pool.shutdown();
+            pool.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Counts one more waiting task.
+     *
+     * @throws RejectedExecutionException if all queues together are full
+     */
+    private void reserve() {
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            throw new RejectedExecutionException("too many queued tasks");
+        }
+    }
+
+    private void submit(Runnable runnable) {
+        try {
+            pool.execute(runnable);
+        } catch (RejectedExecutionException e) {
+            // closed while tasks were still waiting; they are dropped like the tasks of a pool shut down
+        }
+    }
+
+    /**
+     * Tasks of one key: the next one to run, handed to the pool, and the ones waiting behind it. Guarded by the
+     * mapping in {@link #queues}, which is removed once the last task has run.
+     */
+    private final class SerialQueue implements Runnable {
+        private final Object key;
+        private final ArrayDeque<Runnable> waiting = new ArrayDeque<>();
+        private Runnable next;
+
+        SerialQueue(Object key, Runnable next) {
+            this.key = key;
+            this.next = next;
+        }
+
+        @Override
+        public void run() {
+            // only set before the queue is handed to the pool, which publishes it
+            Runnable task = next;
+            queued.decrementAndGet();
+            try {
+                task.run();
+            } finally {
+                boolean[] more = {false};
+                queues.computeIfPresent(key, (k, serial) -> {
+                    serial.next = serial.waiting.poll();
+                    if (serial.next == null) {
+                        return null;
+                    }
+                    more[0] = true;
+                    return serial;
+                });
+                if (more[0]) {
+                    // behind the tasks of other games, so a busy game does not starve them
+                    submit(this);
+                }
+            }
+        }
+    }
+}
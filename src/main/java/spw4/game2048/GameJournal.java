@@ -0,0 +1,546 @@
+package spw4.game2048;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of all games in a {@link GameSessions} registry, which rebuilds the registry after a restart.
+ * <p>
+ * Every change of a game - new game, restart, spawned tile, move, removal - is appended as a fixed-size record of
+ * {@value #RECORD_SIZE} bytes to a memory-mapped log file. Spawned tiles are recorded with their cell and value, so
+ * replaying a log does not depend on the state of the games' random number generators. Appends reserve a slot in the
+ * log with an atomic position and copy the record into the mapping without a lock, so different games are journaled
+ * concurrently. A background thread forces the log to disk every commit interval, so all moves made within one
+ * interval share a single fsync (group commit) and a crash loses at most the moves of the last interval. A full log
+ * is continued in a new file right away; forcing the full one and compacting are left to the background threads.
+ * <p>
+ * {@link #compact()} bounds the recovery time: it switches appends to a new log file, writes a snapshot of all
+ * games and then deletes the older logs and snapshots. Recovery reads the latest complete snapshot and replays the
+ * logs written since; every record carries a per-game sequence number, so changes already contained in the
+ * snapshot are skipped. Snapshots store the games through {@link GameCodec}, including the state of their random
+ * number generators. A record is only replayed if its checksum is valid, which drops a record torn by a crash, and
+ * only if it directly follows the previous change of its game: as slots are filled concurrently and full logs are
+ * forced in the background, a crash may leave gaps, and a game is then recovered up to its last change before one.
+ * <p>
+ * Files in the journal directory: {@code journal-<generation>.log} and {@code snapshot-<generation>.bin}, where a
+ * snapshot contains everything logged before the log of the same generation.
+ */
+public class GameJournal implements AutoCloseable {
+
+    /**
+     * Default size of a log file in bytes; a full log is continued in a new file.
+     */
+    public static final int DEFAULT_LOG_CAPACITY = 1 << 26;
+    /**
+     * Default interval in milliseconds in which appended records are forced to disk.
+     */
+    public static final long DEFAULT_COMMIT_INTERVAL_MILLIS = 10;
+
+    static final int RECORD_SIZE = 32;
+
+    private static final byte CREATED = 1;
+    private static final byte INITIALIZED = 2;
+    private static final byte SPAWNED = 3;
+    private static final byte MOVED = 4;
+    private static final byte REMOVED = 5;
+
+    private static final int SNAPSHOT_MAGIC = 0x32303438;
+    private static final int SNAPSHOT_VERSION = 2;
+    private static final int SNAPSHOT_HEADER_SIZE = 12;
+    /**
+     * Id, sequence number and the game encoded by {@link GameCodec}.
+     */
+    private static final int SNAPSHOT_ENTRY_SIZE = 20 + GameCodec.ENCODED_SIZE;
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final Path directory;
+    private final int logCapacity;
+    private final ScheduledExecutorService executor;
+    private final Object compactionLock = new Object();
+
+    /**
+     * Record being assembled by {@link #append(byte, UUID, int, int, int, int, int)} on each thread.
+     */
+    private final ThreadLocal<Record> records = ThreadLocal.withInitial(Record::new);
+    /**
+     * Log appended to, {@code null} before recovery and after closing; replaced while holding the monitor of
+     * {@code this}.
+     */
+    private volatile Log log;
+    private volatile boolean dirty;
+    private boolean closed;
+    private GameSessions sessions;
+
+    public GameJournal(Path directory) throws IOException {
+        this(directory, DEFAULT_LOG_CAPACITY, DEFAULT_COMMIT_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Creates a journal in the given directory; {@link #recover(GameSessions)} has to be called before it is used.
+     *
+     * @param logCapacity size of a log file in bytes
+     */
+    public GameJournal(Path directory, int logCapacity, long commitIntervalMillis) throws IOException {
+        if (logCapacity < RECORD_SIZE) {
+            throw new IllegalArgumentException("log capacity must hold at least one record");
+        }
+        this.directory = Files.createDirectories(directory);
+        this.logCapacity = logCapacity - logCapacity % RECORD_SIZE;
+        // one thread commits while the other one may be busy writing a snapshot
+        this.executor = Executors.newScheduledThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "game-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::commit, commitIntervalMillis, commitIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Rebuilds all journaled games into {@code sessions} and journals the registry from now on.
+     *
+     * @return number of recovered games
+     */
+    public int recover(GameSessions sessions) throws IOException {
+        TreeSet<Integer> logs = new TreeSet<>();
+        int snapshot = -1;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.startsWith("journal-") && name.endsWith(".log")) {
+                    logs.add(Integer.parseInt(name.substring(8, name.length() - 4)));
+                } else if (name.startsWith("snapshot-") && name.endsWith(".bin")) {
+                    snapshot = Math.max(snapshot, Integer.parseInt(name.substring(9, name.length() - 4)));
+                } else if (name.startsWith("snapshot-") && name.endsWith(".tmp")) {
+                    Files.delete(file);
+                }
+            }
+        }
+
+        // games are restored straight into the registry; their recorders stay silent until the journal is open
+        int before = sessions.size();
+        if (snapshot >= 0) {
+            readSnapshot(snapshotFile(snapshot), sessions);
+        }
+        for (int logGeneration : logs.tailSet(Math.max(snapshot, 0))) {
+            replay(logFile(logGeneration), sessions);
+        }
+
+        synchronized (this) {
+            log = openLog(Math.max(snapshot, logs.isEmpty() ? -1 : logs.last()) + 1);
+            this.sessions = sessions;
+        }
+        sessions.setJournal(this);
+        if (snapshot >= 0 || !logs.isEmpty()) {
+            executor.execute(this::compactQuietly);
+        }
+        return sessions.size() - before;
+    }
+
+    /**
+     * Journals a new game and all changes of it from now on.
+     */
+    void created(UUID id, Game game) {
+        Recorder recorder = new Recorder(id, 0);
+        append(CREATED, id, 0, game.getSize(), 0, 0, game.getWinScore());
+        for (int x = 0; x < game.getSize(); x++) {
+            for (int y = 0; y < game.getSize(); y++) {
+                if (game.getExponentAt(x, y) != 0) {
+                    recorder.tileSpawned(x, y, game.getExponentAt(x, y));
+                }
+            }
+        }
+        game.setListener(recorder);
+    }
+
+    /**
+     * Journals the removal of a game.
+     */
+    void removed(UUID id) {
+        append(REMOVED, id, 0, 0, 0, 0, 0);
+    }
+
+    /**
+     * Starts writing snapshots with the given period.
+     */
+    public void startCompaction(long period, TimeUnit unit) {
+        executor.scheduleWithFixedDelay(this::compactQuietly, period, period, unit);
+    }
+
+    /**
+     * Writes a snapshot of all games and deletes the logs and snapshots it replaces.
+     */
+    public void compact() throws IOException {
+        synchronized (compactionLock) {
+            Log previous;
+            synchronized (this) {
+                if (sessions == null) {
+                    throw new IllegalStateException("journal has not been recovered");
+                }
+                if (closed) {
+                    return;
+                }
+                previous = log;
+                log = openLog(previous.generation + 1);
+            }
+            previous.seal();
+            int snapshotGeneration = previous.generation + 1;
+            writeSnapshot(snapshotGeneration);
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "{journal,snapshot}-*")) {
+                for (Path file : files) {
+                    String name = file.getFileName().toString();
+                    String number = name.substring(name.indexOf('-') + 1, name.indexOf('.'));
+                    if (Integer.parseInt(number) < snapshotGeneration) {
+                        Files.delete(file);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Forces all appended records to disk.
+     */
+    public void commit() {
+        Log current = log;
+        if (!dirty || current == null) {
+            return;
+        }
+        dirty = false;
+        // records still being copied are forced by the next commit, as their appends mark the journal dirty again
+        current.buffer.force();
+    }
+
+    /**
+     * Stops the background threads, waiting for a running compaction and for full logs to be forced, and forces all
+     * appended records to disk.
+     */
+    @Override
+    public void close() {
+        Log last;
+        synchronized (this) {
+            closed = true;
+            if (sessions != null) {
+                sessions.setJournal(null);
+            }
+            last = log;
+            log = null;
+        }
+        // periodic commits and snapshots are cancelled, full logs handed off by appends are still forced
+        executor.shutdown();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        // compact() may also run on a caller's thread
+        synchronized (compactionLock) {
+            if (last != null) {
+                last.seal();
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void append(byte type, UUID id, int sequence, int a, int b, int c, int value) {
+        Log current = log;
+        if (current == null) {
+            // changes replayed during recovery are already journaled
+            return;
+        }
+        int position;
+        while ((position = current.reserve()) < 0) {
+            current = next(current);
+            if (current == null) {
+                return;
+            }
+        }
+        Record record = records.get();
+        ByteBuffer bytes = record.bytes;
+        bytes.clear();
+        bytes.put(type).put((byte) a).put((byte) b).put((byte) c).putInt(sequence)
+                .putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits()).putInt(value);
+        record.crc.reset();
+        record.crc.update(bytes.array(), 0, bytes.position());
+        bytes.putInt((int) record.crc.getValue());
+        current.write(position, bytes);
+        if (!dirty) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Returns the log following the full log {@code full}, continuing the journal in a new file unless another
+     * thread did so already, or {@code null} if the journal has been closed. Forcing the full log and compacting are
+     * handed off to the background threads.
+     */
+    private synchronized Log next(Log full) {
+        if (log != full) {
+            return log;
+        }
+        try {
+            log = openLog(full.generation + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // submitted while holding the monitor, so close() cannot shut the executor down before
+        executor.execute(() -> {
+            full.seal();
+            // do not let the logs pile up until the next scheduled snapshot
+            compactQuietly();
+        });
+        return log;
+    }
+
+    private Log openLog(int generation) throws IOException {
+        try (FileChannel channel = FileChannel.open(logFile(generation), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // the mapping stays valid after the channel is closed
+            return new Log(generation, channel.map(FileChannel.MapMode.READ_WRITE, 0, logCapacity));
+        }
+    }
+
+    private void replay(Path file, GameSessions sessions) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        byte[] bytes = new byte[RECORD_SIZE];
+        CRC32 crc = new CRC32();
+        while (buffer.remaining() >= RECORD_SIZE) {
+            buffer.get(bytes);
+            ByteBuffer entry = ByteBuffer.wrap(bytes);
+            byte type = entry.get();
+            crc.reset();
+            crc.update(bytes, 0, RECORD_SIZE - 4);
+            if (type == 0 || entry.getInt(RECORD_SIZE - 4) != (int) crc.getValue()) {
+                // end of the log, or a record torn by a crash
+                break;
+            }
+            int a = entry.get();
+            int b = entry.get();
+            int c = entry.get();
+            int sequence = entry.getInt();
+            UUID id = new UUID(entry.getLong(), entry.getLong());
+            int value = entry.getInt();
+
+            Game game = sessions.peek(id);
+            if (type == REMOVED) {
+                sessions.remove(id);
+                continue;
+            }
+            if (game == null && type == CREATED) {
+                game = new Game(Board.of(a), value);
+                game.setListener(new Recorder(id, sequence));
+                sessions.restore(id, game);
+                continue;
+            }
+            if (game == null || sequence != ((Recorder) game.getListener()).sequence + 1) {
+                // unknown game, change already contained in the snapshot, or a change after one lost in a crash
+                continue;
+            }
+            switch (type) {
+                case INITIALIZED:
+                    game.clear();
+                    break;
+                case SPAWNED:
+                    game.placeTile(a, b, c);
+                    break;
+                case MOVED:
+                    game.move(DIRECTIONS[a]);
+                    break;
+            }
+            ((Recorder) game.getListener()).sequence = sequence;
+        }
+    }
+
+    private void writeSnapshot(int snapshotGeneration) throws IOException {
+        Path tmp = directory.resolve("snapshot-" + snapshotGeneration + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+            buffer.putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_VERSION).putInt(0);
+            int[] count = {0};
+            sessions.forEach((id, game) -> {
+                GameListener listener = game.getListener();
+                if (!(listener instanceof Recorder)) {
+                    return;
+                }
+                if (buffer.remaining() < SNAPSHOT_ENTRY_SIZE) {
+                    flush(buffer, channel);
+                }
+                buffer.putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits())
+                        .putInt(((Recorder) listener).sequence);
+                GameCodec.encode(game, buffer);
+                count[0]++;
+            });
+            flush(buffer, channel);
+            buffer.putInt(count[0]).flip();
+            channel.write(buffer, SNAPSHOT_HEADER_SIZE - 4);
+            channel.force(true);
+        }
+        Files.move(tmp, snapshotFile(snapshotGeneration), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void readSnapshot(Path file, GameSessions sessions) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.getInt() != SNAPSHOT_MAGIC || buffer.getInt() != SNAPSHOT_VERSION) {
+            throw new IOException("not a snapshot: " + file);
+        }
+        int count = buffer.getInt();
+        for (int i = 0; i < count; i++) {
+            UUID id = new UUID(buffer.getLong(), buffer.getLong());
+            int sequence = buffer.getInt();
+            Game game = GameCodec.decode(buffer);
+            game.setListener(new Recorder(id, sequence));
+            sessions.restore(id, game);
+        }
+    }
+
+    private static void flush(ByteBuffer buffer, FileChannel channel) {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (IOException | RuntimeException e) {
+            // the logs stay in place and the next compaction tries again
+        }
+    }
+
+    private Path logFile(int generation) {
+        return directory.resolve("journal-" + generation + ".log");
+    }
+
+    private Path snapshotFile(int generation) {
+        return directory.resolve("snapshot-" + generation + ".bin");
+    }
+
+    /**
+     * Log file of one generation, whose slots are handed out to appending threads by an atomic position.
+     */
+    private static final class Log {
+        final int generation;
+        final MappedByteBuffer buffer;
+        /**
+         * Offset of the next free slot; grows beyond the capacity once the log is full or sealed.
+         */
+        private final AtomicInteger reserved = new AtomicInteger();
+        /**
+         * Bytes copied into reserved slots so far.
+         */
+        private final LongAdder written = new LongAdder();
+
+        Log(int generation, MappedByteBuffer buffer) {
+            this.generation = generation;
+            this.buffer = buffer;
+        }
+
+        /**
+         * Reserves the slot of one record.
+         *
+         * @return the offset of the slot, or -1 if the log is full or sealed
+         */
+        int reserve() {
+            int position = reserved.getAndAdd(RECORD_SIZE);
+            return position <= buffer.capacity() - RECORD_SIZE && position >= 0 ? position : -1;
+        }
+
+        /**
+         * Copies a record into its reserved slot.
+         */
+        void write(int position, ByteBuffer record) {
+            // absolute puts, as threads share the buffer but write to different slots
+            for (int offset = 0; offset < RECORD_SIZE; offset += Long.BYTES) {
+                buffer.putLong(position + offset, record.getLong(offset));
+            }
+            written.add(RECORD_SIZE);
+        }
+
+        /**
+         * Stops handing out slots, waits for the records being copied into the slots already reserved and forces the
+         * log to disk.
+         */
+        void seal() {
+            int end = Math.min(reserved.getAndSet(buffer.capacity()), buffer.capacity());
+            while (written.sum() < end) {
+                Thread.onSpinWait();
+            }
+            buffer.force();
+        }
+    }
+
+    /**
+     * Per-thread buffer and checksum a record is assembled in.
+     */
+    private static final class Record {
+        final ByteBuffer bytes = ByteBuffer.allocate(RECORD_SIZE);
+        final CRC32 crc = new CRC32();
+    }
+
+    /**
+     * Journals the changes of one game, numbering them in the order they were made.
+     */
+    private final class Recorder implements GameListener {
+        private final UUID id;
+        /**
+         * Number of the last journaled change; guarded by the game's monitor.
+         */
+        private int sequence;
+
+        Recorder(UUID id, int sequence) {
+            this.id = id;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void initialized() {
+            append(INITIALIZED, id, ++sequence, 0, 0, 0, 0);
+        }
+
+        @Override
+        public void tileSpawned(int x, int y, int exponent) {
+            append(SPAWNED, id, ++sequence, x, y, exponent, 0);
+        }
+
+        @Override
+        public void moved(Direction direction) {
+            append(MOVED, id, ++sequence, direction.ordinal(), 0, 0, 0);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package spw4.game2048;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Compact JSON representation of a game, used by the script client to update the page in place.
+ * <p>
+ * Tiles are sent as their exponents in row-major order, e.g.
+ * {@code {"id":"...","moves":3,"score":8,"over":false,"won":false,"tiles":[0,1,0,0,...]}}; the answer to a batch
+ * of moves adds the score gained by each of them, e.g. {@code ...,"tiles":[...],"deltas":[0,4,0]}}.
+ * The document is written byte by byte without reflection or intermediate strings.
+ */
+public class GameJson implements GameRenderer {
+
+    private static final byte[] ID = ascii("{\"id\":\"");
+    private static final byte[] MOVES = ascii("\",\"moves\":");
+    private static final byte[] SCORE = ascii(",\"score\":");
+    private static final byte[] OVER = ascii(",\"over\":");
+    private static final byte[] WON = ascii(",\"won\":");
+    private static final byte[] TILES = ascii(",\"tiles\":[");
+    private static final byte[] DELTAS = ascii("],\"deltas\":[");
+    private static final byte[] HINT = ascii("],\"hint\":");
+    private static final byte[] NULL = ascii("null");
+    private static final byte[] END = ascii("]}");
+    private static final byte[] TRUE = ascii("true");
+    private static final byte[] FALSE = ascii("false");
+    /**
+     * Per-thread scratch space for the id and the numbers of the document being written.
+     */
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[36]);
+
+    @Override
+    public String getContentType() {
+        return "application/json";
+    }
+
+    @Override
+    public void render(UUID id, Game game, OutputStream out) throws IOException {
+        writeState(id, game, out, SCRATCH.get());
+        out.write(END);
+    }
+
+    /**
+     * Writes the state of {@code game} like {@link #render(UUID, Game, OutputStream)}, followed by the first
+     * {@code count} score deltas of a batch of moves.
+     */
+    public void renderBatch(UUID id, Game game, int[] deltas, int count, OutputStream out) throws IOException {
+        byte[] buffer = SCRATCH.get();
+        writeState(id, game, out, buffer);
+        out.write(DELTAS);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            Ascii.writeInt(deltas[i], buffer, out);
+        }
+        out.write(END);
+    }
+
+    /**
+     * Writes the state of {@code game} like {@link #render(UUID, Game, OutputStream)}, up to the suggested move
+     * written by {@link #renderHintMove(Direction, OutputStream)}, so the game need not be locked while the move is
+     * searched.
+     */
+    public void renderHintState(UUID id, Game game, OutputStream out) throws IOException {
+        writeState(id, game, out, SCRATCH.get());
+        out.write(HINT);
+    }
+
+    /**
+     * Completes the document started by {@link #renderHintState(UUID, Game, OutputStream)} with the suggested move,
+     * {@code null} if there is none.
+     */
+    public void renderHintMove(Direction hint, OutputStream out) throws IOException {
+        if (hint == null) {
+            out.write(NULL);
+        } else {
+            out.write('"');
+            out.write(ascii(hint.name()));
+            out.write('"');
+        }
+        out.write('}');
+    }
+
+    /**
+     * Writes the document up to the last tile, leaving the tiles array open.
+     */
+    private static void writeState(UUID id, Game game, OutputStream out, byte[] buffer) throws IOException {
+
+        out.write(ID);
+        out.write(Ascii.uuid(id, buffer), 0, 36);
+        out.write(MOVES);
+        Ascii.writeInt(game.getMoves(), buffer, out);
+        out.write(SCORE);
+        Ascii.writeInt(game.getScore(), buffer, out);
+        out.write(OVER);
+        out.write(game.isOver(false) ? TRUE : FALSE);
+        out.write(WON);
+        out.write(game.isWon() ? TRUE : FALSE);
+        out.write(TILES);
+        int size = game.getSize();
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                if (x > 0 || y > 0) {
+                    out.write(',');
+                }
+                Ascii.writeInt(game.getExponentAt(x, y), buffer, out);
+            }
+        }
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,26 @@
+package spw4.game2048;
+
+/**
+ * Receives every change of a {@link Game} made by playing it, e.g. to journal the game. Methods are called on the
+ * thread changing the game, right after the change.
+ * <p>
+ * Replacing tiles through {@link Game#setTiles(int[][])} or {@link Game#setBoard(long)} is not reported.
+ */
+public interface GameListener {
+
+    /**
+     * The game was restarted; all tiles were removed and score and moves reset.
+     */
+    void initialized();
+
+    /**
+     * A new tile was put on the empty cell {@code (x, y)}.
+     */
+    void tileSpawned(int x, int y, int exponent);
+
+    /**
+     * All tiles were moved in the given direction through {@link Game#move(Direction)}, or through
+     * {@link Game#tryMove(Direction)} if a tile could be moved.
+     */
+    void moved(Direction direction);
+}
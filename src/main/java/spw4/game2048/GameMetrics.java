@@ -0,0 +1,446 @@
+package spw4.game2048;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanRegistration;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Request counters, latency histograms and session gauges of the game server.
+ * <p>
+ * Recording only increments {@link LongAdder}s, so it allocates nothing and request threads do not contend; the
+ * gauges are read from the {@link SessionStore}, {@link GameExecutor} and {@link HintCache} when the metrics are
+ * read. The metrics are written in the Prometheus text format by {@link #writeTo(Writer)} and can be registered as an
+ * MXBean.
+ * <p>
+ * A latency is recorded by passing the result of {@link #start()} to the recording method when the work is done.
+ * Disabled metrics neither read the clock nor record anything, but still report the gauges.
+ */
+public class GameMetrics implements GameMetricsMXBean, MBeanRegistration {
+
+    /**
+     * Name the metrics are registered under by {@link #register()}.
+     */
+    public static final String OBJECT_NAME = "spw4.game2048:type=GameMetrics";
+
+    /**
+     * Actions of a request to the game page, counted separately.
+     */
+    public enum Action {
+        NEW, UP, DOWN, LEFT, RIGHT, BATCH, HINT, VIEW, OTHER;
+
+        /**
+         * Returns the action of the given {@code action} parameter; a missing one only views the game.
+         */
+        public static Action of(String action) {
+            switch (action == null ? "" : action) {
+                case "new":
+                    return NEW;
+                case "up":
+                    return UP;
+                case "down":
+                    return DOWN;
+                case "left":
+                    return LEFT;
+                case "right":
+                    return RIGHT;
+                case "batch":
+                    return BATCH;
+                case "hint":
+                    return HINT;
+                case "":
+                    return VIEW;
+                default:
+                    return OTHER;
+            }
+        }
+    }
+
+    private static final Action[] ACTIONS = Action.values();
+    private static final long RATE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final LongAdder[] requests = new LongAdder[ACTIONS.length];
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder moves = new LongAdder();
+    private final LatencyHistogram requestLatency = new LatencyHistogram();
+    private final LatencyHistogram moveLatency = new LatencyHistogram();
+    private final LatencyHistogram batchLatency = new LatencyHistogram();
+    private final LatencyHistogram renderLatency = new LatencyHistogram();
+
+    private final SessionStore games;
+    private final GameExecutor executor;
+    private final HintCache hints;
+    private final LongSupplier nanoTime;
+    private final boolean enabled;
+
+    private long rateStart;
+    private long rateStartMoves;
+    private double movesPerSecond;
+    /**
+     * Name this instance is registered under, cleared as soon as it is unregistered, also by another instance.
+     */
+    private volatile ObjectName registeredName;
+
+    /**
+     * Creates metrics for the given games; {@code executor} may be {@code null} if requests are processed
+     * synchronously, and {@code hints} if no hints are given.
+     */
+    public GameMetrics(SessionStore games, GameExecutor executor, HintCache hints, boolean enabled) {
+        this(games, executor, hints, enabled, System::nanoTime);
+    }
+
+    GameMetrics(SessionStore games, GameExecutor executor, HintCache hints, boolean enabled, LongSupplier nanoTime) {
+        this.games = games;
+        this.executor = executor;
+        this.hints = hints;
+        this.enabled = enabled;
+        this.nanoTime = nanoTime;
+        for (int i = 0; i < requests.length; i++) {
+            requests[i] = new LongAdder();
+        }
+        rateStart = nanoTime.getAsLong();
+    }
+
+    /**
+     * Returns the start time of some work to be recorded, in nanoseconds.
+     */
+    public long start() {
+        return enabled ? nanoTime.getAsLong() : 0;
+    }
+
+    /**
+     * Counts a processed request and records its latency.
+     */
+    public void request(Action action, long start) {
+        if (enabled) {
+            requests[action.ordinal()].increment();
+            requestLatency.record(nanoTime.getAsLong() - start);
+        }
+    }
+
+    /**
+     * Records the time to update a game for a move, and counts the move if the board changed.
+     */
+    public void move(boolean moved, long start) {
+        if (enabled) {
+            if (moved) {
+                moves.increment();
+            }
+            moveLatency.record(nanoTime.getAsLong() - start);
+        }
+    }
+
+    /**
+     * Records the time to apply a batch of moves, and counts the moves which changed the board.
+     */
+    public void batch(int moved, long start) {
+        if (enabled) {
+            moves.add(moved);
+            batchLatency.record(nanoTime.getAsLong() - start);
+        }
+    }
+
+    /**
+     * Records the time to render a game.
+     */
+    public void render(long start) {
+        if (enabled) {
+            renderLatency.record(nanoTime.getAsLong() - start);
+        }
+    }
+
+    /**
+     * Counts a request which failed with an exception.
+     */
+    public void error() {
+        if (enabled) {
+            errors.increment();
+        }
+    }
+
+    /**
+     * Counts a request which was rejected because the server was busy.
+     */
+    public void rejected() {
+        if (enabled) {
+            rejected.increment();
+        }
+    }
+
+    @Override
+    public Map<String, Long> getRequests() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Action action : ACTIONS) {
+            result.put(name(action), requests[action.ordinal()].sum());
+        }
+        return result;
+    }
+
+    public long getRequests(Action action) {
+        return requests[action.ordinal()].sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    @Override
+    public long getMoves() {
+        return moves.sum();
+    }
+
+    /**
+     * Returns the moves per second between the two latest reads which were at least a second apart, so readers
+     * polling at different rates do not disturb each other.
+     */
+    @Override
+    public synchronized double getMovesPerSecond() {
+        long now = nanoTime.getAsLong();
+        if (now - rateStart >= RATE_INTERVAL_NANOS) {
+            long current = moves.sum();
+            movesPerSecond = (current - rateStartMoves) * 1e9 / (now - rateStart);
+            rateStart = now;
+            rateStartMoves = current;
+        }
+        return movesPerSecond;
+    }
+
+    @Override
+    public int getSessions() {
+        return games.size();
+    }
+
+    @Override
+    public int getQueued() {
+        return executor == null ? 0 : executor.getQueued();
+    }
+
+    @Override
+    public long getSessionHits() {
+        return games.getHits();
+    }
+
+    @Override
+    public long getSessionMisses() {
+        return games.getMisses();
+    }
+
+    @Override
+    public long getSessionEvictions() {
+        return games.getEvictions();
+    }
+
+    @Override
+    public long getSessionExpirations() {
+        return games.getExpirations();
+    }
+
+    @Override
+    public long getHintHits() {
+        return hints == null ? 0 : hints.getHits();
+    }
+
+    @Override
+    public long getHintMisses() {
+        return hints == null ? 0 : hints.getMisses();
+    }
+
+    @Override
+    public long getHintCoalesced() {
+        return hints == null ? 0 : hints.getCoalesced();
+    }
+
+    @Override
+    public double getHintHitRate() {
+        return hints == null ? 0 : hints.getHitRate();
+    }
+
+    @Override
+    public double getHintSearchLatencyP50() {
+        return hints == null ? 0 : hints.getSearchLatency().getPercentile(50) / 1e3;
+    }
+
+    @Override
+    public double getHintSearchLatencyP99() {
+        return hints == null ? 0 : hints.getSearchLatency().getPercentile(99) / 1e3;
+    }
+
+    @Override
+    public double getRequestLatencyP50() {
+        return requestLatency.getPercentile(50) / 1e3;
+    }
+
+    @Override
+    public double getRequestLatencyP99() {
+        return requestLatency.getPercentile(99) / 1e3;
+    }
+
+    @Override
+    public double getMoveLatencyP50() {
+        return moveLatency.getPercentile(50) / 1e3;
+    }
+
+    @Override
+    public double getMoveLatencyP99() {
+        return moveLatency.getPercentile(99) / 1e3;
+    }
+
+    @Override
+    public double getBatchLatencyP50() {
+        return batchLatency.getPercentile(50) / 1e3;
+    }
+
+    @Override
+    public double getBatchLatencyP99() {
+        return batchLatency.getPercentile(99) / 1e3;
+    }
+
+    @Override
+    public double getRenderLatencyP50() {
+        return renderLatency.getPercentile(50) / 1e3;
+    }
+
+    @Override
+    public double getRenderLatencyP99() {
+        return renderLatency.getPercentile(99) / 1e3;
+    }
+
+    /**
+     * Writes all metrics in the Prometheus text format, latencies in seconds.
+     */
+    public void writeTo(Writer out) throws IOException {
+        out.write("# TYPE game2048_requests_total counter\n");
+        for (Action action : ACTIONS) {
+            write(out, "game2048_requests_total{action=\"" + name(action) + "\"}", requests[action.ordinal()].sum());
+        }
+        out.write("# TYPE game2048_errors_total counter\n");
+        write(out, "game2048_errors_total", getErrors());
+        out.write("# TYPE game2048_rejected_total counter\n");
+        write(out, "game2048_rejected_total", getRejected());
+        out.write("# TYPE game2048_moves_total counter\n");
+        write(out, "game2048_moves_total", getMoves());
+        out.write("# TYPE game2048_moves_per_second gauge\n");
+        write(out, "game2048_moves_per_second", getMovesPerSecond());
+        out.write("# TYPE game2048_sessions gauge\n");
+        write(out, "game2048_sessions", getSessions());
+        out.write("# TYPE game2048_queued_requests gauge\n");
+        write(out, "game2048_queued_requests", getQueued());
+        out.write("# TYPE game2048_session_lookups_total counter\n");
+        write(out, "game2048_session_lookups_total{result=\"hit\"}", getSessionHits());
+        write(out, "game2048_session_lookups_total{result=\"miss\"}", getSessionMisses());
+        out.write("# TYPE game2048_session_removals_total counter\n");
+        write(out, "game2048_session_removals_total{cause=\"evicted\"}", getSessionEvictions());
+        write(out, "game2048_session_removals_total{cause=\"expired\"}", getSessionExpirations());
+        writeSummary(out, "game2048_request_seconds", requestLatency);
+        writeSummary(out, "game2048_move_seconds", moveLatency);
+        writeSummary(out, "game2048_batch_seconds", batchLatency);
+        writeSummary(out, "game2048_render_seconds", renderLatency);
+        if (hints != null) {
+            out.write("# TYPE game2048_hints gauge\n");
+            write(out, "game2048_hints", hints.size());
+            out.write("# TYPE game2048_hint_lookups_total counter\n");
+            write(out, "game2048_hint_lookups_total{result=\"hit\"}", hints.getHits());
+            write(out, "game2048_hint_lookups_total{result=\"miss\"}", hints.getMisses());
+            write(out, "game2048_hint_lookups_total{result=\"coalesced\"}", hints.getCoalesced());
+            out.write("# TYPE game2048_hint_removals_total counter\n");
+            write(out, "game2048_hint_removals_total{cause=\"evicted\"}", hints.getEvictions());
+            write(out, "game2048_hint_removals_total{cause=\"expired\"}", hints.getExpirations());
+            writeSummary(out, "game2048_hint_search_seconds", hints.getSearchLatency());
+        }
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server, replacing metrics registered before, e.g. by a previous
+     * instance of the servlet.
+     */
+    public void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            try {
+                server.registerMBean(this, name);
+            } catch (InstanceAlreadyExistsException e) {
+                server.unregisterMBean(name);
+                server.registerMBean(this, name);
+            }
+            registeredName = name;
+        } catch (JMException e) {
+            throw new IllegalStateException("cannot register " + OBJECT_NAME, e);
+        }
+    }
+
+    /**
+     * Unregisters the metrics if they are still registered; metrics of another instance which replaced them are kept.
+     */
+    public void unregister() {
+        ObjectName name = registeredName;
+        if (name == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException e) {
+            // unregistered in the meantime
+        }
+    }
+
+    @Override
+    public ObjectName preRegister(MBeanServer server, ObjectName name) {
+        return name;
+    }
+
+    @Override
+    public void postRegister(Boolean registrationDone) {
+    }
+
+    @Override
+    public void preDeregister() {
+    }
+
+    /**
+     * Called whenever the metrics are unregistered, also when another instance replaces them in {@link #register()}.
+     */
+    @Override
+    public void postDeregister() {
+        registeredName = null;
+    }
+
+    private static String name(Action action) {
+        return action.name().toLowerCase(Locale.ROOT);
+    }
+
+    private static void writeSummary(Writer out, String name, LatencyHistogram histogram) throws IOException {
+        out.write("# TYPE " + name + " summary\n");
+        for (double quantile : new double[]{0.5, 0.9, 0.99, 0.999}) {
+            write(out, name + "{quantile=\"" + quantile + "\"}", histogram.getPercentile(quantile * 100) / 1e9);
+        }
+        write(out, name + "_sum", histogram.getSum() / 1e9);
+        write(out, name + "_count", histogram.getCount());
+        write(out, name + "_max", histogram.getMax() / 1e9);
+    }
+
+    private static void write(Writer out, String name, long value) throws IOException {
+        out.write(name + " " + value + "\n");
+    }
+
+    private static void write(Writer out, String name, double value) throws IOException {
+        out.write(name + " " + String.format(Locale.ROOT, "%.9g", value) + "\n");
+    }
+}
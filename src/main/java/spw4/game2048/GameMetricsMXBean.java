@@ -0,0 +1,66 @@
+package spw4.game2048;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link GameMetrics}, registered as {@value GameMetrics#OBJECT_NAME}. Latencies are in
+ * microseconds.
+ */
+public interface GameMetricsMXBean {
+
+    /**
+     * Returns the number of requests per action.
+     */
+    Map<String, Long> getRequests();
+
+    long getErrors();
+
+    long getRejected();
+
+    long getMoves();
+
+    double getMovesPerSecond();
+
+    int getSessions();
+
+    int getQueued();
+
+    long getSessionHits();
+
+    long getSessionMisses();
+
+    long getSessionEvictions();
+
+    long getSessionExpirations();
+
+    long getHintHits();
+
+    long getHintMisses();
+
+    long getHintCoalesced();
+
+    /**
+     * Returns the share of hints answered without a search of their own.
+     */
+    double getHintHitRate();
+
+    double getHintSearchLatencyP50();
+
+    double getHintSearchLatencyP99();
+
+    double getRequestLatencyP50();
+
+    double getRequestLatencyP99();
+
+    double getMoveLatencyP50();
+
+    double getMoveLatencyP99();
+
+    double getBatchLatencyP50();
+
+    double getBatchLatencyP99();
+
+    double getRenderLatencyP50();
+
+    double getRenderLatencyP99();
+}
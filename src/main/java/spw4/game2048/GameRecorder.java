@@ -0,0 +1,119 @@
+package spw4.game2048;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Records a game into a {@link Recording} while it is played.
+ * <p>
+ * Every time the game is initialized, the recorder replaces {@link Game#random} by a {@link StatefulRandom} with a
+ * fresh seed and starts a new recording. The game has to be played in turns, see {@link Recording}, and must draw
+ * its tiles from {@link Game#random}, i.e. it must not have a {@link Game#setSpawner(TileSpawner) spawner}.
+ * A turn which neither spawns nor moves a tile, like a blocked move on a full board, leaves no trace.
+ */
+public class GameRecorder implements GameListener {
+
+    /**
+     * Number of tiles spawned by {@link Game#initialize()}.
+     */
+    private static final int INITIAL_TILES = 2;
+
+    private final Game game;
+    private final SplittableRandom seeds;
+
+    private long seed;
+    private byte[] directions = new byte[64];
+    private int turns;
+    private int[] idleTurns = new int[8];
+    private int idleCount;
+    private int initialTiles;
+    /**
+     * Whether a tile was spawned in the current turn, which has not been moved yet.
+     */
+    private boolean spawned;
+    /**
+     * Whether the board had empty cells after the last move, so the next turn has to start with a spawn.
+     */
+    private boolean spawnExpected;
+
+    public GameRecorder(Game game, long seed) {
+        this.game = game;
+        this.seeds = new SplittableRandom(seed);
+    }
+
+    /**
+     * Attaches a new recorder to the game and starts the game anew.
+     *
+     * @param seed seed of the generator drawing the seeds of the recorded games
+     */
+    public static GameRecorder record(Game game, long seed) {
+        GameRecorder recorder = new GameRecorder(game, seed);
+        game.setSpawner(null);
+        game.setListener(recorder);
+        game.initialize();
+        return recorder;
+    }
+
+    /**
+     * Returns the recording of the game so far; a tile spawned for the current turn is recorded as idle turn.
+     */
+    public Recording getRecording() {
+        int[] idle = Arrays.copyOf(idleTurns, idleCount + (spawned ? 1 : 0));
+        if (spawned) {
+            idle[idleCount] = turns;
+        }
+        return new Recording(game.getSize(), game.getWinScore(), seed,
+                Arrays.copyOf(directions, (turns + 4) / 4), turns + (spawned ? 1 : 0), idle);
+    }
+
+    @Override
+    public void initialized() {
+        seed = seeds.nextLong();
+        game.random = new StatefulRandom(seed);
+        turns = 0;
+        idleCount = 0;
+        initialTiles = 0;
+        spawned = false;
+        spawnExpected = false;
+        Arrays.fill(directions, (byte) 0);
+    }
+
+    @Override
+    public void tileSpawned(int x, int y, int exponent) {
+        if (initialTiles < INITIAL_TILES) {
+            initialTiles++;
+            spawnExpected = true;
+            return;
+        }
+        if (spawned) {
+            // the previous turn spawned a tile, but nothing moved
+            if (idleCount == idleTurns.length) {
+                idleTurns = Arrays.copyOf(idleTurns, 2 * idleCount);
+            }
+            idleTurns[idleCount++] = turns++;
+            ensureCapacity();
+        }
+        spawned = true;
+    }
+
+    /**
+     * @throws IllegalStateException if the game is not played in turns, i.e. moved without a spawn before
+     */
+    @Override
+    public void moved(Direction direction) {
+        if (spawnExpected && !spawned) {
+            throw new IllegalStateException("a turn has to start with isOver(true)");
+        }
+        directions[turns >>> 2] |= (byte) (direction.ordinal() << (2 * (turns & 3)));
+        turns++;
+        ensureCapacity();
+        spawned = false;
+        spawnExpected = game.getEmptyCount() > 0;
+    }
+
+    private void ensureCapacity() {
+        if (turns >>> 2 == directions.length) {
+            directions = Arrays.copyOf(directions, 2 * directions.length);
+        }
+    }
+}
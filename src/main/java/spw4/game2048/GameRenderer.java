@@ -0,0 +1,21 @@
+package spw4.game2048;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.UUID;
+
+/**
+ * Writes the state of a game to a response.
+ */
+public interface GameRenderer {
+
+    /**
+     * Content type of the written representation.
+     */
+    String getContentType();
+
+    /**
+     * Writes the state of {@code game} with the given id to {@code out}.
+     */
+    void render(UUID id, Game game, OutputStream out) throws IOException;
+}
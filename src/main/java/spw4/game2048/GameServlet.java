@@ -1,159 +1,586 @@
 package spw4.game2048;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.util.HashMap;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
-@WebServlet("/Game")
+/**
+ * Serves the game pages and registers the games for {@link GameSocket}, so it is loaded on startup.
+ * <p>
+ * If the container supports it, requests are processed asynchronously by a {@link GameExecutor}, which keeps the
+ * requests for one game in order and answers with 503 when its queues are full, so slow requests do not tie up the
+ * container's threads. A request still queued when the container's async timeout expires is answered with 503 as
+ * well and not processed any more.
+ * <p>
+ * Bots and replays can play many moves in one request with {@code action=batch&moves=UDLR...}: the moves are applied
+ * in order under one lookup and one lock, as if each was requested on its own, and the answer is the final state as
+ * JSON together with the score gained by each move, see {@link GameJson#renderBatch}. Moves after the game is over
+ * are not applied and get no score.
+ * <p>
+ * {@code action=hint} answers the state as JSON together with a suggested move. 4x4 boards are searched by a
+ * {@link Solver} within a time budget, and the results are kept in a {@link HintCache}, which also lets concurrent
+ * requests for the same board share one search. 3x3 games are answered from a {@link Tablebase} if one is configured
+ * for their winning tile. The game is only locked while its position is copied and its state rendered, not during
+ * the search, so a long search does not block other requests, the sweeper or the journal on that game.
+ * <p>
+ * Request counts, latencies and session gauges are served in the Prometheus text format at {@code /metrics} and
+ * registered as the MXBean {@value GameMetrics#OBJECT_NAME}.
+ */
+@WebServlet(urlPatterns = {"/Game", GameServlet.METRICS_PATH}, loadOnStartup = 1, asyncSupported = true)
 public class GameServlet extends HttpServlet {
-    private HashMap<UUID, Game> games;
+    /**
+     * Period in seconds in which idle games are expired.
+     */
+    private static final long SWEEP_PERIOD_SECONDS = 60;
+    /**
+     * System property naming the directory games are journaled to; games are only kept in memory if it is not set.
+     */
+    static final String JOURNAL_PROPERTY = "game2048.journal";
+    /**
+     * System property selecting where games are kept: {@code heap} (default) or {@code offheap}.
+     */
+    static final String SESSIONS_PROPERTY = "game2048.sessions";
+    /**
+     * System property naming a file the off-heap games are mapped to, so they survive a restart; games are kept in
+     * direct memory if it is not set.
+     */
+    static final String SESSIONS_FILE_PROPERTY = "game2048.sessions.file";
+    /**
+     * System property with the size of the largest board of off-heap games, {@link Game#SIZE} if not set; larger
+     * boards take more bytes per game.
+     */
+    static final String SESSIONS_BOARD_SIZE_PROPERTY = "game2048.sessions.boardSize";
+    /**
+     * System property with the maximum number of games, {@link GameSessions#DEFAULT_MAX_SIZE} if not set.
+     */
+    static final String MAX_SESSIONS_PROPERTY = "game2048.sessions.max";
+    /**
+     * System property with the number of threads processing requests asynchronously, the number of processors if
+     * not set; {@code 0} processes requests on the container's threads.
+     */
+    static final String ASYNC_THREADS_PROPERTY = "game2048.async.threads";
+    /**
+     * System property with the number of requests each game queues before further requests for it are rejected,
+     * {@link #DEFAULT_ASYNC_QUEUE} if not set; all games together queue up to this number per thread.
+     */
+    static final String ASYNC_QUEUE_PROPERTY = "game2048.async.queue";
+    static final int DEFAULT_ASYNC_QUEUE = 256;
+    /**
+     * System property which disables recording request counts and latencies if set to {@code false}.
+     */
+    static final String METRICS_PROPERTY = "game2048.metrics";
+    static final String METRICS_PATH = "/metrics";
+    /**
+     * Maximum number of moves in one batch, which bounds the time a game is locked.
+     */
+    static final int MAX_BATCH_MOVES = 10_000;
+    /**
+     * Smallest winning tile of a new game, above any spawned tile.
+     */
+    static final int MIN_TARGET = 8;
+    /**
+     * System property with the time budget of a hint search in milliseconds,
+     * {@link Solver#DEFAULT_TIME_BUDGET_MILLIS} if not set.
+     */
+    static final String HINT_BUDGET_PROPERTY = "game2048.hint.budget";
+    /**
+     * System property with the maximum number of boards whose hints are cached, {@link HintCache#DEFAULT_MAX_SIZE} if
+     * not set.
+     */
+    static final String HINT_CACHE_PROPERTY = "game2048.hint.cache";
+    /**
+     * System property naming a file written by {@link TablebaseGenerator}, which answers hints for 3x3 games.
+     */
+    static final String TABLEBASE_PROPERTY = "game2048.tablebase";
+    /**
+     * Seconds a client is asked to wait before retrying a rejected request.
+     */
+    private static final String RETRY_AFTER_SECONDS = "1";
+    /**
+     * Period in seconds in which the journal writes a snapshot of all games.
+     */
+    private static final long SNAPSHOT_PERIOD_SECONDS = 300;
+
+    /**
+     * Per-thread buffer a page is rendered into while the game is locked.
+     */
+    private static final ThreadLocal<ByteArrayOutputStream> PAGE_BUFFER =
+            ThreadLocal.withInitial(() -> new ByteArrayOutputStream(8192));
+
+    private SessionStore games;
+    private GameJournal journal;
+    private GameExecutor executor;
+    private GameMetrics metrics;
+    private HintCache hints;
+    private Tablebase tablebase;
+    private GameTemplate template;
+    private GameJson json;
 
     @Override
     public void init() throws ServletException {
         super.init();
-        games = new HashMap<>();
+        template = new GameTemplate();
+        json = new GameJson();
+        games = createSessions();
+        String journalDirectory = System.getProperty(JOURNAL_PROPERTY);
+        if (journalDirectory != null) {
+            if (!(games instanceof GameSessions)) {
+                throw new ServletException("only games kept on the heap can be journaled");
+            }
+            try {
+                journal = new GameJournal(Paths.get(journalDirectory));
+                journal.recover((GameSessions) games);
+            } catch (IOException e) {
+                throw new ServletException("cannot recover games from " + journalDirectory, e);
+            }
+            journal.startCompaction(SNAPSHOT_PERIOD_SECONDS, TimeUnit.SECONDS);
+        }
+        games.startSweeper(SWEEP_PERIOD_SECONDS, TimeUnit.SECONDS);
+        int threads = Integer.getInteger(ASYNC_THREADS_PROPERTY, Runtime.getRuntime().availableProcessors());
+        if (threads > 0) {
+            executor = new GameExecutor(threads, Integer.getInteger(ASYNC_QUEUE_PROPERTY, DEFAULT_ASYNC_QUEUE));
+        }
+        hints = createHints();
+        String tablebaseFile = System.getProperty(TABLEBASE_PROPERTY);
+        if (tablebaseFile != null) {
+            try {
+                tablebase = Tablebase.open(Paths.get(tablebaseFile));
+            } catch (IOException e) {
+                throw new ServletException("cannot open tablebase " + tablebaseFile, e);
+            }
+        }
+        metrics = new GameMetrics(games, executor, hints,
+                Boolean.parseBoolean(System.getProperty(METRICS_PROPERTY, "true")));
+        metrics.register();
+        GameSocket.register(games);
+    }
+
+    @Override
+    public void destroy() {
+        GameSocket.register(null);
+        metrics.unregister();
+        if (executor != null) {
+            executor.close();
+        }
+        games.close();
+        if (journal != null) {
+            journal.close();
+        }
+        super.destroy();
     }
 
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
-        response.setContentType("text/html");
-        PrintWriter writer = response.getWriter();
+        if (METRICS_PATH.equals(request.getServletPath())) {
+            writeMetrics(response);
+            return;
+        }
+        if (executor == null || !request.isAsyncSupported()) {
+            process(request, response);
+            return;
+        }
+        AsyncContext async = request.startAsync();
+        // claimed by whoever answers first: the executor running the request, or the container timing it out
+        AtomicBoolean answered = new AtomicBoolean();
+        async.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent event) throws IOException {
+                if (answered.compareAndSet(false, true)) {
+                    // still queued, it is dropped instead of being processed for a client which gave up
+                    reject(response);
+                    async.complete();
+                }
+            }
+
+            @Override
+            public void onComplete(AsyncEvent event) {
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                answered.set(true);
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+        try {
+            // requests for the same game are processed in order; requests without an id in any order
+            executor.execute(request.getParameter("id"), () -> {
+                if (!answered.compareAndSet(false, true)) {
+                    return;
+                }
+                try {
+                    process(request, response);
+                } catch (IOException e) {
+                    // the client has gone away, there is no one left to answer
+                } finally {
+                    complete(async);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            answered.set(true);
+            reject(response);
+            async.complete();
+        }
+    }
+
+    private void reject(HttpServletResponse response) throws IOException {
+        metrics.rejected();
+        response.setHeader("Retry-After", RETRY_AFTER_SECONDS);
+        response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "too many requests");
+    }
+
+    private static void complete(AsyncContext async) {
+        try {
+            async.complete();
+        } catch (IllegalStateException e) {
+            // the container timed the request out while it was processed and has answered it already
+        }
+    }
+
+    private void process(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long start = metrics.start();
+        String action = request.getParameter("action");
+        if (action == null) action = "";
+        try {
+            process(request, response, action);
+        } finally {
+            metrics.request(GameMetrics.Action.of(action), start);
+        }
+    }
+
+    private void process(HttpServletRequest request, HttpServletResponse response, String action) throws IOException {
+        GameRenderer renderer = "json".equals(request.getParameter("format")) || "batch".equals(action)
+                || "hint".equals(action) ? json : template;
+        response.setContentType(renderer.getContentType());
+        OutputStream out = response.getOutputStream();
 
         try {
-            String action = request.getParameter("action");
-            if (action == null) action = "";
 
             if ("new".equals(action)) {
-                UUID id = UUID.randomUUID();
-                Game newGame = new Game();
-                newGame.initialize();
-                games.put(id, newGame);
-                writer.println(game2Html(id, newGame));
+                int size = intParameter(request, "size", Game.SIZE);
+                int target = intParameter(request, "target", Game.WIN_SCORE);
+                if (!isValidGame(size, target) || size > games.getMaxBoardSize()) {
+                    metrics.error();
+                    response.sendError(HttpServletResponse.SC_BAD_REQUEST, "invalid size or target");
+                    return;
+                }
+                UUID id = games.create(size, target);
+                writePage(id, game -> { }, renderer, out);
                 return;
             }
 
             String idString = request.getParameter("id");
+            if (idString != null && "batch".equals(action)) {
+                if (!writeBatch(UUID.fromString(idString), directions(request.getParameter("moves")), out)) {
+                    writeLine("unknown game", out);
+                }
+                return;
+            }
+            if (idString != null && "hint".equals(action)) {
+                if (!writeHint(UUID.fromString(idString), out)) {
+                    writeLine("unknown game", out);
+                }
+                return;
+            }
             if (idString != null) {
                 UUID id = UUID.fromString(idString);
-                Game game = games.get(id);
-
-                if (!game.isOver(true)) {
-                    switch (action) {
-                        case "up":
-                            game.move(Direction.up);
-                            break;
-                        case "down":
-                            game.move(Direction.down);
-                            break;
-                        case "left":
-                            game.move(Direction.left);
-                            break;
-                        case "right":
-                            game.move(Direction.right);
-                            break;
+                Direction direction = direction(action);
+                boolean found = writePage(id, game -> {
+                    if (!game.isOver(true) && direction != null) {
+                        long start = metrics.start();
+                        boolean moved = game.tryMove(direction) != Game.NO_CHANGE;
+                        metrics.move(moved, start);
                     }
-                }
+                }, renderer, out);
 
-                writer.println(game2Html(id, games.get(id)));
+                if (!found) {
+                    writeLine("unknown game", out);
+                }
                 return;
             }
 
-            writer.println("invalid request");
+            writeLine("invalid request", out);
         }
         catch (Throwable t) {
-            writer.println(t.toString());
-        }
-    }
-
-    private String game2Html(UUID id, Game game) {
-        StringBuffer sb = new StringBuffer();
-
-        sb.append("<!DOCTYPE html>\n");
-        sb.append("<html lang=\"en\">\n");
-        sb.append("<head>\n");
-        sb.append("    <meta charset=\"UTF-8\">\n");
-        sb.append("    <title>2048</title>\n");
-        sb.append("    <link href=\"css/bootstrap.min.css\" rel=\"stylesheet\"/>\n");
-        sb.append("    <link href=\"icons/bootstrap-icons.css\" rel=\"stylesheet\"/>\n");
-        sb.append("    <script src=\"js/bootstrap.min.js\"></script>\n");
-        sb.append("</head>\n");
-        sb.append("<body>\n");
-        sb.append("    <h1 class=\"m-5 text-center\">Play 2048:</h1>\n");
-        sb.append("\n");
-        sb.append("    <div class=\"row\">\n");
-        sb.append("        <div class=\"col-4\"></div>\n");
-        sb.append("        <div class=\"col\">\n");
-        sb.append("            <div class=\"row\">\n");
-        sb.append("                <div class=\"col text-center pb-4\"><h5>Moves: " + game.getMoves() + "</h5></div>\n");
-        sb.append("                <div class=\"col text-center pb-4\"><h5>Score: " + game.getScore() + "</h5></div>\n");
-        sb.append("            </div>\n");
-        if (game.isOver(false) && game.isWon()) {
-            sb.append("            <div class=\"row\">\n");
-            sb.append("                <div class=\"col text-center pb-4\"><h1><span class=\"badge badge-success w-75\">YOU WIN</span></h1></div>\n");
-            sb.append("            </div>\n");
-        } else if (game.isOver(false) && !game.isWon()) {
-            sb.append("            <div class=\"row\">\n");
-            sb.append("                <div class=\"col text-center pb-4\"><h1><span class=\"badge badge-danger w-75\">YOU LOSE</span></h1></div>\n");
-            sb.append("            </div>\n");
-        }
-        sb.append("            <div class=\"row\">\n");
-        sb.append("                <div class=\"col-2\"></div>\n");
-        sb.append("                <div class=\"col text-center pb-4\"><a role=\"button\" class=\"btn btn-secondary\" href=\"Game?id=" + id + "&action=up\"><i class=\"bi-arrow-up\"></i></a></div>\n");
-        sb.append("                <div class=\"col-2\"></div>\n");
-        sb.append("            </div>\n");
-        sb.append("            <div class=\"row\">\n");
-        sb.append("                <div class=\"col-2 my-auto text-right\"><a role=\"button\" class=\"btn btn-secondary\" href=\"Game?id=" + id + "&action=left\"><i class=\"bi-arrow-left\"></i></a></div>\n");
-        sb.append("                <div class=\"col\">\n");
-        sb.append("                    <div class=\"container text-center bg-secondary\">\n");
-        sb.append("                        <div class=\"row\">\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\">" + game.getValueAt(0, 0) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\">" + game.getValueAt(0, 1) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\">" + game.getValueAt(0, 2) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 mr-1 bg-light\">" + game.getValueAt(0, 3) + "</div>\n");
-        sb.append("                        </div>\n");
-        sb.append("                        <div class=\"row\">\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\">" + game.getValueAt(1, 0) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\">" + game.getValueAt(1, 1) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\">" + game.getValueAt(1, 2) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 mr-1 bg-light\">" + game.getValueAt(1, 3) + "</div>\n");
-        sb.append("                        </div>\n");
-        sb.append("                        <div class=\"row\">\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\">" + game.getValueAt(2, 0) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\">" + game.getValueAt(2, 1) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\">" + game.getValueAt(2, 2) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 mr-1 bg-light\">" + game.getValueAt(2, 3) + "</div>\n");
-        sb.append("                        </div>\n");
-        sb.append("                        <div class=\"row\">\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 mb-1 bg-light\">" + game.getValueAt(3, 0) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 mb-1 bg-light\">" + game.getValueAt(3, 1) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 mb-1 bg-light\">" + game.getValueAt(3, 2) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 mb-1 mr-1 bg-light\">" + game.getValueAt(3, 3) + "</div>\n");
-        sb.append("                        </div>\n");
-        sb.append("                    </div>\n");
-        sb.append("                </div>\n");
-        sb.append("                <div class=\"col-2 my-auto\"><a role=\"button\" class=\"btn btn-secondary\" href=\"Game?id=" + id + "&action=right\"><i class=\"bi-arrow-right\"></i></a></div>\n");
-        sb.append("            </div>\n");
-        sb.append("            <div class=\"row\">\n");
-        sb.append("                <div class=\"col-2\"></div>\n");
-        sb.append("                <div class=\"col text-center pt-4\"><a role=\"button\" class=\"btn btn-secondary\" href=\"Game?id=" + id + "&action=down\"><i class=\"bi-arrow-down\"></i></a></div>\n");
-        sb.append("                <div class=\"col-2\"></div>\n");
-        sb.append("            </div>\n");
-        sb.append("            <div class=\"row\">\n");
-        sb.append("                <div class=\"col text-center pt-4\"><a role=\"button\" class=\"btn btn-danger w-75\" href=\"Game?action=new\">New Game</a></div>\n");
-        sb.append("                <div class=\"col text-center pt-4\"><a role=\"button\" class=\"btn btn-info w-75\" href=\"Game?id=" + id + "\">Refresh</a></div>\n");
-        sb.append("            </div>\n");
-        sb.append("        </div>\n");
-        sb.append("        <div class=\"col-4\"></div>\n");
-        sb.append("    </div>\n");
-        sb.append("</body>\n");
-        sb.append("</html>\n");
-
-        return sb.toString();
+            metrics.error();
+            writeLine(t.toString(), out);
+        }
+    }
+
+    SessionStore getGames() {
+        return games;
+    }
+
+    GameExecutor getExecutor() {
+        return executor;
+    }
+
+    GameMetrics getMetrics() {
+        return metrics;
+    }
+
+    HintCache getHints() {
+        return hints;
+    }
+
+    private static HintCache createHints() {
+        long budget = Long.getLong(HINT_BUDGET_PROPERTY, Solver.DEFAULT_TIME_BUDGET_MILLIS);
+        // searches share one table, which is safe for concurrent use; solvers themselves are not. A search starting
+        // while another one runs makes the entries of the running one replaceable, which only costs hits
+        TranspositionTable table = new TranspositionTable(Solver.DEFAULT_TABLE_CAPACITY);
+        return new HintCache(Integer.getInteger(HINT_CACHE_PROPERTY, HintCache.DEFAULT_MAX_SIZE),
+                HintCache.DEFAULT_TTL_MINUTES, TimeUnit.MINUTES,
+                board -> new Solver(Solver.DEFAULT_MAX_DEPTH, budget, table).bestMove(board));
+    }
+
+    private static SessionStore createSessions() throws ServletException {
+        int maxSize = Integer.getInteger(MAX_SESSIONS_PROPERTY, GameSessions.DEFAULT_MAX_SIZE);
+        String kind = System.getProperty(SESSIONS_PROPERTY, "heap");
+        switch (kind) {
+            case "heap":
+                return new GameSessions(maxSize, GameSessions.DEFAULT_IDLE_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+            case "offheap":
+                String file = System.getProperty(SESSIONS_FILE_PROPERTY);
+                int boardSize = Integer.getInteger(SESSIONS_BOARD_SIZE_PROPERTY, Game.SIZE);
+                if (boardSize < Board.MIN_SIZE || boardSize > Board.MAX_SIZE) {
+                    throw new ServletException("unsupported " + SESSIONS_BOARD_SIZE_PROPERTY + ": " + boardSize);
+                }
+                if (file == null) {
+                    return new OffHeapSessions(maxSize, boardSize, GameSessions.DEFAULT_IDLE_TIMEOUT_MINUTES,
+                            TimeUnit.MINUTES);
+                }
+                try {
+                    return new OffHeapSessions(maxSize, boardSize, GameSessions.DEFAULT_IDLE_TIMEOUT_MINUTES,
+                            TimeUnit.MINUTES, Paths.get(file));
+                } catch (IOException e) {
+                    throw new ServletException("cannot open games in " + file, e);
+                }
+            default:
+                throw new ServletException("unknown " + SESSIONS_PROPERTY + ": " + kind);
+        }
+    }
+
+    /**
+     * Returns whether a new game can be started on a board of this size with this winning tile: the size has to be
+     * supported by {@link Board#of(int)}, the target a power of two from {@link #MIN_TARGET} up to the largest tile.
+     */
+    static boolean isValidGame(int size, int target) {
+        return size >= Board.MIN_SIZE && size <= Board.MAX_SIZE
+                && Integer.bitCount(target) == 1 && target >= MIN_TARGET && target <= 1 << Bitboard.MAX_EXPONENT;
+    }
+
+    /**
+     * Returns the parameter as a number, {@code defaultValue} if it is missing or -1 if it is no number.
+     */
+    private static int intParameter(HttpServletRequest request, String name, int defaultValue) {
+        String value = request.getParameter(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Runs {@code update} on the game with the given id and renders the resulting state while the game is locked,
+     * then writes it to {@code out} after the lock has been released.
+     *
+     * @return {@code false} if no game with this id exists
+     */
+    private boolean writePage(UUID id, Consumer<Game> update, GameRenderer renderer, OutputStream out)
+            throws IOException {
+        ByteArrayOutputStream page = PAGE_BUFFER.get();
+        page.reset();
+        Boolean found = games.withGame(id, game -> {
+            update.accept(game);
+            long start = metrics.start();
+            try {
+                renderer.render(id, game, page);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            metrics.render(start);
+            return true;
+        });
+        if (found == null) {
+            return false;
+        }
+        page.writeTo(out);
+        return true;
+    }
+
+    /**
+     * Plays the given moves on the game with the given id like single requests would, and writes the final state
+     * together with the score gained by every move.
+     *
+     * @return {@code false} if no game with this id exists
+     */
+    private boolean writeBatch(UUID id, Direction[] directions, OutputStream out) throws IOException {
+        int[] deltas = new int[directions.length];
+        ByteArrayOutputStream page = PAGE_BUFFER.get();
+        page.reset();
+        Boolean found = games.withGame(id, game -> {
+            long start = metrics.start();
+            int played = 0;
+            int moved = 0;
+            if (directions.length == 0) {
+                // like every request, put the pending tile, even if there is no move to play
+                game.isOver(true);
+            }
+            while (played < directions.length && !game.isOver(true)) {
+                long result = game.tryMove(directions[played]);
+                if (result != Game.NO_CHANGE) {
+                    deltas[played] = Game.scoreDelta(result);
+                    moved++;
+                }
+                played++;
+            }
+            metrics.batch(moved, start);
+            start = metrics.start();
+            try {
+                json.renderBatch(id, game, deltas, played, page);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            metrics.render(start);
+            return true;
+        });
+        if (found == null) {
+            return false;
+        }
+        page.writeTo(out);
+        return true;
+    }
+
+    /**
+     * Writes the state of the game with the given id together with the best move from the position its next move
+     * starts from.
+     *
+     * @return {@code false} if no game with this id exists
+     */
+    private boolean writeHint(UUID id, OutputStream out) throws IOException {
+        ByteArrayOutputStream page = PAGE_BUFFER.get();
+        page.reset();
+        Supplier<Direction> search = games.withGame(id, game -> {
+            // like every request, put the pending tile first
+            Supplier<Direction> position = game.isOver(true) ? () -> null : hint(game);
+            long start = metrics.start();
+            try {
+                json.renderHintState(id, game, page);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            metrics.render(start);
+            return position;
+        });
+        if (search == null) {
+            return false;
+        }
+        // the search only reads the copied position, so the game is not locked while it runs
+        json.renderHintMove(search.get(), page);
+        page.writeTo(out);
+        return true;
+    }
+
+    /**
+     * Returns the search for the best move from the current position of the game, which answers {@code null} if
+     * there is no hint for its board size. The search works on a copy of the position and does not touch the game.
+     */
+    private Supplier<Direction> hint(Game game) {
+        if (game.getSize() == Game.SIZE) {
+            long board = game.getBoard();
+            return () -> hints.get(board);
+        }
+        if (tablebase != null && game.getSize() == SmallBitboard.SIZE
+                && game.getWinScore() == tablebase.getWinScore()) {
+            int[][] tiles = game.getTiles();
+            return () -> tablebase.bestMove(tiles);
+        }
+        return () -> null;
+    }
+
+    /**
+     * Parses a batch of moves, one letter {@code U}, {@code D}, {@code L} or {@code R} per move.
+     *
+     * @throws IllegalArgumentException if there is any other character or too many moves
+     */
+    private static Direction[] directions(String moves) {
+        if (moves == null || moves.length() > MAX_BATCH_MOVES) {
+            throw new IllegalArgumentException("expected up to " + MAX_BATCH_MOVES + " moves");
+        }
+        Direction[] directions = new Direction[moves.length()];
+        for (int i = 0; i < directions.length; i++) {
+            switch (moves.charAt(i)) {
+                case 'U':
+                    directions[i] = Direction.up;
+                    break;
+                case 'D':
+                    directions[i] = Direction.down;
+                    break;
+                case 'L':
+                    directions[i] = Direction.left;
+                    break;
+                case 'R':
+                    directions[i] = Direction.right;
+                    break;
+                default:
+                    throw new IllegalArgumentException("invalid move " + moves.charAt(i));
+            }
+        }
+        return directions;
+    }
+
+    private static void writeLine(String text, OutputStream out) throws IOException {
+        out.write((text + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void writeMetrics(HttpServletResponse response) throws IOException {
+        response.setContentType("text/plain; version=0.0.4; charset=utf-8");
+        Writer out = new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8);
+        metrics.writeTo(out);
+        out.flush();
+    }
+
+    /**
+     * Returns the direction of a move action, {@code null} for any other action.
+     */
+    private static Direction direction(String action) {
+        switch (action) {
+            case "up":
+                return Direction.up;
+            case "down":
+                return Direction.down;
+            case "left":
+                return Direction.left;
+            case "right":
+                return Direction.right;
+            default:
+                return null;
+        }
     }
 }
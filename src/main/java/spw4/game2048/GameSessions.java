@@ -0,0 +1,286 @@
+package spw4.game2048;
+
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Thread-safe registry of all games played on the server.
+ * <p>
+ * Lookups and inserts go through a {@link ConcurrentHashMap}, so request threads never contend on a global lock.
+ * Every access to a game itself runs while holding that game's monitor: concurrent requests for the same game are
+ * serialized and no move gets lost, while different games are played in parallel.
+ * <p>
+ * The registry is bounded in two ways. Games which have not been accessed for longer than the idle timeout are
+ * expired by {@link #sweep()}, which a background thread started by {@link #startSweeper(long, TimeUnit)} calls
+ * periodically. When {@link #create()} exceeds the maximum number of games, the least recently used games are
+ * evicted by a CLOCK (second chance) scan over the registration order, an LRU approximation which needs no lock
+ * and only a flag write per access.
+ * <p>
+ * With a {@link GameJournal} attached, new, removed, evicted and expired games are journaled, so the registry can be
+ * recovered after a restart.
+ */
+public class GameSessions implements SessionStore {
+
+    /**
+     * Default maximum number of games kept at the same time.
+     */
+    public static final int DEFAULT_MAX_SIZE = 100_000;
+    /**
+     * Default time in minutes after which a game which has not been accessed expires.
+     */
+    public static final long DEFAULT_IDLE_TIMEOUT_MINUTES = 30;
+
+    private final ConcurrentMap<UUID, Session> games = new ConcurrentHashMap<>();
+    /**
+     * Ids in registration order; the head is the next candidate for eviction.
+     */
+    private final Queue<UUID> clock = new ConcurrentLinkedQueue<>();
+    private final int maxSize;
+    private final long idleTimeoutNanos;
+    private final LongSupplier nanoTime;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    private ScheduledExecutorService sweeper;
+    private volatile GameJournal journal;
+
+    public GameSessions() {
+        this(DEFAULT_MAX_SIZE, DEFAULT_IDLE_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+    }
+
+    public GameSessions(int maxSize, long idleTimeout, TimeUnit unit) {
+        this(maxSize, idleTimeout, unit, System::nanoTime);
+    }
+
+    GameSessions(int maxSize, long idleTimeout, TimeUnit unit, LongSupplier nanoTime) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.maxSize = maxSize;
+        this.idleTimeoutNanos = unit.toNanos(idleTimeout);
+        this.nanoTime = nanoTime;
+    }
+
+    @Override
+    public UUID create(int size, int winScore) {
+        Game game = new Game(size, winScore);
+        UUID id = UUID.randomUUID();
+        GameJournal journal = this.journal;
+        if (journal != null) {
+            journal.created(id, game);
+        }
+        register(id, game);
+        return id;
+    }
+
+    @Override
+    public <T> T withGame(UUID id, Function<? super Game, ? extends T> action) {
+        Session session = games.get(id);
+        if (session == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        session.touch(nanoTime.getAsLong());
+        synchronized (session.game) {
+            return action.apply(session.game);
+        }
+    }
+
+    @Override
+    public boolean remove(UUID id) {
+        if (games.remove(id) == null) {
+            return false;
+        }
+        journalRemoved(id);
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return games.size();
+    }
+
+    /**
+     * Expires all games which have been idle for longer than the idle timeout and drops ids of removed games
+     * from the eviction order. Runs in time linear to the number of games, so it should not be called on
+     * request threads; see {@link #startSweeper(long, TimeUnit)}.
+     *
+     * @return number of expired games
+     */
+    @Override
+    public int sweep() {
+        long now = nanoTime.getAsLong();
+        int expired = 0;
+        for (int i = clock.size(); i > 0; i--) {
+            UUID id = clock.poll();
+            if (id == null) {
+                break;
+            }
+            Session session = games.get(id);
+            if (session == null) {
+                continue;
+            }
+            if (now - session.lastAccess > idleTimeoutNanos) {
+                if (games.remove(id, session)) {
+                    journalRemoved(id);
+                    expirations.increment();
+                    expired++;
+                }
+            } else {
+                clock.add(id);
+            }
+        }
+        return expired;
+    }
+
+    @Override
+    public synchronized void startSweeper(long period, TimeUnit unit) {
+        if (sweeper != null) {
+            throw new IllegalStateException("sweeper already started");
+        }
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "game-sessions-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweep, period, period, unit);
+    }
+
+    /**
+     * Stops the sweeper thread, if it was started.
+     */
+    @Override
+    public synchronized void close() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+            sweeper = null;
+        }
+    }
+
+    @Override
+    public long getHits() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public long getExpirations() {
+        return expirations.sum();
+    }
+
+    /**
+     * Attaches the journal which records new and removed games from now on.
+     */
+    void setJournal(GameJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Returns the game with the given id without counting it as an access, or {@code null}.
+     */
+    Game peek(UUID id) {
+        Session session = games.get(id);
+        return session == null ? null : session.game;
+    }
+
+    /**
+     * Registers a recovered game under its former id, evicting games like {@link #create()} if the registry is full.
+     */
+    void restore(UUID id, Game game) {
+        register(id, game);
+    }
+
+    /**
+     * Runs {@code action} on every registered game while holding that game's monitor, without counting it as an
+     * access.
+     */
+    void forEach(BiConsumer<UUID, ? super Game> action) {
+        games.forEach((id, session) -> {
+            synchronized (session.game) {
+                action.accept(id, session.game);
+            }
+        });
+    }
+
+    private void register(UUID id, Game game) {
+        // evict before the new game joins the clock, so it cannot be the victim when all other games were played
+        while (games.size() >= maxSize && evictOne()) {
+            // keep evicting until there is room for the new game
+        }
+        games.put(id, new Session(game, nanoTime.getAsLong()));
+        clock.add(id);
+    }
+
+    private void journalRemoved(UUID id) {
+        GameJournal journal = this.journal;
+        if (journal != null) {
+            journal.removed(id);
+        }
+    }
+
+    /**
+     * Advances the clock hand until one game has been evicted: games accessed since the hand last passed them get a
+     * second chance and are moved to the tail.
+     *
+     * @return {@code false} if there was nothing left to evict
+     */
+    private boolean evictOne() {
+        UUID id;
+        while ((id = clock.poll()) != null) {
+            Session session = games.get(id);
+            if (session == null) {
+                continue;
+            }
+            if (session.referenced) {
+                session.referenced = false;
+                clock.add(id);
+            } else if (games.remove(id, session)) {
+                journalRemoved(id);
+                evictions.increment();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Session {
+        final Game game;
+        volatile long lastAccess;
+        volatile boolean referenced;
+
+        Session(Game game, long now) {
+            this.game = game;
+            this.lastAccess = now;
+        }
+
+        void touch(long now) {
+            lastAccess = now;
+            if (!referenced) {
+                referenced = true;
+            }
+        }
+    }
+}
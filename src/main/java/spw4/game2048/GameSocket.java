@@ -0,0 +1,166 @@
+package spw4.game2048;
+
+import javax.websocket.CloseReason;
+import javax.websocket.OnMessage;
+import javax.websocket.OnOpen;
+import javax.websocket.Session;
+import javax.websocket.server.ServerEndpoint;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * WebSocket endpoint playing one game per connection, as a lean alternative to a page request per move.
+ * <p>
+ * A client connects to {@code /socket?id=<game id>} to continue a game, or to {@code /socket} - optionally with
+ * {@code size} and {@code target} like {@code action=new} of {@link GameServlet} - to start a new one. It sends a
+ * binary frame of a single byte per move, the ordinal of the {@link Direction}, and receives binary frames in big
+ * endian:
+ * <ul>
+ * <li>after connecting, a full frame: {@value #FULL}, status, score (4 bytes), moves (4), game id (16), size, win
+ * score (4) and the exponents of all cells, row by row;</li>
+ * <li>after every move, a delta frame: {@value #DELTA}, status, score (4), moves (4), the number of changed cells
+ * and for each of them its index ({@code size * x + y}) and its new exponent.</li>
+ * </ul>
+ * The status has bit 0 set if the game is over and bit 1 if it is won. Like a page request, every move first spawns
+ * a tile, so the delta of a move contains the spawned tile as well.
+ * <p>
+ * The endpoint plays the games of the {@link SessionStore} registered by {@link GameServlet}, so the servlet has to
+ * be loaded before the first connection.
+ */
+@ServerEndpoint("/socket")
+public class GameSocket {
+
+    static final byte FULL = 0;
+    static final byte DELTA = 1;
+    static final int OVER = 1;
+    static final int WON = 2;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final int HEADER_SIZE = 10;
+
+    private static volatile SessionStore registeredGames;
+
+    private final SessionStore games;
+    private UUID id;
+    /**
+     * Exponents last sent to the client, to find the cells changed by a move.
+     */
+    private byte[] cells;
+    private ByteBuffer frame;
+
+    /**
+     * Creates an endpoint playing the games registered by {@link GameServlet}.
+     */
+    public GameSocket() {
+        this(registeredGames);
+    }
+
+    GameSocket(SessionStore games) {
+        this.games = games;
+    }
+
+    /**
+     * Makes the given games available to new connections; {@code null} refuses connections.
+     */
+    static void register(SessionStore games) {
+        registeredGames = games;
+    }
+
+    @OnOpen
+    public void open(Session session) throws IOException {
+        if (games == null) {
+            session.close(new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER, "server not ready"));
+            return;
+        }
+        Map<String, List<String>> parameters = session.getRequestParameterMap();
+        try {
+            String idString = parameter(parameters, "id");
+            if (idString != null) {
+                id = UUID.fromString(idString);
+            } else {
+                String size = parameter(parameters, "size");
+                String target = parameter(parameters, "target");
+                int boardSize = size == null ? Game.SIZE : Integer.parseInt(size);
+                int winScore = target == null ? Game.WIN_SCORE : Integer.parseInt(target);
+                if (!GameServlet.isValidGame(boardSize, winScore)) {
+                    throw new IllegalArgumentException("invalid size or target");
+                }
+                id = games.create(boardSize, winScore);
+            }
+        } catch (IllegalArgumentException e) {
+            session.close(new CloseReason(CloseReason.CloseCodes.CANNOT_ACCEPT, "invalid request"));
+            return;
+        }
+        Boolean found = games.withGame(id, game -> {
+            int size = game.getSize();
+            cells = new byte[size * size];
+            frame = ByteBuffer.allocate(Math.max(HEADER_SIZE + 21 + cells.length, HEADER_SIZE + 1 + 2 * cells.length));
+            writeHeader(FULL, game);
+            frame.putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits())
+                    .put((byte) size).putInt(game.getWinScore());
+            for (int x = 0, cell = 0; x < size; x++) {
+                for (int y = 0; y < size; y++, cell++) {
+                    cells[cell] = (byte) game.getExponentAt(x, y);
+                }
+            }
+            frame.put(cells).flip();
+            return true;
+        });
+        if (found == null) {
+            session.close(new CloseReason(CloseReason.CloseCodes.CANNOT_ACCEPT, "unknown game"));
+            return;
+        }
+        session.getBasicRemote().sendBinary(frame);
+    }
+
+    @OnMessage
+    public void move(ByteBuffer message, Session session) throws IOException {
+        if (message.remaining() != 1 || message.get(message.position()) < 0
+                || message.get(message.position()) >= DIRECTIONS.length) {
+            session.close(new CloseReason(CloseReason.CloseCodes.CANNOT_ACCEPT, "expected a direction"));
+            return;
+        }
+        Direction direction = DIRECTIONS[message.get(message.position())];
+        Boolean found = games.withGame(id, game -> {
+            if (!game.isOver(true)) {
+                game.tryMove(direction);
+            }
+            writeHeader(DELTA, game);
+            int countPosition = frame.position();
+            frame.put((byte) 0);
+            int size = game.getSize();
+            int changed = 0;
+            for (int x = 0, cell = 0; x < size; x++) {
+                for (int y = 0; y < size; y++, cell++) {
+                    byte exponent = (byte) game.getExponentAt(x, y);
+                    if (exponent != cells[cell]) {
+                        cells[cell] = exponent;
+                        frame.put((byte) cell).put(exponent);
+                        changed++;
+                    }
+                }
+            }
+            frame.put(countPosition, (byte) changed).flip();
+            return true;
+        });
+        if (found == null) {
+            session.close(new CloseReason(CloseReason.CloseCodes.GOING_AWAY, "game expired"));
+            return;
+        }
+        session.getBasicRemote().sendBinary(frame);
+    }
+
+    private void writeHeader(byte type, Game game) {
+        int status = (game.isOver(false) ? OVER : 0) | (game.isWon() ? WON : 0);
+        frame.clear();
+        frame.put(type).put((byte) status).putInt(game.getScore()).putInt(game.getMoves());
+    }
+
+    private static String parameter(Map<String, List<String>> parameters, String name) {
+        List<String> values = parameters.get(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+}
@@ -0,0 +1,227 @@
+package spw4.game2048;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Precompiled HTML page showing a game.
+ * <p>
+ * The markup is split once into static byte segments and dynamic slots, with a separate page for every supported
+ * board size. Rendering only copies the segments and fills the slots - game id, moves, score, game status and the
+ * cells - straight into an {@link OutputStream}, using pre-encoded bytes for every tile value, so no intermediate
+ * strings are created, and the scratch space for the id and the numbers is kept per thread.
+ */
+public class GameTemplate implements GameRenderer {
+
+    private static final int END = -1;
+    private static final int ID = 0;
+    private static final int MOVES = 1;
+    private static final int SCORE = 2;
+    private static final int STATUS = 3;
+    private static final int CELL = 4;
+    /**
+     * Placeholders in the page, indexed by slot.
+     */
+    private static final String[] PLACEHOLDERS = {"${id}", "${moves}", "${score}", "${status}", "${cell}"};
+
+    private static final String PAGE = ""
+            + "<!DOCTYPE html>\n"
+            + "<html lang=\"en\">\n"
+            + "<head>\n"
+            + "    <meta charset=\"UTF-8\">\n"
+            + "    <title>2048</title>\n"
+            + "    <link href=\"css/bootstrap.min.css\" rel=\"stylesheet\"/>\n"
+            + "    <link href=\"icons/bootstrap-icons.css\" rel=\"stylesheet\"/>\n"
+            + "    <script src=\"js/bootstrap.min.js\"></script>\n"
+            + "    <script src=\"js/game2048.js\" defer></script>\n"
+            + "</head>\n"
+            + "<body data-game=\"${id}\">\n"
+            + "    <h1 class=\"m-5 text-center\">Play 2048:</h1>\n"
+            + "\n"
+            + "    <div class=\"row\">\n"
+            + "        <div class=\"col-4\"></div>\n"
+            + "        <div class=\"col\">\n"
+            + "            <div class=\"row\">\n"
+            + "                <div class=\"col text-center pb-4\"><h5>Moves: <span id=\"moves\">${moves}</span></h5></div>\n"
+            + "                <div class=\"col text-center pb-4\"><h5>Score: <span id=\"score\">${score}</span></h5></div>\n"
+            + "            </div>\n"
+            + "${status}"
+            + "            <div class=\"row\">\n"
+            + "                <div class=\"col-2\"></div>\n"
+            + "                <div class=\"col text-center pb-4\"><a role=\"button\" class=\"btn btn-secondary\" href=\"Game?id=${id}&action=up\"><i class=\"bi-arrow-up\"></i></a></div>\n"
+            + "                <div class=\"col-2\"></div>\n"
+            + "            </div>\n"
+            + "            <div class=\"row\">\n"
+            + "                <div class=\"col-2 my-auto text-right\"><a role=\"button\" class=\"btn btn-secondary\" href=\"Game?id=${id}&action=left\"><i class=\"bi-arrow-left\"></i></a></div>\n"
+            + "                <div class=\"col\">\n"
+            + "                    <div class=\"container text-center bg-secondary\">\n"
+            + "${grid}"
+            + "                    </div>\n"
+            + "                </div>\n"
+            + "                <div class=\"col-2 my-auto\"><a role=\"button\" class=\"btn btn-secondary\" href=\"Game?id=${id}&action=right\"><i class=\"bi-arrow-right\"></i></a></div>\n"
+            + "            </div>\n"
+            + "            <div class=\"row\">\n"
+            + "                <div class=\"col-2\"></div>\n"
+            + "                <div class=\"col text-center pt-4\"><a role=\"button\" class=\"btn btn-secondary\" href=\"Game?id=${id}&action=down\"><i class=\"bi-arrow-down\"></i></a></div>\n"
+            + "                <div class=\"col-2\"></div>\n"
+            + "            </div>\n"
+            + "            <div class=\"row\">\n"
+            + "                <div class=\"col text-center pt-4\"><a role=\"button\" class=\"btn btn-danger w-75\" href=\"Game?action=new\">New Game</a></div>\n"
+            + "                <div class=\"col text-center pt-4\"><a role=\"button\" class=\"btn btn-info w-75\" href=\"Game?id=${id}\">Refresh</a></div>\n"
+            + "            </div>\n"
+            + "        </div>\n"
+            + "        <div class=\"col-4\"></div>\n"
+            + "    </div>\n"
+            + "</body>\n"
+            + "</html>\n";
+
+    private static final String WIN = ""
+            + "            <div class=\"row\">\n"
+            + "                <div class=\"col text-center pb-4\"><h1><span class=\"badge badge-success w-75\">YOU WIN</span></h1></div>\n"
+            + "            </div>\n";
+
+    private static final String LOSE = ""
+            + "            <div class=\"row\">\n"
+            + "                <div class=\"col text-center pb-4\"><h1><span class=\"badge badge-danger w-75\">YOU LOSE</span></h1></div>\n"
+            + "            </div>\n";
+
+    /**
+     * Placeholder for the grid of cells, which is expanded for each board size before the page is compiled.
+     */
+    private static final String GRID = "${grid}";
+    /**
+     * Per-thread scratch space for the id and the numbers of the page being rendered.
+     */
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    /**
+     * Compiled page for every board size, indexed by size.
+     */
+    private final Page[] pages = new Page[Board.MAX_SIZE + 1];
+    private final byte[] win = WIN.getBytes(StandardCharsets.UTF_8);
+    private final byte[] lose = LOSE.getBytes(StandardCharsets.UTF_8);
+    /**
+     * Text of every possible cell, indexed by exponent.
+     */
+    private final byte[][] cells = new byte[Bitboard.MAX_EXPONENT + 1][];
+
+    public GameTemplate() {
+        for (int size = Board.MIN_SIZE; size <= Board.MAX_SIZE; size++) {
+            String page = PAGE.replace(GRID, grid(size));
+            if (size != Game.SIZE) {
+                page = page.replace("Game?action=new", "Game?action=new&size=" + size);
+            }
+            pages[size] = new Page(page);
+        }
+
+        for (int exponent = 0; exponent < cells.length; exponent++) {
+            cells[exponent] = Integer.toString(Bitboard.toValue(exponent)).getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    @Override
+    public String getContentType() {
+        return "text/html";
+    }
+
+    @Override
+    public void render(UUID id, Game game, OutputStream out) throws IOException {
+        Scratch scratch = SCRATCH.get();
+        byte[] idBytes = Ascii.uuid(id, scratch.id);
+        byte[] number = scratch.number;
+        int size = game.getSize();
+        byte[][] segments = pages[size].segments;
+        int[] slots = pages[size].slots;
+        int cell = 0;
+        for (int i = 0; i < segments.length; i++) {
+            out.write(segments[i]);
+            switch (slots[i]) {
+                case ID:
+                    out.write(idBytes);
+                    break;
+                case MOVES:
+                    Ascii.writeInt(game.getMoves(), number, out);
+                    break;
+                case SCORE:
+                    Ascii.writeInt(game.getScore(), number, out);
+                    break;
+                case STATUS:
+                    if (game.isOver(false) && game.isWon()) {
+                        out.write(win);
+                    } else if (game.isOver(false) && !game.isWon()) {
+                        out.write(lose);
+                    }
+                    break;
+                case CELL:
+                    out.write(cells[game.getExponentAt(cell / size, cell % size)]);
+                    cell++;
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Returns the markup of a grid with {@code size} x {@code size} cells.
+     */
+    private static String grid(int size) {
+        StringBuilder grid = new StringBuilder();
+        for (int x = 0; x < size; x++) {
+            grid.append("                        <div class=\"row\">\n");
+            for (int y = 0; y < size; y++) {
+                grid.append("                            <div class=\"col mt-1 ml-1 ")
+                        .append(x == size - 1 ? "mb-1 " : "")
+                        .append(y == size - 1 ? "mr-1 " : "")
+                        .append("bg-light\" data-cell>${cell}</div>\n");
+            }
+            grid.append("                        </div>\n");
+        }
+        return grid.toString();
+    }
+
+    private static final class Scratch {
+        final byte[] id = new byte[36];
+        final byte[] number = new byte[10];
+    }
+
+    /**
+     * Page markup split into static segments and the slots between them.
+     */
+    private static final class Page {
+        private final byte[][] segments;
+        /**
+         * Slot following each segment, {@link #END} after the last one.
+         */
+        private final int[] slots;
+
+        Page(String markup) {
+            List<byte[]> segmentList = new ArrayList<>();
+            List<Integer> slotList = new ArrayList<>();
+            int start = 0;
+            while (true) {
+                int next = -1;
+                int slot = END;
+                for (int i = 0; i < PLACEHOLDERS.length; i++) {
+                    int index = markup.indexOf(PLACEHOLDERS[i], start);
+                    if (index >= 0 && (next < 0 || index < next)) {
+                        next = index;
+                        slot = i;
+                    }
+                }
+                if (slot == END) {
+                    segmentList.add(markup.substring(start).getBytes(StandardCharsets.UTF_8));
+                    slotList.add(END);
+                    break;
+                }
+                segmentList.add(markup.substring(start, next).getBytes(StandardCharsets.UTF_8));
+                slotList.add(slot);
+                start = next + PLACEHOLDERS[slot].length();
+            }
+            segments = segmentList.toArray(new byte[0][]);
+            slots = slotList.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package spw4.game2048;
+
+/**
+ * Static evaluation of a {@link Bitboard} used by the {@link Solver}.
+ * <p>
+ * Every row and every column is rated by how many empty cells it has, how many merges it offers and how monotonic
+ * it is, minus a penalty for large tiles which are not yet merged. The rating of every possible row is precomputed,
+ * so evaluating a board takes 8 table lookups and a transposition.
+ */
+public final class Heuristic {
+
+    private static final double LOST_PENALTY = 200_000;
+    private static final double MONOTONICITY_POWER = 4;
+    private static final double MONOTONICITY_WEIGHT = 47;
+    private static final double SUM_POWER = 3.5;
+    private static final double SUM_WEIGHT = 11;
+    private static final double MERGES_WEIGHT = 700;
+    private static final double EMPTY_WEIGHT = 270;
+
+    private static final float[] ROWS = new float[Bitboard.ROW_STATES];
+
+    static {
+        int[] line = new int[Game.SIZE];
+        for (int row = 0; row < Bitboard.ROW_STATES; row++) {
+            for (int i = 0; i < Game.SIZE; i++) {
+                line[i] = (row >>> (4 * i)) & 0xF;
+            }
+            ROWS[row] = (float) rate(line);
+        }
+    }
+
+    private Heuristic() {
+    }
+
+    /**
+     * Rates a board; higher is better.
+     */
+    public static double evaluate(long board) {
+        return rateRows(board) + rateRows(Bitboard.transpose(board));
+    }
+
+    private static double rateRows(long board) {
+        return ROWS[(int) (board & 0xFFFF)]
+                + ROWS[(int) ((board >>> 16) & 0xFFFF)]
+                + ROWS[(int) ((board >>> 32) & 0xFFFF)]
+                + ROWS[(int) ((board >>> 48) & 0xFFFF)];
+    }
+
+    private static double rate(int[] line) {
+        double sum = 0;
+        int empty = 0;
+        int merges = 0;
+        int previous = 0;
+        int counter = 0;
+        for (int exponent : line) {
+            sum += Math.pow(exponent, SUM_POWER);
+            if (exponent == 0) {
+                empty++;
+            } else {
+                if (previous == exponent) {
+                    counter++;
+                } else if (counter > 0) {
+                    merges += 1 + counter;
+                    counter = 0;
+                }
+                previous = exponent;
+            }
+        }
+        if (counter > 0) {
+            merges += 1 + counter;
+        }
+
+        double monotonicityLeft = 0;
+        double monotonicityRight = 0;
+        for (int i = 1; i < line.length; i++) {
+            double difference = Math.pow(line[i - 1], MONOTONICITY_POWER) - Math.pow(line[i], MONOTONICITY_POWER);
+            if (difference > 0) {
+                monotonicityLeft += difference;
+            } else {
+                monotonicityRight -= difference;
+            }
+        }
+
+        return LOST_PENALTY + EMPTY_WEIGHT * empty + MERGES_WEIGHT * merges
+                - MONOTONICITY_WEIGHT * Math.min(monotonicityLeft, monotonicityRight)
+                - SUM_WEIGHT * sum;
+    }
+}
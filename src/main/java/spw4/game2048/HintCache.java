@@ -0,0 +1,235 @@
+package spw4.game2048;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+import java.util.function.LongSupplier;
+
+/**
+ * Thread-safe cache of the best move per {@link Bitboard}, computed by a time-bounded search.
+ * <p>
+ * Results are kept under the {@link Bitboard#canonical canonical} board, so all rotations and reflections of a board
+ * share one search: the search is run on the canonical board, and its move is mirrored back to the board asked for.
+ * <p>
+ * Concurrent requests for the same board are coalesced: the first one runs the search on its own thread, the others
+ * wait for its result instead of searching again. A result is kept for the time to live and then searched again.
+ * When a new board exceeds the maximum size, the least recently used results are evicted by a CLOCK scan like in
+ * {@link GameSessions}; searches still running are never evicted.
+ * <p>
+ * Lookups are counted as hits, misses (which run a search) and coalesced requests, and the duration of every search
+ * is recorded.
+ */
+public class HintCache {
+
+    /**
+     * Default maximum number of cached boards.
+     */
+    public static final int DEFAULT_MAX_SIZE = 65_536;
+    /**
+     * Default time in minutes after which a result is searched again.
+     */
+    public static final long DEFAULT_TTL_MINUTES = 10;
+
+    private final ConcurrentMap<Long, Entry> entries = new ConcurrentHashMap<>();
+    /**
+     * Boards in insertion order; the head is the next candidate for eviction.
+     */
+    private final Queue<Long> clock = new ConcurrentLinkedQueue<>();
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongFunction<Direction> search;
+    private final LongSupplier nanoTime;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LatencyHistogram searchLatency = new LatencyHistogram();
+
+    /**
+     * Creates a cache of the results of {@code search}, which answers the best move for a board or {@code null} if
+     * there is none. The search is only called with canonical boards.
+     */
+    public HintCache(int maxSize, long ttl, TimeUnit unit, LongFunction<Direction> search) {
+        this(maxSize, ttl, unit, search, System::nanoTime);
+    }
+
+    HintCache(int maxSize, long ttl, TimeUnit unit, LongFunction<Direction> search, LongSupplier nanoTime) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.search = search;
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Returns the best move for the board, searching it unless a result is cached or another thread is searching it
+     * right now.
+     *
+     * @return the best move, or {@code null} if no tile can be moved
+     */
+    public Direction get(long board) {
+        int symmetry = Bitboard.canonicalSymmetry(board);
+        Direction move = lookup(Bitboard.symmetry(board, symmetry));
+        return move == null ? null : Bitboard.inverseSymmetry(move, symmetry);
+    }
+
+    /**
+     * Returns the number of cached boards, including searches still running.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Removes all results.
+     */
+    public void clear() {
+        entries.clear();
+        clock.clear();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of lookups which waited for a search started by another request.
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getExpirations() {
+        return expirations.sum();
+    }
+
+    /**
+     * Returns the share of lookups answered without a search of their own, between 0 and 1.
+     */
+    public double getHitRate() {
+        long hits = this.hits.sum() + coalesced.sum();
+        long lookups = hits + misses.sum();
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * Returns the durations of all searches, in nanoseconds.
+     */
+    public LatencyHistogram getSearchLatency() {
+        return searchLatency;
+    }
+
+    /**
+     * Returns the best move for a canonical board from the cache, or searches it.
+     */
+    private Direction lookup(long board) {
+        Long key = board;
+        while (true) {
+            Entry entry = entries.get(key);
+            long now = nanoTime.getAsLong();
+            if (entry == null) {
+                Entry created = new Entry(now);
+                if (entries.putIfAbsent(key, created) != null) {
+                    // another thread started the same search first
+                    continue;
+                }
+                misses.increment();
+                clock.add(key);
+                while (entries.size() > maxSize && evictOne()) {
+                    // keep evicting until the new board fits
+                }
+                return compute(key, created);
+            }
+            if (!entry.result.isDone()) {
+                coalesced.increment();
+                return entry.result.join();
+            }
+            if (now - entry.created <= ttlNanos) {
+                hits.increment();
+                entry.referenced = true;
+                return entry.result.join();
+            }
+            // the board keeps its place in the clock
+            Entry created = new Entry(now);
+            if (entries.replace(key, entry, created)) {
+                expirations.increment();
+                misses.increment();
+                return compute(key, created);
+            }
+        }
+    }
+
+    private Direction compute(Long key, Entry entry) {
+        long start = nanoTime.getAsLong();
+        try {
+            Direction result = search.apply(key);
+            entry.result.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            // waiting requests fail as well, the next one searches again
+            entries.remove(key, entry);
+            entry.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            searchLatency.record(nanoTime.getAsLong() - start);
+        }
+    }
+
+    /**
+     * Advances the clock hand until one result has been evicted: results read since the hand last passed them get a
+     * second chance, running searches are skipped, and both are moved to the tail.
+     *
+     * @return {@code false} if there was nothing left to evict
+     */
+    private boolean evictOne() {
+        // two rounds clear all second chances; if every search is still running, the cache grows for now
+        for (int i = 2 * entries.size(); i > 0; i--) {
+            Long key = clock.poll();
+            if (key == null) {
+                break;
+            }
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                continue;
+            }
+            if (entry.referenced || !entry.result.isDone()) {
+                entry.referenced = false;
+                clock.add(key);
+            } else if (entries.remove(key, entry)) {
+                evictions.increment();
+                return true;
+            } else {
+                // replaced by a new search in the meantime
+                clock.add(key);
+            }
+        }
+        return false;
+    }
+
+    private static final class Entry {
+        final CompletableFuture<Direction> result = new CompletableFuture<>();
+        final long created;
+        volatile boolean referenced;
+
+        Entry(long created) {
+            this.created = created;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package spw4.game2048;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe histogram of latencies in nanoseconds with a bounded relative error, in the style of HdrHistogram.
+ * <p>
+ * Values are counted into log-linear buckets: values below 16 ns get a bucket each, above that every power of two is
+ * split into 8 equally wide buckets, so a percentile is reported at most 12.5% above the recorded value, up to
+ * {@code 2^40} ns (about 18 minutes); larger values are counted into the last bucket. Every bucket is a
+ * {@link LongAdder}, so recording allocates nothing and threads recording the same latency do not contend on one
+ * counter.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40;
+
+    /**
+     * Values below {@link #SUB_BUCKETS} get a bucket each; above that, every power of two gets half as many buckets,
+     * as its lower half is covered by the power below.
+     */
+    private final LongAdder[] buckets = new LongAdder[SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS) * SUB_BUCKETS / 2];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records a latency; negative values are counted as 0.
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        buckets[bucket(value)].increment();
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Returns the number of recorded latencies.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Returns the sum of the recorded latencies in nanoseconds.
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * Returns the mean of the recorded latencies in nanoseconds, 0 if none has been recorded.
+     */
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * Returns the largest recorded latency in nanoseconds.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the latency in nanoseconds which {@code percentile} percent of the recorded latencies do not exceed, as
+     * the upper bound of its bucket but at most {@link #getMax()}; 0 if none has been recorded.
+     */
+    public long getPercentile(double percentile) {
+        long[] counts = new long[buckets.length];
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * Math.min(percentile, 100) / 100));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent >= MAX_EXPONENT) {
+            return (MAX_EXPONENT - SUB_BUCKET_BITS) * SUB_BUCKETS / 2 + SUB_BUCKETS - 1;
+        }
+        // the SUB_BUCKET_BITS highest bits, the first of which is always set
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS + 1)) - SUB_BUCKETS / 2;
+        return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS / 2 + sub;
+    }
+
+    /**
+     * Returns the largest value counted into the given bucket.
+     */
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = (bucket - SUB_BUCKETS) / (SUB_BUCKETS / 2) + SUB_BUCKET_BITS;
+        int sub = (bucket - SUB_BUCKETS) % (SUB_BUCKETS / 2) + SUB_BUCKETS / 2;
+        return ((long) (sub + 1) << (exponent - SUB_BUCKET_BITS + 1)) - 1;
+    }
+}
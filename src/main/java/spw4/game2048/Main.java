@@ -9,17 +9,20 @@ public class Main {
 
         Game game = new Game();
         game.initialize();
+        Solver solver = new Solver();
         System.out.println(game);
 
         while (!game.isOver(true)) {
-            System.out.print("command [w, a, s, d, (r)estart, (q)uit, (h)elp] > ");
+            System.out.print("command [w, a, s, d, h(i)nt, auto(p)lay, (r)estart, (q)uit, (h)elp] > ");
             input = scanner.nextLine();
 
             switch (input) {
-                case "w": game.move(Direction.up);               break;
-                case "a": game.move(Direction.left);             break;
-                case "s": game.move(Direction.down);             break;
-                case "d": game.move(Direction.right);            break;
+                case "w": game.tryMove(Direction.up);            break;
+                case "a": game.tryMove(Direction.left);          break;
+                case "s": game.tryMove(Direction.down);          break;
+                case "d": game.tryMove(Direction.right);         break;
+                case "i": printHint(solver, game);               break;
+                case "p": autoPlay(solver, game);                break;
                 case "r": game.initialize();                     break;
                 case "q": System.out.println("Ok, bye.");        return;
                 case "h": printHelp();                           break;
@@ -31,6 +34,21 @@ public class Main {
         System.out.println("Your score: " + game.getScore());
     }
 
+    private static void printHint(Solver solver, Game game) {
+        Direction hint = solver.bestMove(game.getBoard());
+        System.out.println(hint == null ? "No move left." : "Hint: move " + hint);
+    }
+
+    private static void autoPlay(Solver solver, Game game) {
+        Direction move;
+        while ((move = solver.bestMove(game.getBoard())) != null) {
+            game.tryMove(move);
+            if (game.isOver(true)) {
+                break;
+            }
+        }
+    }
+
     private static void printHelp() {
         System.out.println();
         System.out.println("Available commands:");
@@ -39,6 +57,8 @@ public class Main {
         System.out.println("a --> move left");
         System.out.println("s --> move down");
         System.out.println("d --> move right");
+        System.out.println("i --> show hint");
+        System.out.println("p --> let the computer play");
         System.out.println("r --> restart game");
         System.out.println("q --> quit game");
         System.out.println("h --> show help");
@@ -0,0 +1,474 @@
+package spw4.game2048;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Registry keeping all games outside of the Java heap, so millions of games neither fill the heap nor slow down
+ * garbage collection.
+ * <p>
+ * Every game takes a slot of {@link #slotSize(int)} bytes: its id, the time of the last access and the game encoded
+ * by {@link GameCodec} into as few bytes as the largest board of the registry needs, 56 bytes per game for the
+ * classic 4x4 board and 80 bytes for the largest boards. The slots form open-addressing hash tables with linear
+ * probing in direct buffers, or in a memory-mapped file which keeps the games across restarts. Removing a game
+ * shifts the following slots of its probe sequence back, so there are no tombstones and lookups stop at the first
+ * empty slot.
+ * <p>
+ * The table is split into {@value #SEGMENTS} segments by the hash of the id, each with its own lock and an equal
+ * share of the maximum number of games. {@link #withGame(UUID, Function)} decodes the game, runs the action and
+ * encodes the game again while holding the lock of its segment, so games of the same segment are played one after
+ * the other. A full segment evicts a game by a CLOCK scan over its slots, using the lowest bit of the access time as
+ * reference bit. Listeners and spawners of a game are not stored.
+ */
+public class OffHeapSessions implements SessionStore {
+
+    static final int SEGMENTS = 64;
+    private static final int ID_MSB = 0;
+    private static final int ID_LSB = 8;
+    private static final int ACCESS = 16;
+    private static final int GAME = 24;
+    private static final int FILE_MAGIC = 0x4F464632;
+    private static final int FILE_HEADER_SIZE = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final int maxBoardSize;
+    private final int gameSize;
+    private final long idleTimeoutNanos;
+    private final LongSupplier nanoTime;
+    private final FileChannel file;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    private ScheduledExecutorService sweeper;
+
+    /**
+     * Creates a registry in direct buffers for games on boards up to {@link Game#SIZE}.
+     */
+    public OffHeapSessions(int maxSize, long idleTimeout, TimeUnit unit) {
+        this(maxSize, Game.SIZE, idleTimeout, unit);
+    }
+
+    /**
+     * Creates a registry in direct buffers for games on boards up to {@code maxBoardSize}.
+     */
+    public OffHeapSessions(int maxSize, int maxBoardSize, long idleTimeout, TimeUnit unit) {
+        this(maxSize, maxBoardSize, idleTimeout, unit, System::nanoTime);
+    }
+
+    OffHeapSessions(int maxSize, long idleTimeout, TimeUnit unit, LongSupplier nanoTime) {
+        this(maxSize, Game.SIZE, idleTimeout, unit, nanoTime);
+    }
+
+    OffHeapSessions(int maxSize, int maxBoardSize, long idleTimeout, TimeUnit unit, LongSupplier nanoTime) {
+        this.maxBoardSize = maxBoardSize;
+        this.gameSize = GameCodec.encodedSize(maxBoardSize);
+        this.idleTimeoutNanos = unit.toNanos(idleTimeout);
+        this.nanoTime = nanoTime;
+        this.file = null;
+        int slotSize = slotSize(maxBoardSize);
+        for (int i = 0; i < SEGMENTS; i++) {
+            int maxCount = share(maxSize, i);
+            segments[i] = new Segment(ByteBuffer.allocateDirect(capacity(maxCount, slotSize) * slotSize), slotSize,
+                    maxCount);
+        }
+    }
+
+    /**
+     * Creates a registry in the given file for games on boards up to {@link Game#SIZE}, or opens the registry stored
+     * in it with all its games.
+     *
+     * @throws IllegalArgumentException if the file holds a registry of another maximum size or board size
+     */
+    public OffHeapSessions(int maxSize, long idleTimeout, TimeUnit unit, Path path) throws IOException {
+        this(maxSize, Game.SIZE, idleTimeout, unit, path);
+    }
+
+    /**
+     * Creates a registry in the given file for games on boards up to {@code maxBoardSize}, or opens the registry
+     * stored in it with all its games; an opened registry must have been created with the same maximum size and
+     * board size.
+     *
+     * @throws IllegalArgumentException if the file holds a registry of another maximum size or board size
+     */
+    public OffHeapSessions(int maxSize, int maxBoardSize, long idleTimeout, TimeUnit unit, Path path)
+            throws IOException {
+        this.maxBoardSize = maxBoardSize;
+        this.gameSize = GameCodec.encodedSize(maxBoardSize);
+        this.idleTimeoutNanos = unit.toNanos(idleTimeout);
+        this.nanoTime = System::nanoTime;
+        this.file = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            MappedByteBuffer header = file.map(FileChannel.MapMode.READ_WRITE, 0, FILE_HEADER_SIZE);
+            if (header.getInt(0) == 0) {
+                header.putInt(0, FILE_MAGIC).putInt(4, maxSize).putInt(8, maxBoardSize);
+            } else if (header.getInt(0) != FILE_MAGIC || header.getInt(4) != maxSize
+                    || header.getInt(8) != maxBoardSize) {
+                throw new IllegalArgumentException(path + " does not hold a registry of " + maxSize + " games up to "
+                        + maxBoardSize + "x" + maxBoardSize);
+            }
+            long position = FILE_HEADER_SIZE;
+            long now = nanoTime.getAsLong();
+            int slotSize = slotSize(maxBoardSize);
+            for (int i = 0; i < SEGMENTS; i++) {
+                int maxCount = share(maxSize, i);
+                long bytes = (long) capacity(maxCount, slotSize) * slotSize;
+                segments[i] = new Segment(file.map(FileChannel.MapMode.READ_WRITE, position, bytes), slotSize,
+                        maxCount);
+                segments[i].open(now);
+                position += bytes;
+            }
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalArgumentException if the board is larger than the boards of this registry
+     */
+    @Override
+    public UUID create(int size, int winScore) {
+        if (size > maxBoardSize) {
+            throw new IllegalArgumentException("boards are at most " + maxBoardSize + "x" + maxBoardSize);
+        }
+        Game game = new Game(size, winScore);
+        UUID id = UUID.randomUUID();
+        long hash = hash(id);
+        Segment segment = segments[segmentIndex(hash)];
+        synchronized (segment) {
+            if (segment.count == segment.maxCount) {
+                segment.evictOne();
+                evictions.increment();
+            }
+            int slot = segment.insert(hash);
+            ByteBuffer slots = segment.slots;
+            slots.putLong(slot + ID_MSB, id.getMostSignificantBits())
+                    .putLong(slot + ID_LSB, id.getLeastSignificantBits())
+                    .putLong(slot + ACCESS, nanoTime.getAsLong() & ~1L);
+            GameCodec.encode(game, slots, slot + GAME, gameSize);
+        }
+        return id;
+    }
+
+    @Override
+    public <T> T withGame(UUID id, Function<? super Game, ? extends T> action) {
+        long hash = hash(id);
+        Segment segment = segments[segmentIndex(hash)];
+        synchronized (segment) {
+            int slot = segment.find(hash, id);
+            if (slot < 0) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            segment.slots.putLong(slot + ACCESS, nanoTime.getAsLong() | 1);
+            Game game = GameCodec.decode(segment.slots, slot + GAME, gameSize);
+            try {
+                return action.apply(game);
+            } finally {
+                GameCodec.encode(game, segment.slots, slot + GAME, gameSize);
+            }
+        }
+    }
+
+    @Override
+    public boolean remove(UUID id) {
+        long hash = hash(id);
+        Segment segment = segments[segmentIndex(hash)];
+        synchronized (segment) {
+            int slot = segment.find(hash, id);
+            if (slot < 0) {
+                return false;
+            }
+            segment.delete(slot);
+            return true;
+        }
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.count;
+        }
+        return size;
+    }
+
+    @Override
+    public int sweep() {
+        int expired = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                long now = nanoTime.getAsLong();
+                ByteBuffer slots = segment.slots;
+                for (int slot = 0; slot < slots.capacity(); ) {
+                    if (!segment.isEmpty(slot) && now - slots.getLong(slot + ACCESS) > idleTimeoutNanos) {
+                        // the slot now holds the next game of the probe sequence, if any
+                        segment.delete(slot);
+                        expirations.increment();
+                        expired++;
+                    } else {
+                        slot += segment.slotSize;
+                    }
+                }
+            }
+        }
+        return expired;
+    }
+
+    @Override
+    public synchronized void startSweeper(long period, TimeUnit unit) {
+        if (sweeper != null) {
+            throw new IllegalStateException("sweeper already started");
+        }
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "off-heap-sessions-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweep, period, period, unit);
+    }
+
+    /**
+     * Stops the sweeper thread, if it was started, and writes a memory-mapped registry to disk. Direct buffers are
+     * released once the registry is garbage collected.
+     */
+    @Override
+    public synchronized void close() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+            sweeper = null;
+        }
+        if (file != null) {
+            for (Segment segment : segments) {
+                synchronized (segment) {
+                    ((MappedByteBuffer) segment.slots).force();
+                }
+            }
+            try {
+                file.close();
+            } catch (IOException e) {
+                // the mappings were forced already
+            }
+        }
+    }
+
+    @Override
+    public int getMaxBoardSize() {
+        return maxBoardSize;
+    }
+
+    @Override
+    public long getHits() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public long getExpirations() {
+        return expirations.sum();
+    }
+
+    /**
+     * Returns the maximum number of games of segment {@code index}; the shares add up to {@code maxSize}, but every
+     * segment holds at least one game.
+     */
+    private static int share(int maxSize, int index) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        return Math.max(1, maxSize / SEGMENTS + (index < maxSize % SEGMENTS ? 1 : 0));
+    }
+
+    /**
+     * Returns the number of bytes taken by every game of a registry for boards up to {@code maxBoardSize}.
+     */
+    public static int slotSize(int maxBoardSize) {
+        return GAME + GameCodec.encodedSize(maxBoardSize);
+    }
+
+    /**
+     * Returns the number of slots for a segment of {@code maxCount} games, keeping the load at or below 3/4 with at
+     * least one slot left empty.
+     */
+    static int capacity(int maxCount, int slotSize) {
+        int capacity = Math.max(maxCount + 1, (int) (maxCount * 4L / 3));
+        if ((long) capacity * slotSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("maxSize too large");
+        }
+        return capacity;
+    }
+
+    private static long hash(UUID id) {
+        return hash(id.getMostSignificantBits(), id.getLeastSignificantBits());
+    }
+
+    private static long hash(long mostSignificantBits, long leastSignificantBits) {
+        return Bitboard.hash(mostSignificantBits ^ leastSignificantBits);
+    }
+
+    private static int segmentIndex(long hash) {
+        // the high bits pick the segment, the low 32 bits the home slot within it
+        return (int) (hash >>> 58);
+    }
+
+    /**
+     * One open-addressing table; all methods must be called while holding its monitor.
+     */
+    private static final class Segment {
+        final ByteBuffer slots;
+        final int slotSize;
+        final int maxCount;
+        final int capacity;
+        volatile int count;
+        /**
+         * Slot index the CLOCK hand points to.
+         */
+        int hand;
+
+        Segment(ByteBuffer slots, int slotSize, int maxCount) {
+            this.slots = slots;
+            this.slotSize = slotSize;
+            this.maxCount = maxCount;
+            this.capacity = slots.capacity() / slotSize;
+        }
+
+        /**
+         * Counts the games of a registry opened from a file and starts their idle time anew.
+         */
+        void open(long now) {
+            int games = 0;
+            for (int slot = 0; slot < slots.capacity(); slot += slotSize) {
+                if (!isEmpty(slot)) {
+                    slots.putLong(slot + ACCESS, now & ~1L);
+                    games++;
+                }
+            }
+            count = games;
+        }
+
+        /**
+         * Returns the index of the first slot of the probe sequence of {@code hash}; the table size need not be a
+         * power of two, as the low bits of the hash are scaled to it instead of masked.
+         */
+        int home(long hash) {
+            return (int) (((hash & 0xFFFF_FFFFL) * capacity) >>> 32);
+        }
+
+        int next(int index) {
+            return index + 1 == capacity ? 0 : index + 1;
+        }
+
+        /**
+         * Returns how many slots the probe sequence advances from {@code from} to {@code to}.
+         */
+        int distance(int from, int to) {
+            return to >= from ? to - from : to + capacity - from;
+        }
+
+        boolean isEmpty(int slot) {
+            // a stored game starts with a non-zero version byte
+            return slots.get(slot + GAME) == 0;
+        }
+
+        /**
+         * Returns the offset of the slot holding the game with the given id, or -1.
+         */
+        int find(long hash, UUID id) {
+            for (int index = home(hash); ; index = next(index)) {
+                int slot = index * slotSize;
+                if (isEmpty(slot)) {
+                    return -1;
+                }
+                if (slots.getLong(slot + ID_MSB) == id.getMostSignificantBits()
+                        && slots.getLong(slot + ID_LSB) == id.getLeastSignificantBits()) {
+                    return slot;
+                }
+            }
+        }
+
+        /**
+         * Returns the offset of the first empty slot of the probe sequence of {@code hash} and counts it as used.
+         */
+        int insert(long hash) {
+            int index = home(hash);
+            while (!isEmpty(index * slotSize)) {
+                index = next(index);
+            }
+            count++;
+            return index * slotSize;
+        }
+
+        /**
+         * Empties the given slot and shifts later games of the probe sequence back, so no lookup stops early.
+         */
+        void delete(int slot) {
+            int hole = slot / slotSize;
+            for (int index = next(hole); !isEmpty(index * slotSize); index = next(index)) {
+                int home = home(hash(slots.getLong(index * slotSize + ID_MSB),
+                        slots.getLong(index * slotSize + ID_LSB)));
+                // the game may move into the hole if the hole lies between its home slot and its current slot
+                if (distance(home, index) >= distance(hole, index)) {
+                    copy(index * slotSize, hole * slotSize);
+                    hole = index;
+                }
+            }
+            for (int offset = 0; offset < slotSize; offset += 8) {
+                slots.putLong(hole * slotSize + offset, 0);
+            }
+            count--;
+        }
+
+        /**
+         * Advances the CLOCK hand until it evicts a game: games accessed since the hand last passed them get a
+         * second chance.
+         */
+        void evictOne() {
+            while (true) {
+                int slot = hand * slotSize;
+                if (!isEmpty(slot)) {
+                    long access = slots.getLong(slot + ACCESS);
+                    if ((access & 1) == 0) {
+                        // the hand stays, as the slot may now hold a game shifted back
+                        delete(slot);
+                        return;
+                    }
+                    slots.putLong(slot + ACCESS, access & ~1L);
+                }
+                hand = next(hand);
+            }
+        }
+
+        private void copy(int from, int to) {
+            for (int offset = 0; offset < slotSize; offset += 8) {
+                slots.putLong(to + offset, slots.getLong(from + offset));
+            }
+        }
+    }
+}
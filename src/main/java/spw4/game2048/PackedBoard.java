@@ -0,0 +1,83 @@
+package spw4.game2048;
+
+/**
+ * 4x4 {@link Board} packed into a {@link Bitboard}.
+ */
+final class PackedBoard implements Board {
+
+    private long bits;
+
+    long getBits() {
+        return bits;
+    }
+
+    void setBits(long bits) {
+        this.bits = bits;
+    }
+
+    @Override
+    public int size() {
+        return Game.SIZE;
+    }
+
+    @Override
+    public int exponentAt(int x, int y) {
+        return Bitboard.exponentAt(bits, x, y);
+    }
+
+    @Override
+    public void setExponent(int x, int y, int exponent) {
+        bits = Bitboard.withExponent(bits, x, y, exponent);
+    }
+
+    @Override
+    public void clear() {
+        bits = 0;
+    }
+
+    @Override
+    public void setTiles(int[][] tiles) {
+        bits = Bitboard.fromTiles(tiles);
+    }
+
+    @Override
+    public int[][] toTiles() {
+        return Bitboard.toTiles(bits);
+    }
+
+    @Override
+    public long move(Direction direction) {
+        long before = bits;
+        long after = Bitboard.move(before, direction);
+        if (after == before) {
+            return Game.NO_CHANGE;
+        }
+        bits = after;
+        return ((long) Bitboard.changedCells(before, after) << 32) | Bitboard.score(before, direction);
+    }
+
+    @Override
+    public int countEmpty() {
+        return Bitboard.countEmpty(bits);
+    }
+
+    @Override
+    public int maxExponent() {
+        return Bitboard.maxExponent(bits);
+    }
+
+    @Override
+    public boolean canMerge() {
+        return Bitboard.canMerge(bits);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof PackedBoard && ((PackedBoard) o).bits == bits;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(bits);
+    }
+}
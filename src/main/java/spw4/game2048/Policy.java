@@ -0,0 +1,63 @@
+package spw4.game2048;
+
+import java.util.SplittableRandom;
+
+/**
+ * Strategy choosing the next move of a simulated game.
+ * <p>
+ * Policies may keep state, so every simulation worker uses its own instance.
+ */
+public interface Policy {
+
+    /**
+     * Returns the direction to move on {@code board}, or {@code null} if no tile can be moved.
+     */
+    Direction choose(long board, SplittableRandom random);
+
+    /**
+     * Moves in a random direction among those which change the board.
+     */
+    static Policy random() {
+        Direction[] directions = Direction.values();
+        return (board, random) -> {
+            int first = random.nextInt(directions.length);
+            for (int i = 0; i < directions.length; i++) {
+                Direction direction = directions[(first + i) % directions.length];
+                if (Bitboard.move(board, direction) != board) {
+                    return direction;
+                }
+            }
+            return null;
+        };
+    }
+
+    /**
+     * Moves in the direction which gains the highest score, preferring more empty cells on a tie.
+     */
+    static Policy greedy() {
+        Direction[] directions = Direction.values();
+        return (board, random) -> {
+            Direction best = null;
+            long bestRating = -1;
+            for (Direction direction : directions) {
+                long moved = Bitboard.move(board, direction);
+                if (moved != board) {
+                    long rating = ((long) Bitboard.score(board, direction) << 5) | Bitboard.countEmpty(moved);
+                    if (rating > bestRating) {
+                        bestRating = rating;
+                        best = direction;
+                    }
+                }
+            }
+            return best;
+        };
+    }
+
+    /**
+     * Moves as suggested by an expectimax {@link Solver}.
+     */
+    static Policy solver(int maxDepth, long timeBudgetMillis) {
+        Solver solver = new Solver(maxDepth, timeBudgetMillis);
+        return (board, random) -> solver.bestMove(board);
+    }
+}
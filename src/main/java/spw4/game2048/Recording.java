@@ -0,0 +1,126 @@
+package spw4.game2048;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Compact recording of a game which {@link Replayer} plays back exactly.
+ * <p>
+ * A game is played in turns - {@link Game#isOver(boolean) isOver(true)}, which spawns a tile, followed by a move,
+ * like {@link GameServlet} and {@link Main} do - with spawns drawn from a {@link StatefulRandom}. The recording
+ * therefore only keeps the seed and the direction of every turn, packed into 2 bits; the tiles follow from them.
+ * Turns in which a tile was spawned but nothing moved, e.g. because the move was blocked, are listed as idle turns.
+ * <p>
+ * Binary layout, big endian: version (1 byte), board size (1), win score (4), seed (8), number of turns (4),
+ * number of idle turns (4), idle turns (4 each, ascending), directions (4 per byte, first turn in the lowest bits).
+ */
+public final class Recording {
+
+    private static final byte VERSION = 1;
+    private static final int HEADER_SIZE = 22;
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final int size;
+    private final int winScore;
+    private final long seed;
+    private final byte[] directions;
+    private final int turns;
+    private final int[] idleTurns;
+
+    Recording(int size, int winScore, long seed, byte[] directions, int turns, int[] idleTurns) {
+        this.size = size;
+        this.winScore = winScore;
+        this.seed = seed;
+        this.directions = directions;
+        this.turns = turns;
+        this.idleTurns = idleTurns;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getWinScore() {
+        return winScore;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns the number of recorded turns.
+     */
+    public int getTurns() {
+        return turns;
+    }
+
+    /**
+     * Returns the direction moved in the given turn, or {@code null} if nothing was moved.
+     */
+    public Direction getDirection(int turn) {
+        if (turn < 0 || turn >= turns) {
+            throw new IndexOutOfBoundsException("turn " + turn + " of " + turns);
+        }
+        if (Arrays.binarySearch(idleTurns, turn) >= 0) {
+            return null;
+        }
+        return DIRECTIONS[(directions[turn >>> 2] >>> (2 * (turn & 3))) & 3];
+    }
+
+    /**
+     * Returns the number of bytes written by {@link #writeTo(ByteBuffer)}.
+     */
+    public int encodedSize() {
+        return HEADER_SIZE + 4 * idleTurns.length + (turns + 3) / 4;
+    }
+
+    /**
+     * Writes the recording at the position of {@code buffer}.
+     */
+    public void writeTo(ByteBuffer buffer) {
+        buffer.put(VERSION).put((byte) size).putInt(winScore).putLong(seed).putInt(turns).putInt(idleTurns.length);
+        for (int turn : idleTurns) {
+            buffer.putInt(turn);
+        }
+        buffer.put(directions, 0, (turns + 3) / 4);
+    }
+
+    /**
+     * Reads a recording written by {@link #writeTo(ByteBuffer)} from the position of {@code buffer}.
+     *
+     * @throws IllegalArgumentException if the buffer does not hold a recording
+     */
+    public static Recording readFrom(ByteBuffer buffer) {
+        if (buffer.get() != VERSION) {
+            throw new IllegalArgumentException("unknown recording version");
+        }
+        int size = buffer.get();
+        int winScore = buffer.getInt();
+        long seed = buffer.getLong();
+        int turns = buffer.getInt();
+        int[] idleTurns = new int[buffer.getInt()];
+        for (int i = 0; i < idleTurns.length; i++) {
+            idleTurns[i] = buffer.getInt();
+        }
+        byte[] directions = new byte[(turns + 3) / 4];
+        buffer.get(directions);
+        return new Recording(size, winScore, seed, directions, turns, idleTurns);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Recording)) {
+            return false;
+        }
+        Recording other = (Recording) o;
+        return size == other.size && winScore == other.winScore && seed == other.seed && turns == other.turns
+                && Arrays.equals(idleTurns, other.idleTurns)
+                && Arrays.equals(directions, 0, (turns + 3) / 4, other.directions, 0, (turns + 3) / 4);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(seed) * 31 + turns;
+    }
+}
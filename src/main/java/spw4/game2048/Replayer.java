@@ -0,0 +1,108 @@
+package spw4.game2048;
+
+/**
+ * Plays back a {@link Recording} and restores the game after any of its turns.
+ * <p>
+ * The recording is played through once on construction, keeping a checkpoint - tiles, score, moves and the state
+ * of the random number generator - every {@code checkpointInterval} turns. {@link #seek(int)} restores the nearest
+ * checkpoint before the requested turn and only plays the turns after it.
+ */
+public class Replayer {
+
+    /**
+     * Default number of turns between two checkpoints.
+     */
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 256;
+
+    private final Recording recording;
+    private final int checkpointInterval;
+    private final Checkpoint[] checkpoints;
+
+    public Replayer(Recording recording) {
+        this(recording, DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    public Replayer(Recording recording, int checkpointInterval) {
+        if (checkpointInterval < 1) {
+            throw new IllegalArgumentException("checkpointInterval must be positive");
+        }
+        this.recording = recording;
+        this.checkpointInterval = checkpointInterval;
+        this.checkpoints = new Checkpoint[recording.getTurns() / checkpointInterval + 1];
+
+        Game game = new Game(Board.of(recording.getSize()), recording.getWinScore());
+        StatefulRandom random = new StatefulRandom(recording.getSeed());
+        game.random = random;
+        game.initialize();
+        checkpoints[0] = new Checkpoint(game, random);
+        for (int turn = 0; turn < recording.getTurns(); turn++) {
+            play(game, turn);
+            if ((turn + 1) % checkpointInterval == 0) {
+                checkpoints[(turn + 1) / checkpointInterval] = new Checkpoint(game, random);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of turns of the recording.
+     */
+    public int length() {
+        return recording.getTurns();
+    }
+
+    /**
+     * Returns a new game in the state after the first {@code turn} turns of the recording.
+     *
+     * @throws IndexOutOfBoundsException if the turn is negative or beyond the end of the recording
+     */
+    public Game seek(int turn) {
+        if (turn < 0 || turn > recording.getTurns()) {
+            throw new IndexOutOfBoundsException("turn " + turn + " of " + recording.getTurns());
+        }
+        Checkpoint checkpoint = checkpoints[turn / checkpointInterval];
+        Game game = checkpoint.restore(recording);
+        for (int i = turn / checkpointInterval * checkpointInterval; i < turn; i++) {
+            play(game, i);
+        }
+        return game;
+    }
+
+    /**
+     * Returns a new game in the state at the end of the recording.
+     */
+    public Game seekEnd() {
+        return seek(recording.getTurns());
+    }
+
+    private void play(Game game, int turn) {
+        game.isOver(true);
+        Direction direction = recording.getDirection(turn);
+        if (direction != null) {
+            game.move(direction);
+        }
+    }
+
+    private static final class Checkpoint {
+        private final int[][] tiles;
+        private final int score;
+        private final int moves;
+        private final long randomState;
+
+        Checkpoint(Game game, StatefulRandom random) {
+            this.tiles = game.getTiles();
+            this.score = game.getScore();
+            this.moves = game.getMoves();
+            this.randomState = random.getState();
+        }
+
+        Game restore(Recording recording) {
+            Game game = new Game(Board.of(recording.getSize()), recording.getWinScore());
+            game.setTiles(tiles);
+            game.restore(score, moves);
+            StatefulRandom random = new StatefulRandom(0);
+            random.setState(randomState);
+            game.random = random;
+            return game;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package spw4.game2048;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Thread-safe registry of the games played on the server, bounded in size and expiring idle games.
+ * <p>
+ * {@link GameSessions} keeps the games as objects on the heap, {@link OffHeapSessions} encodes them into fixed-size
+ * slots outside of it.
+ */
+public interface SessionStore extends AutoCloseable {
+
+    /**
+     * Starts a new classic game and registers it under a random id, evicting the least recently used games if the
+     * registry is full.
+     *
+     * @return id of the new game
+     */
+    default UUID create() {
+        return create(Game.SIZE, Game.WIN_SCORE);
+    }
+
+    /**
+     * Starts a new game on a board of the given size, see {@link Game#Game(int, int)}, and registers it like
+     * {@link #create()}.
+     *
+     * @return id of the new game
+     * @throws IllegalArgumentException if the board is larger than {@link #getMaxBoardSize()}
+     */
+    UUID create(int size, int winScore);
+
+    /**
+     * Returns the size of the largest board games can be started on.
+     */
+    default int getMaxBoardSize() {
+        return Board.MAX_SIZE;
+    }
+
+    /**
+     * Runs {@code action} on the game with the given id while no other thread can access that game. The game must
+     * not be used after {@code action} has returned.
+     *
+     * @return result of {@code action}, or {@code null} if no game with this id exists
+     */
+    <T> T withGame(UUID id, Function<? super Game, ? extends T> action);
+
+    /**
+     * Removes the game with the given id.
+     *
+     * @return {@code true} if a game was removed
+     */
+    boolean remove(UUID id);
+
+    /**
+     * Returns the number of registered games.
+     */
+    int size();
+
+    /**
+     * Expires all games which have been idle for longer than the idle timeout. Runs in time linear to the number of
+     * games, so it should not be called on request threads; see {@link #startSweeper(long, TimeUnit)}.
+     *
+     * @return number of expired games
+     */
+    int sweep();
+
+    /**
+     * Starts a daemon thread which calls {@link #sweep()} with the given period until {@link #close()} is called.
+     */
+    void startSweeper(long period, TimeUnit unit);
+
+    /**
+     * Stops the sweeper thread, if it was started, and releases the resources of the registry.
+     */
+    @Override
+    void close();
+
+    /**
+     * Returns the number of accesses to a registered game.
+     */
+    long getHits();
+
+    /**
+     * Returns the number of accesses to an unknown, expired or evicted game.
+     */
+    long getMisses();
+
+    /**
+     * Returns the number of games evicted because the registry was full.
+     */
+    long getEvictions();
+
+    /**
+     * Returns the number of games expired because they were idle for too long.
+     */
+    long getExpirations();
+}
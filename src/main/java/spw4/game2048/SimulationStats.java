@@ -0,0 +1,98 @@
+package spw4.game2048;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregate statistics of simulated games.
+ * <p>
+ * Finished games are only counted into fixed-size histograms and sums, so memory does not grow with the number of
+ * games, and the statistics can be read while workers keep recording.
+ */
+public class SimulationStats {
+
+    /**
+     * Number of histogram buckets; scores and move counts are bucketed by their base-2 logarithm.
+     */
+    private static final int BUCKETS = 32;
+
+    private final LongAdder games = new LongAdder();
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder score = new LongAdder();
+    private final LongAccumulator maxScore = new LongAccumulator(Math::max, 0);
+    private final AtomicLongArray maxTiles = new AtomicLongArray(Bitboard.MAX_EXPONENT + 1);
+    private final AtomicLongArray scores = new AtomicLongArray(BUCKETS);
+    private final AtomicLongArray moveCounts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Records a finished game.
+     */
+    public void record(int gameScore, int gameMoves, int maxExponent) {
+        games.increment();
+        moves.add(gameMoves);
+        score.add(gameScore);
+        maxScore.accumulate(gameScore);
+        maxTiles.incrementAndGet(maxExponent);
+        scores.incrementAndGet(bucket(gameScore));
+        moveCounts.incrementAndGet(bucket(gameMoves));
+    }
+
+    public long getGames() {
+        return games.sum();
+    }
+
+    public long getMoves() {
+        return moves.sum();
+    }
+
+    public long getScore() {
+        return score.sum();
+    }
+
+    /**
+     * Returns the number of games which ended with the given largest exponent on the board.
+     */
+    public long getMaxTileCount(int exponent) {
+        return maxTiles.get(exponent);
+    }
+
+    /**
+     * Prints averages and histograms of all games recorded so far.
+     */
+    public void print(PrintStream out) {
+        long gameCount = Math.max(1, getGames());
+        out.printf("games: %d, average score: %.1f, best score: %d, average moves: %.1f%n",
+                getGames(), (double) getScore() / gameCount, maxScore.get(), (double) getMoves() / gameCount);
+
+        out.println("largest tile:");
+        for (int exponent = 0; exponent < maxTiles.length(); exponent++) {
+            long count = maxTiles.get(exponent);
+            if (count > 0) {
+                out.printf("  %6d: %10d (%5.1f%%)%n", Bitboard.toValue(exponent), count, 100.0 * count / gameCount);
+            }
+        }
+        printHistogram(out, "score", scores, gameCount);
+        printHistogram(out, "moves", moveCounts, gameCount);
+    }
+
+    private static void printHistogram(PrintStream out, String name, AtomicLongArray histogram, long total) {
+        out.println(name + ":");
+        for (int bucket = 0; bucket < histogram.length(); bucket++) {
+            long count = histogram.get(bucket);
+            if (count > 0) {
+                long from = bucket == 0 ? 0 : 1L << (bucket - 1);
+                long to = (1L << bucket) - 1;
+                out.printf("  %7d - %7d: %10d (%5.1f%%)%n", from, to, count, 100.0 * count / total);
+            }
+        }
+    }
+
+    /**
+     * Returns 0 for 0, otherwise 1 + the base-2 logarithm of {@code value}.
+     */
+    private static int bucket(int value) {
+        return Math.min(BUCKETS - 1, 32 - Integer.numberOfLeadingZeros(value));
+    }
+}
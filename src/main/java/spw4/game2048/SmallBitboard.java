@@ -0,0 +1,171 @@
+package spw4.game2048;
+
+/**
+ * Static helpers for a 3x3 board packed into the lower 36 bits of a {@code long}, 4 bits per cell like
+ * {@link Bitboard}: the exponent of cell {@code (x, y)} is stored at bit {@code 4 * (3 * x + y)}.
+ * <p>
+ * Moves are looked up per row in tables built from a 3x3 {@link ArrayBoard}, so they follow exactly the rules of a
+ * 3x3 {@link Game}.
+ */
+final class SmallBitboard {
+
+    /**
+     * Number of rows and columns.
+     */
+    static final int SIZE = 3;
+    /**
+     * Number of cells.
+     */
+    static final int CELLS = SIZE * SIZE;
+
+    private static final int ROW_STATES = 1 << (4 * SIZE);
+    private static final char[] LEFT = new char[ROW_STATES];
+    private static final char[] RIGHT = new char[ROW_STATES];
+
+    static {
+        Board board = Board.of(SIZE);
+        for (int row = 0; row < ROW_STATES; row++) {
+            LEFT[row] = (char) moveRow(board, row, Direction.left);
+            RIGHT[row] = (char) moveRow(board, row, Direction.right);
+        }
+    }
+
+    private SmallBitboard() {
+    }
+
+    /**
+     * Packs a 3x3 tile array.
+     *
+     * @throws IllegalArgumentException if the array is not 3x3 or contains a value which is no tile value
+     */
+    static long fromTiles(int[][] tiles) {
+        if (tiles.length != SIZE) {
+            throw new IllegalArgumentException("board must be " + SIZE + "x" + SIZE);
+        }
+        long board = 0;
+        for (int x = 0; x < SIZE; x++) {
+            if (tiles[x].length != SIZE) {
+                throw new IllegalArgumentException("board must be " + SIZE + "x" + SIZE);
+            }
+            for (int y = 0; y < SIZE; y++) {
+                board |= (long) Bitboard.toExponent(tiles[x][y]) << (4 * (SIZE * x + y));
+            }
+        }
+        return board;
+    }
+
+    /**
+     * Unpacks a board into a newly allocated 3x3 tile array.
+     */
+    static int[][] toTiles(long board) {
+        int[][] tiles = new int[SIZE][SIZE];
+        for (int x = 0; x < SIZE; x++) {
+            for (int y = 0; y < SIZE; y++) {
+                tiles[x][y] = Bitboard.toValue((int) (board >>> (4 * (SIZE * x + y))) & 0xF);
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * Returns the board after sliding all tiles in the given direction.
+     */
+    static long move(long board, Direction direction) {
+        switch (direction) {
+            case up:
+                return transpose(moveRows(transpose(board), LEFT));
+            case down:
+                return transpose(moveRows(transpose(board), RIGHT));
+            case left:
+                return moveRows(board, LEFT);
+            case right:
+                return moveRows(board, RIGHT);
+            default:
+                throw new IllegalArgumentException("unknown direction " + direction);
+        }
+    }
+
+    /**
+     * Returns whether a move in any direction changes the board.
+     */
+    static boolean canMove(long board) {
+        return moveRows(board, LEFT) != board || moveRows(board, RIGHT) != board
+                || move(board, Direction.up) != board || move(board, Direction.down) != board;
+    }
+
+    /**
+     * Mirrors the board along its main diagonal, so that column {@code y} becomes row {@code y}.
+     */
+    static long transpose(long board) {
+        return (board & 0xF_000F_000FL)
+                | ((board & 0x0_00F0_00F0L) << 8) | ((board & 0x0_F000_F000L) >>> 8)
+                | ((board & 0x0_0000_0F00L) << 16) | ((board & 0x0_0F00_0000L) >>> 16);
+    }
+
+    /**
+     * Mirrors the board along its horizontal axis, so that row {@code x} becomes row {@code 2 - x}.
+     */
+    static long flipVertical(long board) {
+        return (board & 0x0_00FF_F000L) | ((board & 0x0_0000_0FFFL) << 24) | ((board & 0xF_FF00_0000L) >>> 24);
+    }
+
+    /**
+     * Mirrors the board along its vertical axis, so that column {@code y} becomes column {@code 2 - y}.
+     */
+    static long flipHorizontal(long board) {
+        return (board & 0x0_F00F_00F0L) | ((board & 0x0_0F00_F00FL) << 8) | ((board & 0xF_00F0_0F00L) >>> 8);
+    }
+
+    /**
+     * Returns the smallest of the 8 rotations and reflections of the board, like {@link Bitboard#canonical}.
+     */
+    static long canonical(long board) {
+        long t = transpose(board);
+        long h = flipHorizontal(board);
+        long th = flipHorizontal(t);
+        long min = Math.min(Math.min(board, h), Math.min(flipVertical(board), flipVertical(h)));
+        long tmin = Math.min(Math.min(t, th), Math.min(flipVertical(t), flipVertical(th)));
+        return Math.min(min, tmin);
+    }
+
+    /**
+     * Returns the sum of all tile values, which grows by the value of every spawned tile and is kept by moves.
+     */
+    static int tileSum(long board) {
+        int sum = 0;
+        for (int shift = 0; shift < 4 * CELLS; shift += 4) {
+            sum += Bitboard.toValue((int) (board >>> shift) & 0xF);
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the largest exponent on the board.
+     */
+    static int maxExponent(long board) {
+        int max = 0;
+        for (int shift = 0; shift < 4 * CELLS; shift += 4) {
+            max = Math.max(max, (int) (board >>> shift) & 0xF);
+        }
+        return max;
+    }
+
+    private static long moveRows(long board, char[] table) {
+        return table[(int) board & 0xFFF]
+                | (long) table[(int) (board >>> 12) & 0xFFF] << 12
+                | (long) table[(int) (board >>> 24) & 0xFFF] << 24;
+    }
+
+    private static int moveRow(Board board, int row, Direction direction) {
+        board.clear();
+        for (int y = 0; y < SIZE; y++) {
+            board.setExponent(0, y, (row >>> (4 * y)) & 0xF);
+        }
+        board.move(direction);
+        int moved = 0;
+        for (int y = 0; y < SIZE; y++) {
+            moved |= board.exponentAt(0, y) << (4 * y);
+        }
+        return moved;
+    }
+}
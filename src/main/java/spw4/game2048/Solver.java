@@ -0,0 +1,290 @@
+package spw4.game2048;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Expectimax search for the best move on a {@link Bitboard}.
+ * <p>
+ * Max nodes try all four directions, chance nodes average over every empty cell receiving a 2 (90%) or a 4 (10%).
+ * The search deepens iteratively, one chance level at a time, until the maximum depth is reached or the time budget
+ * is used up, and answers with the best move of the deepest completed iteration. Chance branches whose probability
+ * drops below a cutoff are not expanded but rated by the {@link Heuristic} right away, and evaluated chance nodes
+ * are cached in a {@link TranspositionTable} under their {@link Bitboard#canonical canonical} board.
+ * <p>
+ * Given a {@link ForkJoinPool}, the search runs in parallel: the root moves are forked as tasks, and so are the
+ * children of their chance nodes - every empty cell with a 2 and with a 4 - once an iteration searches at least
+ * {@link #PARALLEL_MIN_DEPTH} levels. Deeper levels are searched sequentially within their task, so every task carries
+ * a subtree large enough to pay for forking it. All tasks share the lock-free transposition table.
+ * <p>
+ * A solver keeps per-search state and must not be used by several threads at the same time.
+ */
+public class Solver {
+
+    /**
+     * Default maximum number of chance levels searched.
+     */
+    public static final int DEFAULT_MAX_DEPTH = 6;
+    /**
+     * Default time budget per move in milliseconds.
+     */
+    public static final long DEFAULT_TIME_BUDGET_MILLIS = 50;
+    /**
+     * Default number of transposition table slots.
+     */
+    public static final int DEFAULT_TABLE_CAPACITY = 1 << 20;
+
+    /**
+     * Probability below which chance branches are not expanded any further.
+     */
+    static final double PROBABILITY_CUTOFF = 0.0001;
+    /**
+     * Minimum depth of an iteration for the children of the chance nodes below the root to be searched in parallel.
+     */
+    static final int PARALLEL_MIN_DEPTH = 3;
+    /**
+     * Number of chance nodes between two reads of the clock.
+     */
+    static final int CLOCK_INTERVAL = 256;
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final int maxDepth;
+    private final long timeBudgetNanos;
+    private final TranspositionTable table;
+    private final ForkJoinPool pool;
+
+    private final LongAdder nodes = new LongAdder();
+    private long deadline;
+    private int searchDepth;
+    /**
+     * Chance nodes left until the clock is read again; parallel tasks may race on it, which only shifts the next read.
+     */
+    private int clockCountdown;
+    private volatile boolean aborted;
+
+    public Solver() {
+        this(DEFAULT_MAX_DEPTH, DEFAULT_TIME_BUDGET_MILLIS);
+    }
+
+    public Solver(int maxDepth, long timeBudgetMillis) {
+        this(maxDepth, timeBudgetMillis, new TranspositionTable(DEFAULT_TABLE_CAPACITY));
+    }
+
+    public Solver(int maxDepth, long timeBudgetMillis, TranspositionTable table) {
+        this(maxDepth, timeBudgetMillis, table, null);
+    }
+
+    /**
+     * Creates a solver which searches in parallel in the given pool, or sequentially if {@code pool} is
+     * {@code null}.
+     */
+    public Solver(int maxDepth, long timeBudgetMillis, TranspositionTable table, ForkJoinPool pool) {
+        if (maxDepth < 1) {
+            throw new IllegalArgumentException("maxDepth must be positive");
+        }
+        this.maxDepth = maxDepth;
+        this.timeBudgetNanos = timeBudgetMillis * 1_000_000;
+        this.table = table;
+        this.pool = pool;
+    }
+
+    /**
+     * Returns the best move for the given board, or {@code null} if no tile can be moved.
+     */
+    public Direction bestMove(long board) {
+        deadline = System.nanoTime() + timeBudgetNanos;
+        nodes.reset();
+        aborted = false;
+        clockCountdown = CLOCK_INTERVAL;
+        table.nextSearch();
+
+        // an aborted first iteration still has to answer with a legal move
+        Direction best = anyMove(board);
+        for (int depth = 1; depth <= maxDepth && best != null; depth++) {
+            searchDepth = depth;
+            Direction candidate = pool != null ? pool.invoke(new RootTask(board, depth)) : searchRoot(board, depth);
+            if (aborted) {
+                break;
+            }
+            best = candidate;
+        }
+        return best;
+    }
+
+    /**
+     * Returns the number of nodes visited by the last call to {@link #bestMove(long)}.
+     */
+    public long getNodes() {
+        return nodes.sum();
+    }
+
+    private Direction searchRoot(long board, int depth) {
+        Direction best = null;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (Direction direction : DIRECTIONS) {
+            long moved = Bitboard.move(board, direction);
+            if (moved == board) {
+                continue;
+            }
+            double value = chanceNode(moved, depth, 1.0);
+            if (aborted) {
+                return null;
+            }
+            if (value > bestValue) {
+                bestValue = value;
+                best = direction;
+            }
+        }
+        return best;
+    }
+
+    private double maxNode(long board, int depth, double probability) {
+        double best = 0;
+        for (Direction direction : DIRECTIONS) {
+            long moved = Bitboard.move(board, direction);
+            if (moved != board) {
+                best = Math.max(best, chanceNode(moved, depth, probability));
+            }
+        }
+        return best;
+    }
+
+    private double chanceNode(long board, int depth, double probability) {
+        if (depth == 0 || probability < PROBABILITY_CUTOFF) {
+            return Heuristic.evaluate(board);
+        }
+        nodes.increment();
+        if (--clockCountdown <= 0) {
+            clockCountdown = CLOCK_INTERVAL;
+            if (System.nanoTime() - deadline > 0) {
+                aborted = true;
+            }
+        }
+        if (aborted) {
+            return 0;
+        }
+        // the heuristic and the moves are symmetric, so all rotations and reflections share one entry
+        long key = Bitboard.canonical(board);
+        double cached = table.get(key, depth);
+        if (!Double.isNaN(cached)) {
+            return cached;
+        }
+
+        int empty = Bitboard.countEmpty(board);
+        double cellProbability = probability / empty;
+        double sum = 0;
+        // only chance nodes right below the root have the full depth of the iteration left
+        if (pool != null && depth == searchDepth && depth >= PARALLEL_MIN_DEPTH) {
+            List<MaxTask> tasks = new ArrayList<>(2 * empty);
+            for (int shift = 0; shift < 64; shift += 4) {
+                if (((board >>> shift) & 0xF) == 0) {
+                    tasks.add(new MaxTask(board | (1L << shift), depth - 1, cellProbability * 0.9, 0.9));
+                    tasks.add(new MaxTask(board | (2L << shift), depth - 1, cellProbability * 0.1, 0.1));
+                }
+            }
+            for (MaxTask task : ForkJoinTask.invokeAll(tasks)) {
+                sum += task.join();
+            }
+        } else {
+            for (int shift = 0; shift < 64; shift += 4) {
+                if (((board >>> shift) & 0xF) == 0) {
+                    sum += 0.9 * maxNode(board | (1L << shift), depth - 1, cellProbability * 0.9);
+                    sum += 0.1 * maxNode(board | (2L << shift), depth - 1, cellProbability * 0.1);
+                }
+            }
+        }
+        double value = sum / empty;
+        if (!aborted) {
+            table.put(key, depth, value);
+        }
+        return value;
+    }
+
+    private static Direction anyMove(long board) {
+        for (Direction direction : DIRECTIONS) {
+            if (Bitboard.move(board, direction) != board) {
+                return direction;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Searches all root moves in parallel; answers with the best one, or {@code null} if the search was aborted.
+     */
+    private final class RootTask extends RecursiveTask<Direction> {
+        private final long board;
+        private final int depth;
+
+        RootTask(long board, int depth) {
+            this.board = board;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Direction compute() {
+            List<Direction> directions = new ArrayList<>(DIRECTIONS.length);
+            List<ChanceTask> tasks = new ArrayList<>(DIRECTIONS.length);
+            for (Direction direction : DIRECTIONS) {
+                long moved = Bitboard.move(board, direction);
+                if (moved != board) {
+                    directions.add(direction);
+                    tasks.add(new ChanceTask(moved, depth));
+                }
+            }
+            invokeAll(tasks);
+
+            Direction best = null;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < tasks.size(); i++) {
+                double value = tasks.get(i).join();
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = directions.get(i);
+                }
+            }
+            return aborted ? null : best;
+        }
+    }
+
+    private final class ChanceTask extends RecursiveTask<Double> {
+        private final long board;
+        private final int depth;
+
+        ChanceTask(long board, int depth) {
+            this.board = board;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Double compute() {
+            return chanceNode(board, depth, 1.0);
+        }
+    }
+
+    /**
+     * Rates the child of a chance node, weighted by the probability of its tile.
+     */
+    private final class MaxTask extends RecursiveTask<Double> {
+        private final long board;
+        private final int depth;
+        private final double probability;
+        private final double weight;
+
+        MaxTask(long board, int depth, double probability, double weight) {
+            this.board = board;
+            this.depth = depth;
+            this.probability = probability;
+            this.weight = weight;
+        }
+
+        @Override
+        protected Double compute() {
+            return weight * maxNode(board, depth, probability);
+        }
+    }
+}
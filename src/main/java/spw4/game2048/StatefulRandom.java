@@ -0,0 +1,56 @@
+package spw4.game2048;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * {@link Random} whose state can be read and restored, so a game can be replayed from any point.
+ * <p>
+ * Uses the same linear congruential generator as {@link Random}: for the same seed both produce the same numbers.
+ * Unlike {@link Random}, an instance must not be shared between threads.
+ */
+public class StatefulRandom extends Random {
+
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    /**
+     * Current 48 bit state; set by the constructor of {@link Random} through {@link #setSeed(long)}.
+     */
+    private long state;
+
+    /**
+     * Creates a generator with a seed which very likely differs from that of any other generator.
+     */
+    public StatefulRandom() {
+        this(ThreadLocalRandom.current().nextLong());
+    }
+
+    public StatefulRandom(long seed) {
+        super(seed);
+    }
+
+    @Override
+    public synchronized void setSeed(long seed) {
+        super.setSeed(seed);
+        state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    /**
+     * Returns the current state, which {@link #setState(long)} accepts to continue with the same numbers.
+     */
+    public long getState() {
+        return state;
+    }
+
+    public void setState(long state) {
+        this.state = state & MASK;
+    }
+
+    @Override
+    protected int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+}
@@ -0,0 +1,164 @@
+package spw4.game2048;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Exact win probabilities of the 3x3 game under perfect play, read from a file written by
+ * {@link TablebaseGenerator}.
+ * <p>
+ * A position is a board with the player to move, i.e. after a tile was spawned. The table holds every position
+ * which is neither won nor lost and reachable from a new game on the server, which spawns a tile before every
+ * request, stored once for all of its rotations and reflections; won positions are answered with 1 and lost ones
+ * with 0 without a lookup.
+ * <p>
+ * The file is memory-mapped and searched in place, nothing is loaded onto the heap. Moves keep the sum of all tiles
+ * and every spawn raises it, so positions are grouped by tile sum, and every group is sorted by the
+ * {@link SmallBitboard#canonical canonical} board. A lookup is a binary search within one group. Lookups only use
+ * absolute reads of the buffer, so a tablebase can be shared between threads.
+ * <p>
+ * File layout, big-endian: {@link #MAGIC}, board size, exponent of the winning tile, number of groups {@code g};
+ * {@code g + 1} ints with the index of the first position of every group (the last one is the number of positions
+ * {@code n}); {@code n} longs with the canonical boards; {@code n} floats with their win probabilities.
+ */
+public final class Tablebase {
+
+    /**
+     * First four bytes of a tablebase file.
+     */
+    static final int MAGIC = 0x3230_3438;
+
+    private final MappedByteBuffer buffer;
+    private final int targetExponent;
+    private final int groups;
+    private final long keysOffset;
+    private final long valuesOffset;
+    private final int positions;
+
+    private Tablebase(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < 16 || buffer.getInt(0) != MAGIC || buffer.getInt(4) != SmallBitboard.SIZE) {
+            throw new IOException("not a " + SmallBitboard.SIZE + "x" + SmallBitboard.SIZE + " tablebase");
+        }
+        targetExponent = buffer.getInt(8);
+        groups = buffer.getInt(12);
+        keysOffset = 16 + 4L * (groups + 1);
+        positions = groups < 0 || keysOffset > buffer.capacity() ? -1 : buffer.getInt(16 + 4 * groups);
+        valuesOffset = keysOffset + 8L * positions;
+        if (positions < 0 || valuesOffset + 4L * positions != buffer.capacity()) {
+            throw new IOException("truncated tablebase");
+        }
+    }
+
+    /**
+     * Maps the given tablebase file into memory.
+     *
+     * @throws IOException if the file cannot be read or is no tablebase
+     */
+    public static Tablebase open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            return new Tablebase(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Returns the value of the tile which wins the game.
+     */
+    public int getWinScore() {
+        return Bitboard.toValue(targetExponent);
+    }
+
+    /**
+     * Returns the number of stored positions.
+     */
+    public int getPositions() {
+        return positions;
+    }
+
+    /**
+     * Returns the probability to reach the winning tile from the given 3x3 tiles with perfect play, or
+     * {@link Double#NaN} if the position is not covered, i.e. not reachable in a game.
+     *
+     * @throws IllegalArgumentException if the array is not 3x3 or contains a value which is no tile value
+     */
+    public double winProbability(int[][] tiles) {
+        return winProbability(SmallBitboard.fromTiles(tiles));
+    }
+
+    /**
+     * Returns the move with the highest win probability from the given 3x3 tiles, or {@code null} if no tile can be
+     * moved, the game is already won or the position is not covered.
+     *
+     * @throws IllegalArgumentException if the array is not 3x3 or contains a value which is no tile value
+     */
+    public Direction bestMove(int[][] tiles) {
+        long board = SmallBitboard.fromTiles(tiles);
+        if (SmallBitboard.maxExponent(board) >= targetExponent || Double.isNaN(winProbability(board))) {
+            return null;
+        }
+        Direction best = null;
+        double bestValue = -1;
+        for (Direction direction : Direction.values()) {
+            long after = SmallBitboard.move(board, direction);
+            if (after == board) {
+                continue;
+            }
+            double value = afterMove(after);
+            if (value > bestValue) {
+                best = direction;
+                bestValue = value;
+            }
+        }
+        return best;
+    }
+
+    double winProbability(long board) {
+        if (SmallBitboard.maxExponent(board) >= targetExponent) {
+            return 1;
+        }
+        if (!SmallBitboard.canMove(board)) {
+            return 0;
+        }
+        int group = SmallBitboard.tileSum(board) / 2;
+        if (group >= groups) {
+            return Double.NaN;
+        }
+        long key = SmallBitboard.canonical(board);
+        int low = buffer.getInt(16 + 4 * group);
+        int high = buffer.getInt(16 + 4 * (group + 1)) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long probe = buffer.getLong((int) (keysOffset + 8L * mid));
+            if (probe < key) {
+                low = mid + 1;
+            } else if (probe > key) {
+                high = mid - 1;
+            } else {
+                return buffer.getFloat((int) (valuesOffset + 4L * mid));
+            }
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * Returns the win probability after a move, averaged over all tiles which may be spawned next.
+     */
+    private double afterMove(long board) {
+        if (SmallBitboard.maxExponent(board) >= targetExponent) {
+            return 1;
+        }
+        double sum = 0;
+        int empty = 0;
+        for (int shift = 0; shift < 4 * SmallBitboard.CELLS; shift += 4) {
+            if (((board >>> shift) & 0xF) == 0) {
+                sum += 0.9 * winProbability(board | (1L << shift)) + 0.1 * winProbability(board | (2L << shift));
+                empty++;
+            }
+        }
+        return sum / empty;
+    }
+}
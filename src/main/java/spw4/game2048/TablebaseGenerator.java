@@ -0,0 +1,229 @@
+package spw4.game2048;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Offline generator of a {@link Tablebase} for the 3x3 game won by a given tile.
+ * <p>
+ * The generator first enumerates all positions reachable from a new game, one tile sum after the other: a new game
+ * holds two spawned tiles, and every position spawns the positions of the next two tile sums (a 2 or a 4 on every
+ * empty cell after every possible move). As the server spawns a tile before every request, not just after moves,
+ * a 2 or a 4 on every empty cell of the position itself is reachable as well, e.g. a third tile on a new game.
+ * Positions are kept once per symmetry class, sorted by canonical board, and won or lost positions are not kept.
+ * Afterwards it solves them backwards from the largest tile sum: a position is worth the best of its moves, and a
+ * move is worth the average over all spawns - 90% a 2 and 10% a 4 on a uniformly chosen empty cell - where a winning
+ * move is worth 1 and a lost position 0.
+ */
+public final class TablebaseGenerator {
+
+    private final int targetExponent;
+    private final long[][] layers;
+    private final float[][] values;
+
+    private TablebaseGenerator(int winScore) {
+        targetExponent = Bitboard.toExponent(winScore);
+        if (targetExponent < 3) {
+            throw new IllegalArgumentException("win score must be at least 8");
+        }
+        // positions without a winning tile hold at most 9 tiles below it
+        layers = new long[SmallBitboard.CELLS * Bitboard.toValue(targetExponent - 1) / 2 + 1][];
+        values = new float[layers.length][];
+    }
+
+    /**
+     * Solves the 3x3 game won by a tile of {@code winScore} and writes the tablebase to {@code file}.
+     *
+     * @return number of stored positions
+     * @throws IllegalArgumentException if the win score is no tile value of at least 8
+     */
+    public static int generate(int winScore, Path file) throws IOException {
+        TablebaseGenerator generator = new TablebaseGenerator(winScore);
+        generator.enumerate();
+        generator.solve();
+        try (OutputStream out = Files.newOutputStream(file)) {
+            return generator.write(out);
+        }
+    }
+
+    private void enumerate() {
+        LongList[] pending = new LongList[layers.length + 2];
+        for (int first = 0; first < SmallBitboard.CELLS; first++) {
+            for (int second = 0; second < SmallBitboard.CELLS; second++) {
+                if (first != second) {
+                    for (long a = 1; a <= 2; a++) {
+                        for (long b = 1; b <= 2; b++) {
+                            long board = (a << (4 * first)) | (b << (4 * second));
+                            add(pending, SmallBitboard.canonical(board));
+                        }
+                    }
+                }
+            }
+        }
+
+        for (int layer = 0; layer < layers.length; layer++) {
+            long[] positions = pending[layer] == null ? new long[0] : pending[layer].sortedUnique();
+            pending[layer] = null;
+            int kept = 0;
+            for (long board : positions) {
+                if (SmallBitboard.canMove(board)) {
+                    positions[kept++] = board;
+                }
+            }
+            layers[layer] = Arrays.copyOf(positions, kept);
+
+            for (long board : layers[layer]) {
+                // the server spawns a tile before every request, also before requests which do not move
+                addSpawns(pending, board);
+                for (Direction direction : Direction.values()) {
+                    long after = SmallBitboard.move(board, direction);
+                    if (after != board && SmallBitboard.maxExponent(after) < targetExponent) {
+                        addSpawns(pending, after);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the positions after a 2 or a 4 was spawned on any empty cell of the board.
+     */
+    private static void addSpawns(LongList[] pending, long board) {
+        for (int shift = 0; shift < 4 * SmallBitboard.CELLS; shift += 4) {
+            if (((board >>> shift) & 0xF) == 0) {
+                add(pending, SmallBitboard.canonical(board | (1L << shift)));
+                add(pending, SmallBitboard.canonical(board | (2L << shift)));
+            }
+        }
+    }
+
+    private static void add(LongList[] pending, long board) {
+        int layer = SmallBitboard.tileSum(board) / 2;
+        if (pending[layer] == null) {
+            pending[layer] = new LongList();
+        }
+        pending[layer].add(board);
+    }
+
+    private void solve() {
+        for (int layer = layers.length - 1; layer >= 0; layer--) {
+            long[] positions = layers[layer];
+            float[] solved = new float[positions.length];
+            for (int i = 0; i < positions.length; i++) {
+                long board = positions[i];
+                double best = 0;
+                for (Direction direction : Direction.values()) {
+                    long after = SmallBitboard.move(board, direction);
+                    if (after != board) {
+                        best = Math.max(best, afterMove(after, layer));
+                    }
+                }
+                solved[i] = (float) best;
+            }
+            values[layer] = solved;
+        }
+    }
+
+    private double afterMove(long board, int layer) {
+        if (SmallBitboard.maxExponent(board) >= targetExponent) {
+            return 1;
+        }
+        double sum = 0;
+        int empty = 0;
+        for (int shift = 0; shift < 4 * SmallBitboard.CELLS; shift += 4) {
+            if (((board >>> shift) & 0xF) == 0) {
+                sum += 0.9 * lookup(board | (1L << shift), layer + 1) + 0.1 * lookup(board | (2L << shift), layer + 2);
+                empty++;
+            }
+        }
+        return sum / empty;
+    }
+
+    private double lookup(long board, int layer) {
+        if (layer >= layers.length) {
+            return 0;
+        }
+        int index = Arrays.binarySearch(layers[layer], SmallBitboard.canonical(board));
+        // positions which are not kept are lost
+        return index < 0 ? 0 : values[layer][index];
+    }
+
+    private int write(OutputStream file) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16));
+        out.writeInt(Tablebase.MAGIC);
+        out.writeInt(SmallBitboard.SIZE);
+        out.writeInt(targetExponent);
+        out.writeInt(layers.length);
+        int positions = 0;
+        for (long[] layer : layers) {
+            out.writeInt(positions);
+            positions += layer.length;
+        }
+        out.writeInt(positions);
+        for (long[] layer : layers) {
+            for (long board : layer) {
+                out.writeLong(board);
+            }
+        }
+        for (float[] layer : values) {
+            for (float value : layer) {
+                out.writeFloat(value);
+            }
+        }
+        out.flush();
+        return positions;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("usage: TablebaseGenerator <win score> <file>");
+            return;
+        }
+        int winScore = Integer.parseInt(args[0]);
+        long start = System.nanoTime();
+        int positions = generate(winScore, Paths.get(args[1]));
+        System.out.printf(Locale.ROOT, "3x3 up to %d: %d positions, %d bytes, %.1f s%n", winScore, positions,
+                Files.size(Paths.get(args[1])), (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Growable array of boards.
+     */
+    private static final class LongList {
+        private long[] elements = new long[16];
+        private int size;
+
+        void add(long element) {
+            if (size == elements.length) {
+                // most boards are reached many times, so duplicates are dropped before growing
+                size = removeDuplicates();
+                if (size > elements.length / 2) {
+                    elements = Arrays.copyOf(elements, elements.length * 2);
+                }
+            }
+            elements[size++] = element;
+        }
+
+        long[] sortedUnique() {
+            return Arrays.copyOf(elements, removeDuplicates());
+        }
+
+        private int removeDuplicates() {
+            Arrays.sort(elements, 0, size);
+            int unique = 0;
+            for (int i = 0; i < size; i++) {
+                if (unique == 0 || elements[i] != elements[unique - 1]) {
+                    elements[unique++] = elements[i];
+                }
+            }
+            return unique;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package spw4.game2048;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Strategy putting a new random tile on a {@link Bitboard}.
+ */
+@FunctionalInterface
+public interface TileSpawner {
+
+    /**
+     * Returns the board with a new tile on one of its empty cells, or the unchanged board if it is full.
+     */
+    long spawn(long board);
+
+    /**
+     * Returns a spawner which puts a 2 (90%) or a 4 (10%) on a uniformly chosen empty cell.
+     * <p>
+     * Cell and value are derived from a single random draw, and the chosen empty cell is looked up in constant time
+     * from the board's empty-cell mask (see {@link Bitboard#emptyCellShift(long, int)}), so a spawn costs the same
+     * on nearly empty and nearly full boards.
+     *
+     * @param nextInt returns a random number between 0 (inclusive) and its argument (exclusive)
+     */
+    static TileSpawner uniform(IntUnaryOperator nextInt) {
+        return board -> {
+            int empty = Bitboard.countEmpty(board);
+            if (empty == 0) {
+                return board;
+            }
+            int draw = nextInt.applyAsInt(empty * 10);
+            long exponent = draw % 10 == 0 ? 2 : 1;
+            return board | (exponent << Bitboard.emptyCellShift(board, draw / 10));
+        };
+    }
+
+    /**
+     * Returns a {@link #uniform(IntUnaryOperator) uniform} spawner drawing from a {@link SplittableRandom}, which is
+     * faster than {@link Random} because it does not synchronize; use one generator per thread.
+     */
+    static TileSpawner uniform(SplittableRandom random) {
+        return uniform(random::nextInt);
+    }
+
+    /**
+     * Returns a {@link #uniform(IntUnaryOperator) uniform} spawner drawing from a {@link Random}.
+     */
+    static TileSpawner uniform(Random random) {
+        return uniform(random::nextInt);
+    }
+}
@@ -0,0 +1,106 @@
+package spw4.game2048;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed-size cache of evaluated chance nodes for the {@link Solver}, keyed by board.
+ * <p>
+ * The table is a power-of-two array of slots addressed by a hash of the board; there are no chains, so a
+ * collision replaces the resident entry according to the replacement policy: an entry is kept only if it
+ * stems from the current search and was searched deeper than the new one. {@link #nextSearch()} starts a new
+ * search generation, which makes all older entries replaceable without clearing the table.
+ * <p>
+ * Every slot holds two longs, the packed data (value, depth, generation) and the board XOR the data. A lookup
+ * only hits if both words fit together, so torn or interleaved writes of concurrent searches are detected and
+ * treated as a miss, and the table can be shared between threads without locking. The generation is advanced
+ * atomically, so concurrent searches never lose a {@link #nextSearch()}; a search which starts while another one is
+ * still running makes the entries of the running search replaceable, which costs hits but never a wrong value.
+ */
+public class TranspositionTable {
+
+    private final long[] checks;
+    private final long[] data;
+    private final int mask;
+    private final AtomicInteger generation = new AtomicInteger(1);
+
+    /**
+     * Creates a table with at least {@code minCapacity} slots, rounded up to a power of two.
+     */
+    public TranspositionTable(int minCapacity) {
+        if (minCapacity < 1 || minCapacity > 1 << 30) {
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30");
+        }
+        int capacity = Integer.highestOneBit(minCapacity);
+        if (capacity < minCapacity) {
+            capacity <<= 1;
+        }
+        checks = new long[capacity];
+        data = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Returns the number of slots.
+     */
+    public int capacity() {
+        return data.length;
+    }
+
+    /**
+     * Starts a new search generation; entries of former generations are replaced on collision.
+     */
+    public void nextSearch() {
+        generation.updateAndGet(current -> (current & 0xFF) == 0xFF ? 1 : current + 1);
+    }
+
+    /**
+     * Returns the stored value of {@code board} if it was searched at least {@code depth} deep, otherwise
+     * {@link Double#NaN}.
+     */
+    public double get(long board, int depth) {
+        int index = index(board);
+        long entry = data[index];
+        if (entry == 0 || (checks[index] ^ entry) != board || depthOf(entry) < depth) {
+            return Double.NaN;
+        }
+        return Float.intBitsToFloat((int) (entry >>> 32));
+    }
+
+    /**
+     * Stores the value of {@code board} searched {@code depth} deep, unless the slot holds a deeper entry of the
+     * current search.
+     */
+    public void put(long board, int depth, double value) {
+        int index = index(board);
+        long resident = data[index];
+        int generation = this.generation.get();
+        if (resident != 0 && generationOf(resident) == generation && depthOf(resident) > depth
+                && (checks[index] ^ resident) != board) {
+            return;
+        }
+        long entry = ((long) Float.floatToRawIntBits((float) value) << 32) | ((long) generation << 8) | depth;
+        data[index] = entry;
+        checks[index] = board ^ entry;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        Arrays.fill(data, 0);
+        Arrays.fill(checks, 0);
+    }
+
+    private int index(long board) {
+        return (int) Bitboard.hash(board) & mask;
+    }
+
+    private static int depthOf(long entry) {
+        return (int) entry & 0xFF;
+    }
+
+    private static int generationOf(long entry) {
+        return (int) (entry >>> 8) & 0xFF;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Plays 2048 without reloading the page: direction links and arrow keys request the compact JSON state
+ * (Game?id=...&action=...&format=json) and the grid, moves and score are patched in place.
+ * Without script support the links keep working as plain page navigation.
+ */
+(function () {
+    'use strict';
+
+    var KEYS = {ArrowUp: 'up', ArrowDown: 'down', ArrowLeft: 'left', ArrowRight: 'right'};
+    var id = document.body.getAttribute('data-game');
+    var cells = document.querySelectorAll('[data-cell]');
+    var moves = document.getElementById('moves');
+    var score = document.getElementById('score');
+    var pending = false;
+
+    if (!id || !cells.length || !window.fetch) {
+        return;
+    }
+
+    function update(state) {
+        moves.textContent = state.moves;
+        score.textContent = state.score;
+        for (var i = 0; i < cells.length; i++) {
+            var value = state.tiles[i] === 0 ? 0 : 1 << state.tiles[i];
+            if (cells[i].textContent !== String(value)) {
+                cells[i].textContent = value;
+            }
+        }
+        if (state.over) {
+            // the page shows the final result
+            window.location.href = 'Game?id=' + id;
+        }
+    }
+
+    function move(action) {
+        var url = 'Game?id=' + encodeURIComponent(id) + '&action=' + action + '&format=json';
+        if (pending) {
+            return;
+        }
+        pending = true;
+        fetch(url, {cache: 'no-store'})
+            .then(function (response) {
+                var type = response.headers.get('Content-Type') || '';
+                if (!response.ok || type.indexOf('application/json') !== 0) {
+                    throw new Error('no game state');
+                }
+                return response.json();
+            })
+            .then(update)
+            .catch(function () {
+                // the move may have reached the server already, so only show the current state
+                window.location.href = 'Game?id=' + encodeURIComponent(id);
+            })
+            .then(function () {
+                pending = false;
+            });
+    }
+
+    document.addEventListener('click', function (event) {
+        var link = event.target.closest('a[href*="action="]');
+        var match = link && /action=(up|down|left|right)/.exec(link.getAttribute('href'));
+        if (match) {
+            event.preventDefault();
+            move(match[1]);
+        }
+    });
+
+    document.addEventListener('keydown', function (event) {
+        var action = KEYS[event.key];
+        if (action) {
+            event.preventDefault();
+            move(action);
+        }
+    });
+})();
@@ -0,0 +1,36 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchSimulatorTest {
+
+    @DisplayName("BatchSimulator.run() plays all games and records them")
+    @Test
+    void runPlaysAllGames() throws Exception {
+        SimulationStats stats = new BatchSimulator(Policy::greedy, 3, 42).run(100);
+        long maxTiles = 0;
+        for (int exponent = 0; exponent <= Bitboard.MAX_EXPONENT; exponent++) {
+            maxTiles += stats.getMaxTileCount(exponent);
+        }
+        assertEquals(100, stats.getGames());
+        assertEquals(100, maxTiles);
+        assertTrue(stats.getMoves() > 100 * 50);
+        assertTrue(stats.getScore() > 0);
+    }
+
+    @DisplayName("BatchSimulator.run() is reproducible for the same seed and number of threads")
+    @Test
+    void runIsReproducible() throws Exception {
+        SimulationStats first = new BatchSimulator(Policy::random, 4, 7).run(200);
+        SimulationStats second = new BatchSimulator(Policy::random, 4, 7).run(200);
+        SimulationStats other = new BatchSimulator(Policy::random, 4, 8).run(200);
+        assertAll(
+                () -> assertEquals(first.getMoves(), second.getMoves()),
+                () -> assertEquals(first.getScore(), second.getScore()),
+                () -> assertNotEquals(first.getScore(), other.getScore())
+        );
+    }
+}
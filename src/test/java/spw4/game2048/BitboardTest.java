@@ -0,0 +1,377 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BitboardTest {
+
+    @DisplayName("Bitboard.fromTiles() and toTiles() convert a board without losing information")
+    @Test
+    void fromTilesAndToTilesRoundTrip() {
+        int[][] tiles = {
+                {0, 2, 4, 8},
+                {16, 32, 64, 128},
+                {256, 512, 1024, 2048},
+                {4096, 8192, 16384, 32768},
+        };
+        long board = Bitboard.fromTiles(tiles);
+        assertAll(
+                () -> assertTrue(Arrays.deepEquals(tiles, Bitboard.toTiles(board))),
+                () -> assertEquals(11, Bitboard.exponentAt(board, 2, 3)),
+                () -> assertEquals(2048, Bitboard.valueAt(board, 2, 3)),
+                () -> assertEquals(1, Bitboard.countEmpty(board)),
+                () -> assertEquals(15, Bitboard.maxExponent(board))
+        );
+    }
+
+    @DisplayName("Bitboard.fromTiles() rejects values which are no tile values")
+    @Test
+    void fromTilesRejectsInvalidValues() {
+        assertThrows(IllegalArgumentException.class, () -> Bitboard.fromTiles(new int[][]{
+                {0, 0, 0, 3},
+                {0, 0, 0, 0},
+                {0, 0, 0, 0},
+                {0, 0, 0, 0},
+        }));
+    }
+
+    @DisplayName("Bitboard.transpose() mirrors the board along its main diagonal")
+    @Test
+    void transposeMirrorsBoard() {
+        long board = Bitboard.fromTiles(new int[][]{
+                {2, 4, 8, 16},
+                {0, 0, 0, 32},
+                {0, 0, 0, 64},
+                {0, 0, 0, 128},
+        });
+        assertTrue(Arrays.deepEquals(new int[][]{
+                {2, 0, 0, 0},
+                {4, 0, 0, 0},
+                {8, 0, 0, 0},
+                {16, 32, 64, 128},
+        }, Bitboard.toTiles(Bitboard.transpose(board))));
+    }
+
+    @DisplayName("Bitboard.emptyCellShift() finds the k-th empty cell for random boards")
+    @Test
+    void emptyCellShiftFindsKthEmptyCell() {
+        Random random = new Random(2048);
+        for (int i = 0; i < 10_000; i++) {
+            long board = 0;
+            for (int shift = 0; shift < 64; shift += 4) {
+                if (random.nextBoolean()) {
+                    board |= (long) (1 + random.nextInt(15)) << shift;
+                }
+            }
+            int k = 0;
+            for (int shift = 0; shift < 64; shift += 4) {
+                if (((board >>> shift) & 0xF) == 0) {
+                    assertEquals(shift, Bitboard.emptyCellShift(board, k++));
+                }
+            }
+            assertEquals(Bitboard.countEmpty(board), k);
+        }
+    }
+
+    @DisplayName("Bitboard.canMerge() is false for a full board exactly if no tile can be moved")
+    @Test
+    void canMergeMatchesMovability() {
+        Random random = new Random(2048);
+        for (int i = 0; i < 10_000; i++) {
+            long board = 0;
+            for (int shift = 0; shift < 64; shift += 4) {
+                board |= (long) (1 + random.nextInt(random.nextBoolean() ? 3 : 15)) << shift;
+            }
+            boolean movable = false;
+            for (Direction direction : Direction.values()) {
+                movable |= Bitboard.move(board, direction) != board;
+            }
+            assertEquals(movable, Bitboard.canMerge(board));
+        }
+    }
+
+    @DisplayName("Bitboard.move() and score() match the array based move for random boards")
+    @ParameterizedTest(name = "direction to move = {0}")
+    @EnumSource(Direction.class)
+    void moveMatchesArrayBasedMove(Direction direction) {
+        Random random = new Random(2048);
+        for (int i = 0; i < 10_000; i++) {
+            int[][] tiles = new int[Game.SIZE][Game.SIZE];
+            for (int[] row : tiles) {
+                for (int y = 0; y < Game.SIZE; y++) {
+                    // small exponents make merges likely
+                    int exponent = random.nextInt(6);
+                    row[y] = exponent == 0 ? 0 : 1 << exponent;
+                }
+            }
+            long board = Bitboard.fromTiles(tiles);
+            int score = legacyMove(tiles, direction);
+
+            assertEquals(Bitboard.fromTiles(tiles), Bitboard.move(board, direction));
+            assertEquals(score, Bitboard.score(board, direction));
+        }
+    }
+
+    @DisplayName("Bitboard.move() and score() match the array based move for every row of large tiles")
+    @ParameterizedTest(name = "direction to move = {0}")
+    @EnumSource(Direction.class)
+    void moveMatchesArrayBasedMoveForLargeTiles(Direction direction) {
+        // exponents 11 to 14 give the largest scores a row can gain, which the tables keep in 16 bits
+        for (int row = 0; row < 1 << 8; row++) {
+            int[][] tiles = new int[Game.SIZE][Game.SIZE];
+            for (int y = 0; y < Game.SIZE; y++) {
+                tiles[1][y] = 1 << (11 + ((row >>> (2 * y)) & 3));
+                tiles[2][y] = 1 << (11 + ((row >>> (2 * y)) & 3));
+            }
+            long board = Bitboard.fromTiles(tiles);
+            int score = legacyMove(tiles, direction);
+
+            assertEquals(Bitboard.fromTiles(tiles), Bitboard.move(board, direction));
+            assertEquals(score, Bitboard.score(board, direction));
+        }
+    }
+
+    @DisplayName("Bitboard.flipVertical() and flipHorizontal() mirror the board along its axes")
+    @Test
+    void flipsMirrorBoard() {
+        long board = Bitboard.fromTiles(new int[][]{
+                {2, 4, 8, 16},
+                {0, 0, 0, 32},
+                {0, 0, 0, 64},
+                {0, 0, 0, 128},
+        });
+        assertAll(
+                () -> assertTrue(Arrays.deepEquals(new int[][]{
+                        {0, 0, 0, 128},
+                        {0, 0, 0, 64},
+                        {0, 0, 0, 32},
+                        {2, 4, 8, 16},
+                }, Bitboard.toTiles(Bitboard.flipVertical(board)))),
+                () -> assertTrue(Arrays.deepEquals(new int[][]{
+                        {16, 8, 4, 2},
+                        {32, 0, 0, 0},
+                        {64, 0, 0, 0},
+                        {128, 0, 0, 0},
+                }, Bitboard.toTiles(Bitboard.flipHorizontal(board))))
+        );
+    }
+
+    @DisplayName("Bitboard.canonical() and canonicalHash() are the same for all 8 symmetries of random boards")
+    @Test
+    void canonicalIsSameForAllSymmetries() {
+        Random random = new Random(2048);
+        for (int i = 0; i < 10_000; i++) {
+            long board = 0;
+            for (int shift = 0; shift < 64; shift += 4) {
+                if (random.nextBoolean()) {
+                    board |= (long) (1 + random.nextInt(15)) << shift;
+                }
+            }
+            long[] symmetries = symmetries(board);
+            long canonical = Bitboard.canonical(board);
+            long min = symmetries[0];
+            for (long symmetry : symmetries) {
+                assertEquals(canonical, Bitboard.canonical(symmetry));
+                assertEquals(Bitboard.canonicalHash(board), Bitboard.canonicalHash(symmetry));
+                if (Long.compareUnsigned(symmetry, min) < 0) {
+                    min = symmetry;
+                }
+            }
+            assertEquals(min, canonical);
+        }
+    }
+
+    @DisplayName("Bitboard.symmetry() turns a move into the same move on the mirrored board for random boards")
+    @Test
+    void symmetryMapsMoves() {
+        Random random = new Random(2048);
+        for (int i = 0; i < 2_000; i++) {
+            long board = 0;
+            for (int shift = 0; shift < 64; shift += 4) {
+                if (random.nextInt(3) > 0) {
+                    board |= (long) (1 + random.nextInt(4)) << shift;
+                }
+            }
+            assertEquals(Bitboard.canonical(board),
+                    Bitboard.symmetry(board, Bitboard.canonicalSymmetry(board)));
+            for (int symmetry = 0; symmetry < 8; symmetry++) {
+                long mirrored = Bitboard.symmetry(board, symmetry);
+                for (Direction direction : Direction.values()) {
+                    Direction moved = Bitboard.symmetry(direction, symmetry);
+                    assertEquals(Bitboard.symmetry(Bitboard.move(board, direction), symmetry),
+                            Bitboard.move(mirrored, moved));
+                    assertEquals(direction, Bitboard.inverseSymmetry(moved, symmetry));
+                }
+            }
+        }
+    }
+
+    @DisplayName("Bitboard.canonical() tells apart boards which are no symmetries of each other")
+    @Test
+    void canonicalSeparatesAsymmetricBoards() {
+        long board = Bitboard.fromTiles(new int[][]{
+                {2, 0, 0, 0},
+                {0, 0, 0, 0},
+                {0, 0, 0, 0},
+                {0, 0, 0, 0},
+        });
+        long edge = Bitboard.fromTiles(new int[][]{
+                {0, 2, 0, 0},
+                {0, 0, 0, 0},
+                {0, 0, 0, 0},
+                {0, 0, 0, 0},
+        });
+        assertAll(
+                () -> assertNotEquals(Bitboard.canonical(board), Bitboard.canonical(edge)),
+                () -> assertNotEquals(Bitboard.canonicalHash(board), Bitboard.canonicalHash(edge)),
+                () -> assertEquals(Bitboard.canonical(board), Bitboard.canonical(Bitboard.flipVertical(board)))
+        );
+    }
+
+    /**
+     * Returns the 8 rotations and reflections of the board, computed on the tile array as reference.
+     */
+    private static long[] symmetries(long board) {
+        long[] symmetries = new long[8];
+        int[][] tiles = Bitboard.toTiles(board);
+        for (int i = 0; i < 4; i++) {
+            int[][] rotated = new int[Game.SIZE][Game.SIZE];
+            int[][] mirrored = new int[Game.SIZE][Game.SIZE];
+            for (int x = 0; x < Game.SIZE; x++) {
+                for (int y = 0; y < Game.SIZE; y++) {
+                    rotated[y][Game.SIZE - 1 - x] = tiles[x][y];
+                    mirrored[x][Game.SIZE - 1 - y] = tiles[x][y];
+                }
+            }
+            symmetries[2 * i] = Bitboard.fromTiles(tiles);
+            symmetries[2 * i + 1] = Bitboard.fromTiles(mirrored);
+            tiles = rotated;
+        }
+        return symmetries;
+    }
+
+    /**
+     * Array based move as implemented by {@link Game} before the bitboard engine, used as reference.
+     */
+    private static int legacyMove(int[][] tiles, Direction direction) {
+        int score = 0;
+        switch (direction) {
+            case right:
+                for (int x = 0; x < Game.SIZE; x++) {
+                    for (int y = Game.SIZE-1; y >= 0; y--) {
+                        if (tiles[x][y] != 0) {
+                            int currentY = y;
+                            if (currentY < Game.SIZE-1) {
+                                while (currentY+1 < Game.SIZE) {
+                                    if (tiles[x][currentY+1] == 0 || tiles[x][currentY+1] == tiles[x][y]) {
+                                        currentY++;
+                                    } else {
+                                        break;
+                                    }
+                                }
+                                if (currentY != y) {
+                                    if (tiles[x][currentY] == tiles[x][y]) {
+                                        tiles[x][currentY] = tiles[x][y] * 2;
+                                        score += tiles[x][y] * 2;
+                                    } else {
+                                        tiles[x][currentY] = tiles[x][y];
+                                    }
+                                    tiles[x][y] = 0;
+                                }
+                            }
+                        }
+                    }
+                }
+                break;
+            case left:
+                for (int x = 0; x < Game.SIZE; x++) {
+                    for (int y = 0; y < Game.SIZE; y++) {
+                        if (tiles[x][y] != 0) {
+                            int currentY = y;
+                            if (currentY > 0) {
+                                while (currentY-1 >= 0) {
+                                    if (tiles[x][currentY-1] == 0 || tiles[x][currentY-1] == tiles[x][y]) {
+                                        currentY--;
+                                    } else {
+                                        break;
+                                    }
+                                }
+                                if (currentY != y) {
+                                    if (tiles[x][currentY] == tiles[x][y]) {
+                                        tiles[x][currentY] = tiles[x][y] * 2;
+                                        score += tiles[x][y] * 2;
+                                    } else {
+                                        tiles[x][currentY] = tiles[x][y];
+                                    }
+                                    tiles[x][y] = 0;
+                                }
+                            }
+                        }
+                    }
+                }
+                break;
+            case up:
+                for (int y = 0; y < Game.SIZE; y++) {
+                    for (int x = 0; x < Game.SIZE; x++) {
+                        if (tiles[x][y] != 0) {
+                            int currentX = x;
+                            if (currentX > 0) {
+                                while (currentX - 1 >= 0) {
+                                    if (tiles[currentX-1][y] == 0 || tiles[currentX-1][y] == tiles[x][y]) {
+                                        currentX--;
+                                    } else {
+                                        break;
+                                    }
+                                }
+                                if (currentX != x) {
+                                    if (tiles[currentX][y] == tiles[x][y]) {
+                                        tiles[currentX][y] = tiles[x][y] * 2;
+                                        score += tiles[x][y] * 2;
+                                    } else {
+                                        tiles[currentX][y] = tiles[x][y];
+                                    }
+                                    tiles[x][y] = 0;
+                                }
+                            }
+                        }
+                    }
+                }
+                break;
+            case down:
+                for (int y = 0; y < Game.SIZE; y++) {
+                    for (int x = Game.SIZE-1; x >= 0; x--) {
+                        if (tiles[x][y] != 0) {
+                            int currentX = x;
+                            if (currentX < Game.SIZE-1) {
+                                while (currentX+1 < Game.SIZE) {
+                                    if (tiles[currentX+1][y] == 0 || tiles[currentX+1][y] == tiles[x][y]) {
+                                        currentX++;
+                                    } else {
+                                        break;
+                                    }
+                                }
+                                if (currentX != x) {
+                                    if (tiles[currentX][y] == tiles[x][y]) {
+                                        tiles[currentX][y] = tiles[x][y] * 2;
+                                        score += tiles[x][y] * 2;
+                                    } else {
+                                        tiles[currentX][y] = tiles[x][y];
+                                    }
+                                    tiles[x][y] = 0;
+                                }
+                            }
+                        }
+                    }
+                }
+                break;
+        }
+        return score;
+    }
+}
@@ -0,0 +1,98 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoardTest {
+
+    @DisplayName("Board.of() packs 4x4 boards into a bitboard and keeps other sizes in arrays")
+    @Test
+    void ofPicksImplementationBySize() {
+        assertAll(
+                () -> assertTrue(Board.of(4) instanceof PackedBoard),
+                () -> assertTrue(Board.of(3) instanceof ArrayBoard),
+                () -> assertTrue(Board.of(8) instanceof ArrayBoard),
+                () -> assertThrows(IllegalArgumentException.class, () -> Board.of(2)),
+                () -> assertThrows(IllegalArgumentException.class, () -> Board.of(9))
+        );
+    }
+
+    @DisplayName("ArrayBoard.move() matches the bitboard move for random 4x4 boards")
+    @ParameterizedTest(name = "direction to move = {0}")
+    @EnumSource(Direction.class)
+    void arrayMoveMatchesBitboardMove(Direction direction) {
+        Random random = new Random(2048);
+        for (int i = 0; i < 10_000; i++) {
+            int[][] tiles = randomTiles(Game.SIZE, random);
+            Board packed = new PackedBoard();
+            Board array = new ArrayBoard(Game.SIZE);
+            packed.setTiles(tiles);
+            array.setTiles(tiles);
+
+            assertEquals(packed.move(direction), array.move(direction));
+            assertTrue(Arrays.deepEquals(packed.toTiles(), array.toTiles()));
+            assertEquals(packed.canMerge(), array.canMerge());
+            assertEquals(packed.countEmpty(), array.countEmpty());
+            assertEquals(packed.maxExponent(), array.maxExponent());
+        }
+    }
+
+    @DisplayName("ArrayBoard.canMerge() is false for a full board exactly if no tile can be moved")
+    @ParameterizedTest(name = "size = {0}")
+    @ValueSource(ints = {3, 5, 6, 8})
+    void arrayCanMergeMatchesMovability(int size) {
+        Random random = new Random(2048);
+        for (int i = 0; i < 2_000; i++) {
+            int[][] tiles = new int[size][size];
+            for (int[] row : tiles) {
+                for (int y = 0; y < size; y++) {
+                    row[y] = 1 << (1 + random.nextInt(random.nextBoolean() ? 3 : 15));
+                }
+            }
+            Board board = new ArrayBoard(size);
+            board.setTiles(tiles);
+            boolean mergeable = board.canMerge();
+
+            boolean movable = false;
+            for (Direction direction : Direction.values()) {
+                Board moved = new ArrayBoard(size);
+                moved.setTiles(tiles);
+                movable |= moved.move(direction) != Game.NO_CHANGE;
+            }
+            assertEquals(movable, mergeable);
+        }
+    }
+
+    @DisplayName("ArrayBoard.move() reports all cells as changed on boards with more than 32 cells")
+    @Test
+    void arrayMoveReportsAllCellsChangedOnLargeBoards() {
+        Board board = Board.of(6);
+        board.setExponent(0, 5, 1);
+        long result = board.move(Direction.left);
+        assertAll(
+                () -> assertEquals(0, Game.scoreDelta(result)),
+                () -> assertEquals(-1, Game.changedCells(result)),
+                () -> assertEquals(1, board.exponentAt(0, 0))
+        );
+    }
+
+    private static int[][] randomTiles(int size, Random random) {
+        int[][] tiles = new int[size][size];
+        for (int[] row : tiles) {
+            for (int y = 0; y < size; y++) {
+                // small exponents make merges likely
+                int exponent = random.nextInt(6);
+                row[y] = exponent == 0 ? 0 : 1 << exponent;
+            }
+        }
+        return tiles;
+    }
+}
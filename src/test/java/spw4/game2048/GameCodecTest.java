@@ -0,0 +1,111 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameCodecTest {
+
+    @DisplayName("GameCodec decodes a played game with its tiles, score, moves and random state")
+    @ParameterizedTest(name = "board size = {0}")
+    @ValueSource(ints = {3, 4, 5, 6, 7, 8})
+    void decodeRestoresEncodedGame(int size) {
+        Game game = play(new Game(size, 512), 200);
+        for (ByteBuffer buffer : new ByteBuffer[]{ByteBuffer.allocate(100), ByteBuffer.allocateDirect(100)}) {
+            buffer.position(10);
+            GameCodec.encode(game, buffer);
+            assertEquals(10 + GameCodec.ENCODED_SIZE, buffer.position());
+
+            buffer.position(10);
+            Game decoded = GameCodec.decode(buffer);
+            assertAll(
+                    () -> assertEquals(10 + GameCodec.ENCODED_SIZE, buffer.position()),
+                    () -> assertEquals(game.toString(), decoded.toString()),
+                    () -> assertEquals(game.getWinScore(), decoded.getWinScore()),
+                    () -> assertEquals(game.getEmptyCount(), decoded.getEmptyCount()),
+                    () -> assertEquals(game.canMerge(), decoded.canMerge())
+            );
+        }
+        Game decoded = roundTrip(game);
+        play(game, 50);
+        play(decoded, 50);
+        assertEquals(game.toString(), decoded.toString());
+    }
+
+    @DisplayName("GameCodec encodes at a given index without moving the position of the buffer")
+    @Test
+    void encodeAtIndexKeepsPosition() {
+        Game game = play(new Game(), 20);
+        ByteBuffer buffer = ByteBuffer.allocate(2 * GameCodec.ENCODED_SIZE);
+        GameCodec.encode(game, buffer, GameCodec.ENCODED_SIZE);
+
+        assertAll(
+                () -> assertEquals(0, buffer.position()),
+                () -> assertEquals(game.getBoard(), buffer.getLong(GameCodec.ENCODED_SIZE + 24)),
+                () -> assertEquals(game.toString(), GameCodec.decode(buffer, GameCodec.ENCODED_SIZE).toString()),
+                () -> assertThrows(IndexOutOfBoundsException.class, () -> GameCodec.encode(game, buffer, 60))
+        );
+    }
+
+    @DisplayName("GameCodec encodes games on boards up to 4x4 into 32 bytes")
+    @ParameterizedTest(name = "board size = {0}")
+    @ValueSource(ints = {3, 4})
+    void shortEncodingRestoresSmallBoards(int size) {
+        int encodedSize = GameCodec.encodedSize(Game.SIZE);
+        Game game = play(new Game(size, 512), 100);
+        ByteBuffer buffer = ByteBuffer.allocate(encodedSize);
+        GameCodec.encode(game, buffer, 0, encodedSize);
+
+        Game decoded = GameCodec.decode(buffer, 0, encodedSize);
+        assertAll(
+                () -> assertEquals(32, encodedSize),
+                () -> assertEquals(GameCodec.ENCODED_SIZE, GameCodec.encodedSize(Board.MAX_SIZE)),
+                () -> assertEquals(game.toString(), decoded.toString()),
+                () -> assertEquals(game.getMoves(), decoded.getMoves()),
+                () -> assertThrows(IllegalArgumentException.class,
+                        () -> GameCodec.encode(new Game(5, 512), buffer, 0, encodedSize))
+        );
+    }
+
+    @DisplayName("GameCodec decodes a game with a plain Random with a new generator")
+    @Test
+    void plainRandomIsReplaced() {
+        Game game = new Game();
+        game.random = new Random(1);
+
+        Game decoded = roundTrip(game);
+        assertAll(
+                () -> assertEquals(game.toString(), decoded.toString()),
+                () -> assertTrue(decoded.random instanceof StatefulRandom)
+        );
+    }
+
+    @DisplayName("GameCodec rejects bytes which are not an encoded game")
+    @Test
+    void decodeRejectsUnknownVersion() {
+        ByteBuffer buffer = ByteBuffer.allocate(GameCodec.ENCODED_SIZE);
+
+        assertThrows(IllegalArgumentException.class, () -> GameCodec.decode(buffer));
+    }
+
+    private static Game roundTrip(Game game) {
+        ByteBuffer buffer = ByteBuffer.allocate(GameCodec.ENCODED_SIZE);
+        GameCodec.encode(game, buffer);
+        buffer.flip();
+        return GameCodec.decode(buffer);
+    }
+
+    private static Game play(Game game, int turns) {
+        Direction[] directions = Direction.values();
+        for (int turn = 0; turn < turns && !game.isOver(true); turn++) {
+            game.tryMove(directions[turn % directions.length]);
+        }
+        return game;
+    }
+}
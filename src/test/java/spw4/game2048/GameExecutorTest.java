@@ -0,0 +1,161 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameExecutorTest {
+    /**
+     * System under test.
+     */
+    private GameExecutor sut;
+
+    @BeforeEach
+    void setUp() {
+        sut = new GameExecutor(4, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sut.close();
+    }
+
+    @DisplayName("GameExecutor runs tasks with the same key in the order they were submitted")
+    @Test
+    void tasksWithSameKeyRunInOrder() throws InterruptedException {
+        sut.close();
+        sut = new GameExecutor(4, 1000);
+        List<Integer> first = new ArrayList<>();
+        List<Integer> second = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(2 * 500);
+        for (int i = 0; i < 500; i++) {
+            int task = i;
+            sut.execute("first", () -> {
+                first.add(task);
+                done.countDown();
+            });
+            sut.execute("second", () -> {
+                second.add(task);
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        List<Integer> expected = IntStream.range(0, 500).boxed().collect(Collectors.toList());
+        assertAll(
+                () -> assertEquals(expected, first),
+                () -> assertEquals(expected, second)
+        );
+    }
+
+    @DisplayName("GameExecutor runs the tasks of other games while a task of one game is blocked")
+    @Test
+    void blockedTaskDoesNotHoldUpOtherGames() throws InterruptedException {
+        sut.close();
+        // room for all tasks, even if none of them has started yet
+        sut = new GameExecutor(4, 50);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(100);
+        try {
+            sut.execute("blocked", () -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            for (int i = 0; i < 100; i++) {
+                sut.execute("game-" + i, done::countDown);
+            }
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @DisplayName("GameExecutor rejects tasks when the queue of their game is full")
+    @Test
+    void fullQueueRejectsTasks() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        Runnable blocked = () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        try {
+            // one task running and two queued
+            for (int i = 0; i < 3; i++) {
+                sut.execute("game", blocked);
+            }
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            assertAll(
+                    () -> assertThrows(RejectedExecutionException.class, () -> sut.execute("game", blocked)),
+                    () -> assertEquals(2, sut.getQueued())
+            );
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @DisplayName("GameExecutor rejects tasks of many games when all threads are busy and all games together are full")
+    @Test
+    void busyThreadsRejectTasksOfManyGames() throws InterruptedException {
+        sut.close();
+        sut = new GameExecutor(2, 2);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(2);
+        Runnable blocked = () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        try {
+            sut.execute("first", blocked);
+            sut.execute("second", blocked);
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            int accepted = 0;
+            int rejected = 0;
+            for (int i = 0; i < 10_000; i++) {
+                try {
+                    sut.execute("game-" + i, () -> { });
+                    accepted++;
+                } catch (RejectedExecutionException e) {
+                    rejected++;
+                }
+            }
+            int acceptedTasks = accepted;
+            int rejectedTasks = rejected;
+            assertAll(
+                    () -> assertEquals(4, acceptedTasks),
+                    () -> assertEquals(10_000 - 4, rejectedTasks),
+                    () -> assertEquals(4, sut.getQueued())
+            );
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @DisplayName("GameExecutor rejects tasks after it has been closed")
+    @Test
+    void closedExecutorRejectsTasks() {
+        sut.close();
+        assertThrows(RejectedExecutionException.class, () -> sut.execute(null, () -> { }));
+    }
+}
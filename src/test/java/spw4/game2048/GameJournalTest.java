@@ -0,0 +1,191 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameJournalTest {
+    /**
+     * System under test.
+     */
+    private GameJournal sut;
+    private GameSessions games;
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        sut = new GameJournal(directory, 1 << 12, 1);
+        games = new GameSessions(100, 10, TimeUnit.MINUTES);
+        sut.recover(games);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sut.close();
+    }
+
+    @DisplayName("GameJournal.recover() rebuilds games with their tiles, score and moves from the log")
+    @Test
+    void recoverReplaysLog() throws IOException {
+        UUID id = games.create();
+        UUID large = games.create(5, 64);
+        String expected = play(id, 30);
+        String expectedLarge = play(large, 30);
+
+        GameSessions recovered = restart();
+        assertAll(
+                () -> assertEquals(2, recovered.size()),
+                () -> assertEquals(expected, recovered.withGame(id, Game::toString)),
+                () -> assertEquals(expectedLarge, recovered.withGame(large, Game::toString)),
+                () -> assertEquals(64, (int) recovered.withGame(large, Game::getWinScore))
+        );
+    }
+
+    @DisplayName("GameJournal.compact() replaces the logs by a snapshot which is recovered together with later moves")
+    @Test
+    void compactWritesSnapshot() throws IOException {
+        UUID id = games.create();
+        play(id, 20);
+        sut.compact();
+        // recovery compacts again in the background, so the files are checked before the restart
+        assertAll(
+                () -> assertTrue(Files.exists(directory.resolve("snapshot-1.bin"))),
+                () -> assertFalse(Files.exists(directory.resolve("journal-0.log")))
+        );
+        String expected = play(id, 20);
+
+        GameSessions recovered = restart();
+        assertEquals(expected, recovered.withGame(id, Game::toString));
+    }
+
+    @DisplayName("GameJournal continues in a new log file when a log is full and compacts the old ones")
+    @Test
+    void fullLogIsContinuedInNewFile() throws IOException {
+        UUID id = games.create();
+        // the log holds 128 records
+        String expected = play(id, 300);
+
+        GameSessions recovered = restart();
+        assertEquals(expected, recovered.withGame(id, Game::toString));
+    }
+
+    @DisplayName("GameJournal journals games played concurrently across full logs")
+    @Test
+    void concurrentGamesAreRecovered() throws Exception {
+        int threads = 8;
+        UUID[] ids = new UUID[threads];
+        for (int t = 0; t < threads; t++) {
+            ids[t] = games.create();
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<String>> expected = new ArrayList<>();
+        try {
+            for (UUID id : ids) {
+                expected.add(pool.submit(() -> play(id, 200)));
+            }
+            for (Future<String> game : expected) {
+                game.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        GameSessions recovered = restart();
+        for (int t = 0; t < threads; t++) {
+            assertEquals(expected.get(t).get(), recovered.withGame(ids[t], Game::toString));
+        }
+    }
+
+    @DisplayName("GameJournal does not recover removed games")
+    @Test
+    void removedGamesAreNotRecovered() throws IOException {
+        UUID removed = games.create();
+        UUID kept = games.create();
+        games.remove(removed);
+
+        GameSessions recovered = restart();
+        assertAll(
+                () -> assertEquals(1, recovered.size()),
+                () -> assertNull(recovered.withGame(removed, Game::getMoves)),
+                () -> assertNotNull(recovered.withGame(kept, Game::getMoves))
+        );
+    }
+
+    @DisplayName("GameJournal ignores a record torn by a crash")
+    @Test
+    void tornRecordIsIgnored() throws IOException {
+        UUID id = games.create();
+        String expected = play(id, 5);
+        games.withGame(id, game -> {
+            game.move(Direction.left);
+            return null;
+        });
+        sut.close();
+        Path file;
+        try (Stream<Path> files = Files.list(directory)) {
+            file = files.filter(path -> path.toString().endsWith(".log")).max(Path::compareTo).orElseThrow();
+        }
+        try (FileChannel log = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer type = ByteBuffer.allocate(1);
+            long last = 0;
+            for (long position = 0; position < log.size(); position += GameJournal.RECORD_SIZE) {
+                type.clear();
+                log.read(type, position);
+                if (type.get(0) != 0) {
+                    last = position;
+                }
+            }
+            // the checksum of the last record, the final move, no longer matches
+            log.write(ByteBuffer.wrap(new byte[]{9}), last + 5);
+        }
+
+        sut = new GameJournal(directory, 1 << 12, 1);
+        GameSessions recovered = new GameSessions(100, 10, TimeUnit.MINUTES);
+        sut.recover(recovered);
+        assertEquals(expected, recovered.withGame(id, Game::toString));
+    }
+
+    /**
+     * Plays {@code moves} moves like the servlet does and returns the resulting game as text.
+     */
+    private String play(UUID id, int moves) {
+        Direction[] directions = Direction.values();
+        return games.withGame(id, game -> {
+            for (int i = 0; i < moves; i++) {
+                if (!game.isOver(true)) {
+                    game.tryMove(directions[i % directions.length]);
+                }
+            }
+            return game.toString();
+        });
+    }
+
+    private GameSessions restart() throws IOException {
+        sut.close();
+        sut = new GameJournal(directory, 1 << 12, 1);
+        games = new GameSessions(100, 10, TimeUnit.MINUTES);
+        sut.recover(games);
+        return games;
+    }
+}
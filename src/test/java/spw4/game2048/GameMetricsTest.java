@@ -0,0 +1,147 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameMetricsTest {
+    /**
+     * System under test.
+     */
+    private GameMetrics sut;
+    private GameSessions games;
+    private final AtomicLong now = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        games = new GameSessions(10, 1, TimeUnit.MINUTES);
+        sut = new GameMetrics(games, null, null, true, now::get);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sut.unregister();
+    }
+
+    @DisplayName("GameMetrics counts requests per action, moves and failures")
+    @Test
+    void countsRequestsAndMoves() {
+        now.set(1000);
+        sut.request(GameMetrics.Action.of("new"), 0);
+        sut.request(GameMetrics.Action.of("up"), 0);
+        sut.request(GameMetrics.Action.of(null), 0);
+        sut.request(GameMetrics.Action.of("jump"), 0);
+        sut.move(true, 900);
+        sut.move(false, 900);
+        sut.error();
+        sut.rejected();
+        assertAll(
+                () -> assertEquals(1, sut.getRequests(GameMetrics.Action.NEW)),
+                () -> assertEquals(1, sut.getRequests(GameMetrics.Action.UP)),
+                () -> assertEquals(1, sut.getRequests(GameMetrics.Action.VIEW)),
+                () -> assertEquals(1, sut.getRequests(GameMetrics.Action.OTHER)),
+                () -> assertEquals(0, (long) sut.getRequests().get("down")),
+                () -> assertEquals(1, sut.getMoves()),
+                () -> assertEquals(1, sut.getErrors()),
+                () -> assertEquals(1, sut.getRejected()),
+                () -> assertEquals(1.0, sut.getRequestLatencyP99(), 0.125)
+        );
+    }
+
+    @DisplayName("GameMetrics reports moves per second over the last interval of at least a second")
+    @Test
+    void reportsMovesPerSecond() {
+        for (int i = 0; i < 30; i++) {
+            sut.move(true, 0);
+        }
+        now.set(TimeUnit.MILLISECONDS.toNanos(500));
+        double early = sut.getMovesPerSecond();
+        now.set(TimeUnit.SECONDS.toNanos(2));
+        double rate = sut.getMovesPerSecond();
+        sut.move(true, now.get());
+        now.set(TimeUnit.MILLISECONDS.toNanos(2500));
+        double unchanged = sut.getMovesPerSecond();
+        assertAll(
+                () -> assertEquals(0, early),
+                () -> assertEquals(15, rate),
+                () -> assertEquals(15, unchanged)
+        );
+    }
+
+    @DisplayName("GameMetrics writes counters, gauges and summaries in the Prometheus text format")
+    @Test
+    void writesPrometheusText() throws IOException {
+        games.create();
+        now.set(2_000_000);
+        sut.request(GameMetrics.Action.LEFT, 0);
+        sut.render(1_950_000);
+        StringWriter out = new StringWriter();
+        sut.writeTo(out);
+        String text = out.toString();
+        assertAll(
+                () -> assertTrue(text.contains("game2048_requests_total{action=\"left\"} 1\n"), text),
+                () -> assertTrue(text.contains("game2048_sessions 1\n"), text),
+                () -> assertTrue(text.contains("game2048_render_seconds_count 1\n"), text),
+                () -> assertTrue(text.contains("# TYPE game2048_request_seconds summary\n"), text),
+                () -> assertTrue(text.lines().allMatch(line -> line.startsWith("# TYPE ")
+                        || line.matches("game2048_\\w+(\\{\\w+=\"[\\w.]+\"})? [0-9.e+-]+")), text)
+        );
+    }
+
+    @DisplayName("GameMetrics neither reads the clock nor records anything if disabled")
+    @Test
+    void disabledMetricsRecordNothing() {
+        AtomicLong reads = new AtomicLong();
+        sut = new GameMetrics(games, null, null, false, reads::incrementAndGet);
+        long readsBefore = reads.get();
+        games.create();
+        sut.request(GameMetrics.Action.UP, sut.start());
+        sut.move(true, sut.start());
+        assertAll(
+                () -> assertEquals(readsBefore, reads.get()),
+                () -> assertEquals(0, sut.getRequests(GameMetrics.Action.UP)),
+                () -> assertEquals(0, sut.getMoves()),
+                () -> assertEquals(1, sut.getSessions())
+        );
+    }
+
+    @DisplayName("GameMetrics can be read through JMX once registered")
+    @Test
+    void isRegisteredAsMXBean() throws Exception {
+        sut.register();
+        now.set(1000);
+        sut.request(GameMetrics.Action.UP, 0);
+        ObjectName name = new ObjectName(GameMetrics.OBJECT_NAME);
+        assertAll(
+                () -> assertEquals(0, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Sessions")),
+                () -> assertEquals(1.0, (double) ManagementFactory.getPlatformMBeanServer()
+                        .getAttribute(name, "RequestLatencyP50"), 0.125)
+        );
+    }
+
+    @DisplayName("GameMetrics replaced by another instance are not unregistered by the old instance")
+    @Test
+    void unregisterKeepsReplacingInstance() throws Exception {
+        GameMetrics next = new GameMetrics(games, null, null, true, now::get);
+        ObjectName name = new ObjectName(GameMetrics.OBJECT_NAME);
+        sut.register();
+        next.register();
+        sut.unregister();
+        boolean registered = ManagementFactory.getPlatformMBeanServer().isRegistered(name);
+        next.unregister();
+        assertAll(
+                () -> assertTrue(registered),
+                () -> assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name))
+        );
+    }
+}
@@ -0,0 +1,428 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class GameServletTest {
+    private static final Pattern ID = Pattern.compile("Game\\?id=([0-9a-f-]+)&");
+    private static final Pattern MOVES = Pattern.compile("\"moves\":(\\d+)");
+
+    /**
+     * System under test.
+     */
+    private GameServlet sut;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        sut = new GameServlet();
+        sut.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        sut.destroy();
+    }
+
+    @DisplayName("GameServlet action=new starts a new game and renders it")
+    @Test
+    void newActionStartsNewGame() throws Exception {
+        String html = get("action", "new");
+        assertAll(
+                () -> assertTrue(html.contains("<span id=\"moves\">0</span>")),
+                () -> assertNotNull(idOf(html)),
+                () -> assertEquals(1, sut.getGames().size())
+        );
+    }
+
+    @DisplayName("GameServlet format=json returns the compact game state")
+    @Test
+    void jsonFormatReturnsCompactGameState() throws Exception {
+        String id = idOf(get("action", "new"));
+        String json = get("id", id, "format", "json");
+        assertAll(
+                () -> assertTrue(json.startsWith("{\"id\":\"" + id + "\",\"moves\":0,\"score\":0,"), json),
+                () -> assertTrue(json.matches(".*\"tiles\":\\[(\\d+,){15}\\d+]}"), json),
+                () -> assertTrue(json.length() < 200, json)
+        );
+    }
+
+    @DisplayName("GameServlet action=new with size starts a game on a board of that size")
+    @Test
+    void newActionWithSizeStartsGameOfThatSize() throws Exception {
+        String html = get("action", "new", "size", "5");
+        String json = get("id", idOf(html), "format", "json");
+        assertAll(
+                () -> assertEquals(25, html.split("data-cell>", -1).length - 1),
+                () -> assertTrue(html.contains("Game?action=new&size=5"), html),
+                () -> assertTrue(json.matches(".*\"tiles\":\\[(\\d+,){24}\\d+]}"), json)
+        );
+    }
+
+    @DisplayName("GameServlet action=new answers with 400 for an unsupported size or target")
+    @Test
+    void newActionRejectsInvalidSizeOrTarget() throws Exception {
+        String[][] invalid = {{"size", "9"}, {"size", "2"}, {"size", "x"}, {"target", "3"}, {"target", "-8"},
+                {"target", "4"}, {"target", "65536"}};
+        for (String[] parameter : invalid) {
+            HttpServletResponse response = mock(HttpServletResponse.class);
+            sut.doGet(request("action", "new", parameter[0], parameter[1]),
+                    response(response, new ByteArrayOutputStream()));
+            verify(response).sendError(eq(HttpServletResponse.SC_BAD_REQUEST), anyString());
+        }
+        assertAll(
+                () -> assertEquals(0, sut.getGames().size()),
+                () -> assertNotNull(idOf(get("action", "new", "size", "3", "target", "8")))
+        );
+    }
+
+    @DisplayName("GameServlet keeps games off the heap if configured")
+    @Test
+    void offHeapSessionsCanBeConfigured() throws Exception {
+        sut.destroy();
+        System.setProperty(GameServlet.SESSIONS_PROPERTY, "offheap");
+        try {
+            sut = new GameServlet();
+            sut.init();
+        } finally {
+            System.clearProperty(GameServlet.SESSIONS_PROPERTY);
+        }
+        String id = idOf(get("action", "new"));
+        get("id", id, "action", "up");
+        String moved = get("id", id, "action", "left", "format", "json");
+        String reloaded = get("id", id, "format", "json");
+
+        assertAll(
+                () -> assertTrue(sut.getGames() instanceof OffHeapSessions),
+                () -> assertEquals(moved.substring(0, moved.indexOf("\"tiles\"")),
+                        reloaded.substring(0, reloaded.indexOf("\"tiles\""))),
+                () -> assertNotEquals(moved, reloaded, "a tile is spawned on every request")
+        );
+    }
+
+    @DisplayName("GameServlet action=batch applies all moves and returns the final state with the score of each move")
+    @Test
+    void batchActionAppliesMoves() throws Exception {
+        String id = idOf(get("action", "new"));
+        String json = get("id", id, "action", "batch", "moves", "ULDRULDRULDRULDRULDR", "format", "html");
+        Matcher deltas = Pattern.compile("\"deltas\":\\[([0-9,]*)]}$").matcher(json);
+        Matcher score = Pattern.compile("\"score\":(\\d+)").matcher(json);
+        Matcher moves = MOVES.matcher(json);
+
+        assertAll(
+                () -> assertTrue(deltas.find(), json),
+                () -> assertTrue(score.find(), json),
+                () -> assertTrue(moves.find(), json),
+                () -> assertEquals(Integer.parseInt(score.group(1)),
+                        Arrays.stream(deltas.group(1).split(",")).mapToInt(Integer::parseInt).sum()),
+                () -> assertTrue(Integer.parseInt(moves.group(1)) > 0),
+                () -> assertEquals(json.substring(0, json.indexOf("\"tiles\"")),
+                        get("id", id, "format", "json").substring(0, json.indexOf("\"tiles\"")))
+        );
+    }
+
+    @DisplayName("GameServlet action=batch rejects unknown moves without changing the game")
+    @Test
+    void batchActionRejectsInvalidMoves() throws Exception {
+        String id = idOf(get("action", "new"));
+        String answer = get("id", id, "action", "batch", "moves", "UUX");
+        assertAll(
+                () -> assertTrue(answer.startsWith("java.lang.IllegalArgumentException"), answer),
+                () -> assertTrue(get("id", id, "format", "json").contains("\"moves\":0,"))
+        );
+    }
+
+    @DisplayName("GameServlet action=batch without moves puts the pending tile like any other request")
+    @Test
+    void emptyBatchSpawnsTile() throws Exception {
+        String id = idOf(get("action", "new"));
+        int before = sut.getGames().withGame(UUID.fromString(id), Game::getEmptyCount);
+        String json = get("id", id, "action", "batch", "moves", "");
+
+        assertAll(
+                () -> assertTrue(json.endsWith("\"deltas\":[]}"), json),
+                () -> assertTrue(json.contains("\"moves\":0,"), json),
+                () -> assertEquals(before - 1, (int) sut.getGames().withGame(UUID.fromString(id), Game::getEmptyCount))
+        );
+    }
+
+    @DisplayName("GameServlet action=hint returns the state with a move which can be played")
+    @Test
+    void hintActionSuggestsMove() throws Exception {
+        String id = idOf(get("action", "new"));
+        String json = get("id", id, "action", "hint");
+        Matcher hint = Pattern.compile("\"hint\":\"(up|down|left|right)\"}$").matcher(json);
+
+        assertTrue(hint.find(), json);
+        assertTrue(json.startsWith("{\"id\":\"" + id + "\",\"moves\":0,"), json);
+        assertAll(
+                () -> assertTrue(get("id", id, "action", hint.group(1), "format", "json").contains("\"moves\":1,")),
+                () -> assertEquals(1, sut.getHints().getMisses()),
+                () -> assertEquals(1, sut.getMetrics().getRequests(GameMetrics.Action.HINT))
+        );
+    }
+
+    @DisplayName("GameServlet action=hint answers 3x3 games from a configured tablebase")
+    @Test
+    void hintActionUsesTablebase(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("3x3-16.tb");
+        TablebaseGenerator.generate(16, file);
+        sut.destroy();
+        System.setProperty(GameServlet.TABLEBASE_PROPERTY, file.toString());
+        try {
+            sut = new GameServlet();
+            sut.init();
+        } finally {
+            System.clearProperty(GameServlet.TABLEBASE_PROPERTY);
+        }
+        String id = idOf(get("action", "new", "size", "3", "target", "16"));
+        // a full board, so the request spawns no tile and the position is known
+        int[][] tiles = {
+                {2, 4, 2},
+                {4, 8, 4},
+                {2, 4, 4},
+        };
+        sut.getGames().withGame(UUID.fromString(id), game -> {
+            game.setTiles(tiles);
+            return null;
+        });
+        Direction expected = Tablebase.open(file).bestMove(tiles);
+        String json = get("id", id, "action", "hint");
+
+        assertAll(
+                () -> assertNotNull(expected),
+                () -> assertTrue(json.endsWith("\"tiles\":[1,2,1,2,3,2,1,2,2],\"hint\":\"" + expected + "\"}"), json),
+                () -> assertEquals(0, sut.getHints().getMisses())
+        );
+    }
+
+    @DisplayName("GameServlet answers unknown game ids without failing")
+    @Test
+    void unknownIdIsReported() throws Exception {
+        assertEquals("unknown game", get("id", "00000000-0000-0000-0000-000000000000", "action", "up").trim());
+    }
+
+    @DisplayName("GameServlet handles parallel new and move requests without losing games")
+    @Test
+    void handlesParallelNewAndMoveRequests() throws Exception {
+        int threads = 8;
+        int gamesPerThread = 50;
+        int movesPerGame = 20;
+        String[] actions = {"up", "left", "down", "right"};
+        String sharedId = idOf(get("action", "new"));
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(pool.submit(() -> {
+                    for (int g = 0; g < gamesPerThread; g++) {
+                        String id = idOf(get("action", "new"));
+                        for (int m = 0; m < movesPerGame; m++) {
+                            String action = actions[(g + m) % actions.length];
+                            assertTrue(get("id", id, "action", action).contains("Moves: "));
+                            assertTrue(get("id", sharedId, "action", action).contains("Moves: "));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(threads * gamesPerThread + 1, sut.getGames().size());
+    }
+
+    @DisplayName("GameServlet processes requests asynchronously in order if the container supports it")
+    @Test
+    void asyncRequestsAreProcessedInOrder() throws Exception {
+        String id = idOf(getAsync(mock(HttpServletResponse.class), "action", "new").get(10, TimeUnit.SECONDS));
+        String[] actions = {"up", "left", "down", "right"};
+        List<CompletableFuture<String>> pages = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            pages.add(getAsync(mock(HttpServletResponse.class), "id", id, "action", actions[i % 4], "format", "json"));
+        }
+        int previous = 0;
+        for (CompletableFuture<String> page : pages) {
+            Matcher matcher = MOVES.matcher(page.get(10, TimeUnit.SECONDS));
+            assertTrue(matcher.find());
+            int moves = Integer.parseInt(matcher.group(1));
+            assertTrue(moves >= previous, "answered out of order");
+            previous = moves;
+        }
+        assertTrue(previous > 0);
+    }
+
+    @DisplayName("GameServlet answers with 503 when the queue of a game is full")
+    @Test
+    void fullQueueIsAnsweredWithServiceUnavailable() throws Exception {
+        String id = idOf(get("action", "new"));
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        Runnable blocked = () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        try {
+            // one task running and a full queue behind it
+            sut.getExecutor().execute(id, blocked);
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            for (int i = 0; i < GameServlet.DEFAULT_ASYNC_QUEUE; i++) {
+                sut.getExecutor().execute(id, blocked);
+            }
+            HttpServletResponse response = mock(HttpServletResponse.class);
+            getAsync(response, "id", id, "action", "up").get(10, TimeUnit.SECONDS);
+            verify(response).sendError(eq(HttpServletResponse.SC_SERVICE_UNAVAILABLE), anyString());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @DisplayName("GameServlet answers a queued request with 503 and drops it when the container times it out")
+    @Test
+    void timedOutRequestIsNotProcessed() throws Exception {
+        String id = idOf(get("action", "new"));
+        CountDownLatch release = new CountDownLatch(1);
+        sut.getExecutor().execute(id, () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        HttpServletRequest request = request("id", id, "action", "up");
+        AsyncContext async = mock(AsyncContext.class);
+        List<AsyncListener> listeners = new ArrayList<>();
+        doAnswer(invocation -> listeners.add(invocation.getArgument(0))).when(async).addListener(any());
+        when(request.isAsyncSupported()).thenReturn(true);
+        when(request.startAsync()).thenReturn(async);
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        try {
+            sut.doGet(request, response(response, new ByteArrayOutputStream()));
+            for (AsyncListener listener : listeners) {
+                listener.onTimeout(mock(AsyncEvent.class));
+            }
+            verify(response).sendError(eq(HttpServletResponse.SC_SERVICE_UNAVAILABLE), anyString());
+            verify(async).complete();
+        } finally {
+            release.countDown();
+        }
+        assertTrue(get("id", id, "format", "json").contains("\"moves\":0,"));
+    }
+
+    @DisplayName("GameServlet serves request counts, latencies and sessions at /metrics")
+    @Test
+    void metricsAreServed() throws Exception {
+        String id = idOf(get("action", "new"));
+        get("id", id, "action", "up");
+        get("id", id, "action", "left");
+        HttpServletRequest request = request();
+        when(request.getServletPath()).thenReturn(GameServlet.METRICS_PATH);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        sut.doGet(request, response(mock(HttpServletResponse.class), body));
+        String text = body.toString(StandardCharsets.UTF_8);
+
+        assertAll(
+                () -> assertTrue(text.contains("game2048_requests_total{action=\"new\"} 1\n"), text),
+                () -> assertTrue(text.contains("game2048_requests_total{action=\"up\"} 1\n"), text),
+                () -> assertTrue(text.contains("game2048_move_seconds_count 2\n"), text),
+                () -> assertTrue(text.contains("game2048_render_seconds_count 3\n"), text),
+                () -> assertTrue(text.contains("game2048_sessions 1\n"), text)
+        );
+    }
+
+    private String get(String... parameters) throws Exception {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        sut.doGet(request(parameters), response(mock(HttpServletResponse.class), body));
+        return body.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Sends a request to a container supporting asynchronous processing; the result completes with the body when the
+     * request is completed.
+     */
+    private CompletableFuture<String> getAsync(HttpServletResponse response, String... parameters) throws Exception {
+        HttpServletRequest request = request(parameters);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        CompletableFuture<String> completed = new CompletableFuture<>();
+        AsyncContext async = mock(AsyncContext.class);
+        doAnswer(invocation -> completed.complete(body.toString(StandardCharsets.UTF_8))).when(async).complete();
+        when(request.isAsyncSupported()).thenReturn(true);
+        when(request.startAsync()).thenReturn(async);
+
+        sut.doGet(request, response(response, body));
+        return completed;
+    }
+
+    private static HttpServletRequest request(String... parameters) {
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < parameters.length; i += 2) {
+            values.put(parameters[i], parameters[i + 1]);
+        }
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getParameter(anyString())).thenAnswer(invocation -> values.get(invocation.<String>getArgument(0)));
+        return request;
+    }
+
+    private static HttpServletResponse response(HttpServletResponse response, ByteArrayOutputStream body)
+            throws Exception {
+        // a mock, as the abstract methods of ServletOutputStream differ between servlet API versions
+        ServletOutputStream out = mock(ServletOutputStream.class);
+        doAnswer(invocation -> {
+            body.write(invocation.<Integer>getArgument(0));
+            return null;
+        }).when(out).write(anyInt());
+        doAnswer(invocation -> {
+            body.write(invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2));
+            return null;
+        }).when(out).write(any(byte[].class), anyInt(), anyInt());
+        doCallRealMethod().when(out).write(any(byte[].class));
+        when(response.getOutputStream()).thenReturn(out);
+        return response;
+    }
+
+    private static String idOf(String html) {
+        Matcher matcher = ID.matcher(html);
+        assertTrue(matcher.find(), html);
+        return matcher.group(1);
+    }
+}
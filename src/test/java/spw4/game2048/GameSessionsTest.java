@@ -0,0 +1,146 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameSessionsTest {
+    /**
+     * System under test.
+     */
+    private GameSessions sut;
+
+    private final AtomicLong now = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        sut = new GameSessions(3, 10, TimeUnit.SECONDS, now::get);
+    }
+
+    @DisplayName("GameSessions.create() registers a new game which can be accessed by its id")
+    @Test
+    void createRegistersNewGame() {
+        UUID id = sut.create();
+        assertAll(
+                () -> assertEquals(1, sut.size()),
+                () -> assertEquals(0, (int) sut.withGame(id, Game::getMoves)),
+                () -> assertNull(sut.withGame(UUID.randomUUID(), Game::getMoves)),
+                () -> assertTrue(sut.remove(id)),
+                () -> assertEquals(0, sut.size())
+        );
+    }
+
+    @DisplayName("GameSessions.withGame() serializes concurrent moves on the same game")
+    @Test
+    void withGameSerializesConcurrentMoves() throws Exception {
+        int threads = 8;
+        int movesPerThread = 10_000;
+        long singleTile = Bitboard.fromTiles(new int[][]{
+                {2, 0, 0, 0},
+                {0, 0, 0, 0},
+                {0, 0, 0, 0},
+                {0, 0, 0, 0},
+        });
+        UUID id = sut.create();
+        sut.withGame(id, game -> {
+            game.initialize();
+            return null;
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> noChanges = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                noChanges.add(pool.submit(() -> {
+                    int count = 0;
+                    for (int i = 0; i < movesPerThread; i++) {
+                        long result = sut.withGame(id, game -> {
+                            game.setBoard(singleTile);
+                            return game.tryMove(Direction.right);
+                        });
+                        if (result == Game.NO_CHANGE) {
+                            count++;
+                        }
+                    }
+                    return count;
+                }));
+            }
+            for (Future<Integer> noChange : noChanges) {
+                assertEquals(0, noChange.get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(threads * movesPerThread, (int) sut.withGame(id, Game::getMoves));
+    }
+
+    @DisplayName("GameSessions.sweep() expires games which were idle for longer than the idle timeout")
+    @Test
+    void sweepExpiresIdleGames() {
+        UUID idle = sut.create();
+        UUID active = sut.create();
+        now.addAndGet(TimeUnit.SECONDS.toNanos(6));
+        sut.withGame(active, Game::getMoves);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(6));
+
+        assertAll(
+                () -> assertEquals(1, sut.sweep()),
+                () -> assertNull(sut.withGame(idle, Game::getMoves)),
+                () -> assertNotNull(sut.withGame(active, Game::getMoves)),
+                () -> assertEquals(1, sut.getExpirations()),
+                () -> assertEquals(2, sut.getHits()),
+                () -> assertEquals(1, sut.getMisses())
+        );
+    }
+
+    @DisplayName("GameSessions.create() evicts the least recently used game if the maximum size is exceeded")
+    @Test
+    void createEvictsLeastRecentlyUsedGame() {
+        UUID first = sut.create();
+        UUID second = sut.create();
+        UUID third = sut.create();
+        sut.withGame(first, Game::getMoves);
+        sut.withGame(third, Game::getMoves);
+
+        UUID fourth = sut.create();
+
+        assertAll(
+                () -> assertEquals(3, sut.size()),
+                () -> assertEquals(1, sut.getEvictions()),
+                () -> assertNull(sut.withGame(second, Game::getMoves)),
+                () -> assertNotNull(sut.withGame(first, Game::getMoves)),
+                () -> assertNotNull(sut.withGame(third, Game::getMoves)),
+                () -> assertNotNull(sut.withGame(fourth, Game::getMoves))
+        );
+    }
+
+    @DisplayName("GameSessions.create() keeps the new game if every other game was played since the last eviction")
+    @Test
+    void createKeepsNewGameIfAllGamesWerePlayed() {
+        UUID first = sut.create();
+        UUID second = sut.create();
+        UUID third = sut.create();
+        sut.withGame(first, Game::getMoves);
+        sut.withGame(second, Game::getMoves);
+        sut.withGame(third, Game::getMoves);
+
+        UUID fourth = sut.create();
+
+        assertAll(
+                () -> assertEquals(3, sut.size()),
+                () -> assertEquals(1, sut.getEvictions()),
+                () -> assertNotNull(sut.withGame(fourth, Game::getMoves))
+        );
+    }
+}
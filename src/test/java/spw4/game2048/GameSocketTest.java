@@ -0,0 +1,131 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.websocket.CloseReason;
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.Session;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class GameSocketTest {
+    /**
+     * System under test.
+     */
+    private GameSocket sut;
+    private GameSessions games;
+    private Session session;
+    private final List<ByteBuffer> frames = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        games = new GameSessions(10, 10, TimeUnit.MINUTES);
+        sut = new GameSocket(games);
+        session = mock(Session.class);
+        RemoteEndpoint.Basic remote = mock(RemoteEndpoint.Basic.class);
+        when(session.getBasicRemote()).thenReturn(remote);
+        doAnswer(invocation -> {
+            ByteBuffer frame = invocation.getArgument(0);
+            frames.add(ByteBuffer.allocate(frame.remaining()).put(frame.duplicate()).flip());
+            return null;
+        }).when(remote).sendBinary(any(ByteBuffer.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        games.close();
+    }
+
+    @DisplayName("GameSocket starts a new game on open and sends all of its cells")
+    @Test
+    void openSendsFullFrame() throws Exception {
+        when(session.getRequestParameterMap()).thenReturn(Map.of("size", List.of("5")));
+        sut.open(session);
+
+        ByteBuffer frame = frames.get(0);
+        UUID id = new UUID(frame.getLong(10), frame.getLong(18));
+        assertAll(
+                () -> assertEquals(GameSocket.FULL, frame.get(0)),
+                () -> assertEquals(10 + 21 + 25, frame.remaining()),
+                () -> assertEquals(5, frame.get(26)),
+                () -> assertEquals(Game.WIN_SCORE, frame.getInt(27)),
+                () -> assertEquals(2, countTiles(frame, 31)),
+                () -> assertEquals(5, (int) games.withGame(id, Game::getSize))
+        );
+    }
+
+    @DisplayName("GameSocket answers a direction with the changed cells, score and moves")
+    @Test
+    void moveSendsDeltaFrame() throws Exception {
+        UUID id = games.create();
+        games.withGame(id, game -> {
+            // the tile spawned before the move cannot merge with anything
+            game.setTiles(new int[][]{
+                    {2, 2, 8, 16},
+                    {0, 0, 0, 0},
+                    {0, 0, 0, 0},
+                    {0, 0, 0, 8},
+            });
+            return null;
+        });
+        when(session.getRequestParameterMap()).thenReturn(Map.of("id", List.of(id.toString())));
+        sut.open(session);
+        int[][] before = games.withGame(id, Game::getTiles);
+        sut.move(ByteBuffer.wrap(new byte[]{(byte) Direction.left.ordinal()}), session);
+
+        ByteBuffer frame = frames.get(1);
+        int[][] tiles = games.withGame(id, Game::getTiles);
+        int changed = frame.get(10);
+        assertAll(
+                () -> assertEquals(GameSocket.DELTA, frame.get(0)),
+                () -> assertEquals(4, frame.getInt(2)),
+                () -> assertEquals(1, frame.getInt(6)),
+                () -> assertEquals(11 + 2 * changed, frame.remaining())
+        );
+        int expected = 0;
+        for (int cell = 0; cell < 16; cell++) {
+            expected += before[cell / 4][cell % 4] != tiles[cell / 4][cell % 4] ? 1 : 0;
+        }
+        assertEquals(expected, changed);
+        for (int i = 0; i < changed; i++) {
+            int cell = frame.get(11 + 2 * i);
+            int exponent = frame.get(12 + 2 * i);
+            assertEquals(tiles[cell / 4][cell % 4], exponent == 0 ? 0 : 1 << exponent);
+        }
+    }
+
+    @DisplayName("GameSocket closes connections for unknown games and invalid frames")
+    @Test
+    void invalidRequestsAreClosed() throws Exception {
+        when(session.getRequestParameterMap()).thenReturn(Map.of("id", List.of(UUID.randomUUID().toString())));
+        sut.open(session);
+        GameSocket other = new GameSocket(games);
+        when(session.getRequestParameterMap()).thenReturn(Map.of());
+        other.open(session);
+        other.move(ByteBuffer.wrap(new byte[]{4}), session);
+
+        verify(session, times(2)).close(any(CloseReason.class));
+        assertEquals(1, frames.size());
+    }
+
+    private static int countTiles(ByteBuffer frame, int offset) {
+        int tiles = 0;
+        for (int i = offset; i < frame.limit(); i++) {
+            if (frame.get(i) != 0) {
+                tiles++;
+            }
+        }
+        return tiles;
+    }
+}
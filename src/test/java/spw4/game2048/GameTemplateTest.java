@@ -0,0 +1,155 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameTemplateTest {
+    /**
+     * System under test.
+     */
+    private final GameTemplate sut = new GameTemplate();
+
+    @DisplayName("GameTemplate.render() writes the same page as the former string based rendering")
+    @Test
+    void renderWritesSamePageAsStringBasedRendering() throws Exception {
+        UUID id = UUID.fromString("123e4567-e89b-12d3-a456-426614174000");
+        Game game = new Game();
+        game.setTiles(new int[][]{
+                {0, 2, 4, 8},
+                {16, 32, 64, 128},
+                {256, 512, 1024, 2048},
+                {4096, 8192, 16384, 0},
+        });
+        game.tryMove(Direction.left);
+        assertEquals(game2Html(id, game), render(id, game));
+    }
+
+    @DisplayName("GameTemplate.render() shows the game status of finished games")
+    @Test
+    void renderShowsGameStatus() throws Exception {
+        UUID id = UUID.randomUUID();
+        Game lost = new Game();
+        lost.setTiles(new int[][]{
+                {4, 8, 2, 32},
+                {32, 128, 4, 2},
+                {4, 8, 64, 4},
+                {2, 4, 32, 2},
+        });
+        Game won = new Game();
+        won.setTiles(new int[][]{
+                {4, 8, 2, 32},
+                {32, 128, 4, 2},
+                {4, 8, 64, 4},
+                {2, 4, 2048, 2},
+        });
+        assertAll(
+                () -> assertEquals(game2Html(id, lost), render(id, lost)),
+                () -> assertTrue(render(id, lost).contains("YOU LOSE")),
+                () -> assertEquals(game2Html(id, won), render(id, won)),
+                () -> assertTrue(render(id, won).contains("YOU WIN"))
+        );
+    }
+
+    private String render(UUID id, Game game) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        sut.render(id, game, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * String based rendering as implemented by {@link GameServlet} before the template, extended by the hooks of the
+     * script client, used as reference.
+     */
+    private static String game2Html(UUID id, Game game) {
+        StringBuffer sb = new StringBuffer();
+
+        sb.append("<!DOCTYPE html>\n");
+        sb.append("<html lang=\"en\">\n");
+        sb.append("<head>\n");
+        sb.append("    <meta charset=\"UTF-8\">\n");
+        sb.append("    <title>2048</title>\n");
+        sb.append("    <link href=\"css/bootstrap.min.css\" rel=\"stylesheet\"/>\n");
+        sb.append("    <link href=\"icons/bootstrap-icons.css\" rel=\"stylesheet\"/>\n");
+        sb.append("    <script src=\"js/bootstrap.min.js\"></script>\n");
+        sb.append("    <script src=\"js/game2048.js\" defer></script>\n");
+        sb.append("</head>\n");
+        sb.append("<body data-game=\"" + id + "\">\n");
+        sb.append("    <h1 class=\"m-5 text-center\">Play 2048:</h1>\n");
+        sb.append("\n");
+        sb.append("    <div class=\"row\">\n");
+        sb.append("        <div class=\"col-4\"></div>\n");
+        sb.append("        <div class=\"col\">\n");
+        sb.append("            <div class=\"row\">\n");
+        sb.append("                <div class=\"col text-center pb-4\"><h5>Moves: <span id=\"moves\">" + game.getMoves() + "</span></h5></div>\n");
+        sb.append("                <div class=\"col text-center pb-4\"><h5>Score: <span id=\"score\">" + game.getScore() + "</span></h5></div>\n");
+        sb.append("            </div>\n");
+        if (game.isOver(false) && game.isWon()) {
+            sb.append("            <div class=\"row\">\n");
+            sb.append("                <div class=\"col text-center pb-4\"><h1><span class=\"badge badge-success w-75\">YOU WIN</span></h1></div>\n");
+            sb.append("            </div>\n");
+        } else if (game.isOver(false) && !game.isWon()) {
+            sb.append("            <div class=\"row\">\n");
+            sb.append("                <div class=\"col text-center pb-4\"><h1><span class=\"badge badge-danger w-75\">YOU LOSE</span></h1></div>\n");
+            sb.append("            </div>\n");
+        }
+        sb.append("            <div class=\"row\">\n");
+        sb.append("                <div class=\"col-2\"></div>\n");
+        sb.append("                <div class=\"col text-center pb-4\"><a role=\"button\" class=\"btn btn-secondary\" href=\"Game?id=" + id + "&action=up\"><i class=\"bi-arrow-up\"></i></a></div>\n");
+        sb.append("                <div class=\"col-2\"></div>\n");
+        sb.append("            </div>\n");
+        sb.append("            <div class=\"row\">\n");
+        sb.append("                <div class=\"col-2 my-auto text-right\"><a role=\"button\" class=\"btn btn-secondary\" href=\"Game?id=" + id + "&action=left\"><i class=\"bi-arrow-left\"></i></a></div>\n");
+        sb.append("                <div class=\"col\">\n");
+        sb.append("                    <div class=\"container text-center bg-secondary\">\n");
+        sb.append("                        <div class=\"row\">\n");
+        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\" data-cell>" + game.getValueAt(0, 0) + "</div>\n");
+        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\" data-cell>" + game.getValueAt(0, 1) + "</div>\n");
+        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\" data-cell>" + game.getValueAt(0, 2) + "</div>\n");
+        sb.append("                            <div class=\"col mt-1 ml-1 mr-1 bg-light\" data-cell>" + game.getValueAt(0, 3) + "</div>\n");
+        sb.append("                        </div>\n");
+        sb.append("                        <div class=\"row\">\n");
+        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\" data-cell>" + game.getValueAt(1, 0) + "</div>\n");
+        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\" data-cell>" + game.getValueAt(1, 1) + "</div>\n");
+        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\" data-cell>" + game.getValueAt(1, 2) + "</div>\n");
+        sb.append("                            <div class=\"col mt-1 ml-1 mr-1 bg-light\" data-cell>" + game.getValueAt(1, 3) + "</div>\n");
+        sb.append("                        </div>\n");
+        sb.append("                        <div class=\"row\">\n");
+        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\" data-cell>" + game.getValueAt(2, 0) + "</div>\n");
+        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\" data-cell>" + game.getValueAt(2, 1) + "</div>\n");
+        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\" data-cell>" + game.getValueAt(2, 2) + "</div>\n");
+        sb.append("                            <div class=\"col mt-1 ml-1 mr-1 bg-light\" data-cell>" + game.getValueAt(2, 3) + "</div>\n");
+        sb.append("                        </div>\n");
+        sb.append("                        <div class=\"row\">\n");
+        sb.append("                            <div class=\"col mt-1 ml-1 mb-1 bg-light\" data-cell>" + game.getValueAt(3, 0) + "</div>\n");
+        sb.append("                            <div class=\"col mt-1 ml-1 mb-1 bg-light\" data-cell>" + game.getValueAt(3, 1) + "</div>\n");
+        sb.append("                            <div class=\"col mt-1 ml-1 mb-1 bg-light\" data-cell>" + game.getValueAt(3, 2) + "</div>\n");
+        sb.append("                            <div class=\"col mt-1 ml-1 mb-1 mr-1 bg-light\" data-cell>" + game.getValueAt(3, 3) + "</div>\n");
+        sb.append("                        </div>\n");
+        sb.append("                    </div>\n");
+        sb.append("                </div>\n");
+        sb.append("                <div class=\"col-2 my-auto\"><a role=\"button\" class=\"btn btn-secondary\" href=\"Game?id=" + id + "&action=right\"><i class=\"bi-arrow-right\"></i></a></div>\n");
+        sb.append("            </div>\n");
+        sb.append("            <div class=\"row\">\n");
+        sb.append("                <div class=\"col-2\"></div>\n");
+        sb.append("                <div class=\"col text-center pt-4\"><a role=\"button\" class=\"btn btn-secondary\" href=\"Game?id=" + id + "&action=down\"><i class=\"bi-arrow-down\"></i></a></div>\n");
+        sb.append("                <div class=\"col-2\"></div>\n");
+        sb.append("            </div>\n");
+        sb.append("            <div class=\"row\">\n");
+        sb.append("                <div class=\"col text-center pt-4\"><a role=\"button\" class=\"btn btn-danger w-75\" href=\"Game?action=new\">New Game</a></div>\n");
+        sb.append("                <div class=\"col text-center pt-4\"><a role=\"button\" class=\"btn btn-info w-75\" href=\"Game?id=" + id + "\">Refresh</a></div>\n");
+        sb.append("            </div>\n");
+        sb.append("        </div>\n");
+        sb.append("        <div class=\"col-4\"></div>\n");
+        sb.append("    </div>\n");
+        sb.append("</body>\n");
+        sb.append("</html>\n");
+
+        return sb.toString();
+    }
+}
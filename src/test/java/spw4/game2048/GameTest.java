@@ -135,12 +135,62 @@ class GameTest {
         sut.setTiles(new int[][]{
                 {4, 8, 2, 32},
                 {32, 128, 4, 2},
-                {2, 8, 64, 4},
+                {16, 8, 64, 4},
                 {2, 4, 32, 2},
         });
         assertTrue(sut.isOver(true));
     }
 
+    @DisplayName("Game.isOver() returns false and does not create new tile if a full board still has merges")
+    @Test
+    void isOverReturnsFalseIfFullBoardHasMerges() {
+        int[][] tiles = {
+                {4, 8, 2, 32},
+                {32, 128, 4, 2},
+                {2, 8, 64, 4},
+                {2, 4, 32, 2},
+        };
+        sut.setTiles(tiles);
+        assertAll(
+                () -> assertFalse(sut.isOver(false)),
+                () -> assertFalse(sut.isOver(true)),
+                () -> assertTrue(Arrays.deepEquals(tiles, sut.getTiles()))
+        );
+    }
+
+    @DisplayName("Game keeps max tile, empty count and merge state up to date with moves and spawns")
+    @Test
+    void stateIsTrackedThroughMovesAndSpawns() {
+        when(randomMock.nextInt(4))
+                .thenReturn(0).thenReturn(0);    // x,y for tile
+        when(randomMock.nextInt(10))
+                .thenReturn(1);                 // tile value -> 2
+        sut.random = randomMock;
+        sut.setTiles(new int[][]{
+                {0, 0, 4, 4},
+                {0, 0, 0, 0},
+                {0, 0, 0, 0},
+                {0, 0, 0, 2},
+        });
+        assertAll(
+                () -> assertEquals(4, sut.getMaxTile()),
+                () -> assertEquals(13, sut.getEmptyCount()),
+                () -> assertTrue(sut.canMerge())
+        );
+        sut.move(Direction.right);
+        assertAll(
+                () -> assertEquals(8, sut.getMaxTile()),
+                () -> assertEquals(14, sut.getEmptyCount()),
+                () -> assertFalse(sut.canMerge())
+        );
+        sut.isOver(true);
+        assertAll(
+                () -> assertEquals(8, sut.getMaxTile()),
+                () -> assertEquals(13, sut.getEmptyCount()),
+                () -> assertFalse(sut.canMerge())
+        );
+    }
+
     @DisplayName("Game.isOver(initNewTile = true) returns false and creates new tile on free position")
     @Test
     void isOverReturnsFalseAndCreatesNewTileOnFreePosition() {
@@ -450,6 +500,96 @@ class GameTest {
         );
     }
 
+    @DisplayName("Game.tryMove() leaves game untouched and returns NO_CHANGE if no tile can be moved")
+    @Test
+    void tryMoveReturnsNoChangeIfNoTileCanBeMoved() {
+        sut.setTiles(new int[][]{
+                {0, 0, 0, 2},
+                {0, 0, 0, 4},
+                {0, 0, 0, 0},
+                {0, 0, 0, 2},
+        });
+        long board = sut.getBoard();
+        assertAll(
+                () -> assertEquals(Game.NO_CHANGE, sut.tryMove(Direction.right)),
+                () -> assertEquals(board, sut.getBoard()),
+                () -> assertEquals(0, sut.getMoves()),
+                () -> assertEquals(0, sut.getScore())
+        );
+    }
+
+    @DisplayName("Game.tryMove() returns gained score and changed cells if tiles were moved")
+    @Test
+    void tryMoveReturnsGainedScoreAndChangedCells() {
+        sut.setTiles(new int[][]{
+                {2, 2, 0, 0},
+                {0, 0, 0, 4},
+                {0, 0, 0, 0},
+                {0, 0, 0, 0},
+        });
+        long result = sut.tryMove(Direction.right);
+        assertAll(
+                () -> assertEquals(4, Game.scoreDelta(result)),
+                () -> assertEquals(0b1011, Game.changedCells(result)),
+                () -> assertEquals(1, sut.getMoves()),
+                () -> assertEquals(4, sut.getScore()),
+                () -> assertEquals(4, sut.getValueAt(0, 3))
+        );
+    }
+
+    @DisplayName("Game.setSpawner() places new tiles with the given spawner using a single draw per tile")
+    @Test
+    void setSpawnerPlacesTilesWithSingleDraw() {
+        // k-th empty cell = draw / 10, a 4 if draw % 10 == 0: cell 3 gets a 2, then the last of 15 empty cells a 4
+        int[] draws = {35, 140};
+        int[] drawn = {0};
+        sut.setSpawner(TileSpawner.uniform(bound -> draws[drawn[0]++]));
+        sut.initialize();
+        assertAll(
+                () -> assertEquals(2, drawn[0]),
+                () -> assertTrue(Arrays.deepEquals(sut.getTiles(), new int[][]{
+                        {0, 0, 0, 2},
+                        {0, 0, 0, 0},
+                        {0, 0, 0, 0},
+                        {0, 0, 0, 4},
+                }))
+        );
+    }
+
+    @DisplayName("TileSpawner.uniform() leaves a full board unchanged")
+    @Test
+    void uniformSpawnerLeavesFullBoardUnchanged() {
+        long full = 0x1212_2121_1212_2121L;
+        TileSpawner spawner = TileSpawner.uniform(bound -> {
+            throw new AssertionError("no draw expected");
+        });
+        assertEquals(full, spawner.spawn(full));
+    }
+
+    @DisplayName("Game(size, winScore) plays on a board of the given size with the given win target")
+    @Test
+    void gameWithCustomSizeAndWinScore() {
+        Game game = new Game(5, 64);
+        game.setTiles(new int[][]{
+                {0, 0, 0, 32, 32},
+                {0, 0, 0, 0, 0},
+                {0, 0, 0, 0, 0},
+                {0, 0, 0, 0, 0},
+                {2, 0, 0, 0, 0},
+        });
+        long result = game.tryMove(Direction.left);
+        assertAll(
+                () -> assertEquals(5, game.getSize()),
+                () -> assertEquals(64, Game.scoreDelta(result)),
+                () -> assertEquals(0b11001, Game.changedCells(result)),
+                () -> assertEquals(64, game.getValueAt(0, 0)),
+                () -> assertEquals(23, game.getEmptyCount()),
+                () -> assertTrue(game.isWon()),
+                () -> assertThrows(IllegalStateException.class, game::getBoard),
+                () -> assertThrows(IllegalArgumentException.class, () -> game.setTiles(new int[4][4]))
+        );
+    }
+
     @DisplayName("Game -> test if all 8 game steps from exercise description are equals")
     @Test
     public void testsIfAll8GameStepsFromExerciseDescriptionAreEquals() {
@@ -0,0 +1,158 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HintCacheTest {
+    /**
+     * System under test.
+     */
+    private HintCache sut;
+
+    private final AtomicLong now = new AtomicLong();
+    private final AtomicInteger searches = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        sut = new HintCache(2, 10, TimeUnit.SECONDS, board -> {
+            searches.incrementAndGet();
+            return Direction.values()[(int) (board & 3)];
+        }, now::get);
+    }
+
+    @DisplayName("HintCache.get() searches a board once and answers further requests from the cache")
+    @Test
+    void getCachesResult() {
+        assertAll(
+                () -> assertEquals(Direction.down, sut.get(1)),
+                () -> assertEquals(Direction.down, sut.get(1)),
+                () -> assertEquals(Direction.left, sut.get(2)),
+                () -> assertEquals(2, searches.get()),
+                () -> assertEquals(1, sut.getHits()),
+                () -> assertEquals(2, sut.getMisses()),
+                () -> assertEquals(1.0 / 3, sut.getHitRate(), 1e-9),
+                () -> assertEquals(2, sut.getSearchLatency().getCount())
+        );
+    }
+
+    @DisplayName("HintCache.get() answers all rotations and reflections of a board from one search")
+    @Test
+    void getSharesSearchBetweenSymmetricBoards() {
+        long board = Bitboard.fromTiles(new int[][]{
+                {2, 4, 0, 0},
+                {8, 0, 0, 0},
+                {0, 0, 0, 0},
+                {0, 0, 0, 16},
+        });
+        long moved = Bitboard.move(board, sut.get(board));
+        for (int symmetry = 0; symmetry < 8; symmetry++) {
+            long mirrored = Bitboard.symmetry(board, symmetry);
+            assertEquals(Bitboard.symmetry(moved, symmetry), Bitboard.move(mirrored, sut.get(mirrored)));
+        }
+        assertAll(
+                () -> assertEquals(1, searches.get()),
+                () -> assertEquals(1, sut.size()),
+                () -> assertEquals(8, sut.getHits())
+        );
+    }
+
+    @DisplayName("HintCache.get() searches a board again once its result has expired")
+    @Test
+    void getSearchesExpiredBoardAgain() {
+        sut.get(1);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        sut.get(1);
+        now.addAndGet(1);
+        sut.get(1);
+        assertAll(
+                () -> assertEquals(2, searches.get()),
+                () -> assertEquals(1, sut.getExpirations()),
+                () -> assertEquals(1, sut.size())
+        );
+    }
+
+    @DisplayName("HintCache.get() evicts the least recently used board when the cache is full")
+    @Test
+    void getEvictsLeastRecentlyUsedBoard() {
+        sut.get(1);
+        sut.get(2);
+        sut.get(1);
+        sut.get(3);
+        assertAll(
+                () -> assertEquals(2, sut.size()),
+                () -> assertEquals(1, sut.getEvictions()),
+                () -> assertEquals(3, searches.get())
+        );
+        sut.get(1);
+        assertEquals(3, searches.get());
+        sut.get(2);
+        assertEquals(4, searches.get());
+    }
+
+    @DisplayName("HintCache.get() lets concurrent requests for the same board wait for a single search")
+    @Test
+    void getCoalescesConcurrentSearches() throws Exception {
+        int threads = 4;
+        CountDownLatch release = new CountDownLatch(1);
+        sut = new HintCache(16, 10, TimeUnit.SECONDS, board -> {
+            searches.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Direction.right;
+        }, now::get);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Direction>> hints = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                hints.add(pool.submit(() -> sut.get(42)));
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (sut.getCoalesced() < threads - 1 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            for (Future<Direction> hint : hints) {
+                assertEquals(Direction.right, hint.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertAll(
+                () -> assertEquals(1, searches.get()),
+                () -> assertEquals(1, sut.getMisses()),
+                () -> assertEquals(threads - 1, sut.getCoalesced()),
+                () -> assertEquals(0.75, sut.getHitRate(), 1e-9)
+        );
+    }
+
+    @DisplayName("HintCache.get() does not keep a failed search")
+    @Test
+    void getRetriesFailedSearch() {
+        sut = new HintCache(2, 10, TimeUnit.SECONDS, board -> {
+            if (searches.incrementAndGet() == 1) {
+                throw new IllegalStateException("search failed");
+            }
+            return Direction.up;
+        }, now::get);
+        assertThrows(IllegalStateException.class, () -> sut.get(1));
+        assertEquals(Direction.up, sut.get(1));
+        assertEquals(2, searches.get());
+    }
+}
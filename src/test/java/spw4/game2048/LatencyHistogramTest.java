@@ -0,0 +1,68 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+    /**
+     * System under test.
+     */
+    private LatencyHistogram sut;
+
+    @BeforeEach
+    void setUp() {
+        sut = new LatencyHistogram();
+    }
+
+    @DisplayName("LatencyHistogram buckets cover all values without gaps, each at most 12.5% wide")
+    @Test
+    void bucketsCoverAllValues() {
+        for (long value = 0; value < 1 << 20; value++) {
+            int bucket = LatencyHistogram.bucket(value);
+            assertTrue(value <= LatencyHistogram.upperBound(bucket), "value " + value);
+            assertTrue(bucket == 0 || value > LatencyHistogram.upperBound(bucket - 1), "value " + value);
+            assertTrue(LatencyHistogram.upperBound(bucket) <= value + value / 8, "value " + value);
+        }
+    }
+
+    @DisplayName("LatencyHistogram reports percentiles within the bucket precision")
+    @Test
+    void percentilesAreWithinPrecision() {
+        for (long micros = 1; micros <= 1000; micros++) {
+            sut.record(micros * 1000);
+        }
+        assertAll(
+                () -> assertEquals(1000, sut.getCount()),
+                () -> assertEquals(500_500.0, sut.getMean()),
+                () -> assertEquals(1_000_000, sut.getMax()),
+                () -> assertEquals(500_000, sut.getPercentile(50), 500_000 / 8.0),
+                () -> assertEquals(990_000, sut.getPercentile(99), 990_000 / 8.0),
+                () -> assertEquals(1_000_000, sut.getPercentile(100))
+        );
+    }
+
+    @DisplayName("LatencyHistogram counts values beyond its range into the last bucket")
+    @Test
+    void largeValuesAreCountedIntoLastBucket() {
+        sut.record(Long.MAX_VALUE);
+        sut.record(-5);
+        assertAll(
+                () -> assertEquals(2, sut.getCount()),
+                () -> assertEquals(0, sut.getPercentile(50)),
+                () -> assertEquals(Long.MAX_VALUE, sut.getMax()),
+                () -> assertEquals((1L << 40) - 1, sut.getPercentile(100))
+        );
+    }
+
+    @DisplayName("LatencyHistogram reports 0 if nothing has been recorded")
+    @Test
+    void emptyHistogramReportsZero() {
+        assertAll(
+                () -> assertEquals(0, sut.getPercentile(99)),
+                () -> assertEquals(0, sut.getMean())
+        );
+    }
+}
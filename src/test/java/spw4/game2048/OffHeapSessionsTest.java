@@ -0,0 +1,207 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapSessionsTest {
+    /**
+     * System under test.
+     */
+    private OffHeapSessions sut;
+
+    private final AtomicLong now = new AtomicLong();
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void setUp() {
+        // segments of 32 games, so none of them overflows with a few hundred games
+        sut = new OffHeapSessions(2048, 10, TimeUnit.SECONDS, now::get);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sut.close();
+    }
+
+    @DisplayName("OffHeapSessions stores the changes made to a game in withGame()")
+    @Test
+    void withGameStoresChanges() {
+        sut.close();
+        sut = new OffHeapSessions(2048, Board.MAX_SIZE, 10, TimeUnit.SECONDS, now::get);
+        UUID id = sut.create(5, 128);
+        String played = sut.withGame(id, game -> {
+            for (Direction direction : Direction.values()) {
+                game.isOver(true);
+                game.tryMove(direction);
+            }
+            return game.toString();
+        });
+
+        assertAll(
+                () -> assertEquals(1, sut.size()),
+                () -> assertEquals(played, sut.withGame(id, Game::toString)),
+                () -> assertEquals(128, (int) sut.withGame(id, Game::getWinScore)),
+                () -> assertNull(sut.withGame(UUID.randomUUID(), Game::getMoves)),
+                () -> assertTrue(sut.remove(id)),
+                () -> assertFalse(sut.remove(id)),
+                () -> assertEquals(0, sut.size())
+        );
+    }
+
+    @DisplayName("OffHeapSessions stores games on boards up to 4x4 in compact slots and rejects larger boards")
+    @Test
+    void compactSlotsRejectLargerBoards() {
+        UUID id = sut.create(3, 64);
+        sut.withGame(id, game -> game.isOver(true) ? 0L : game.tryMove(Direction.left));
+
+        assertAll(
+                () -> assertEquals(56, OffHeapSessions.slotSize(Game.SIZE)),
+                () -> assertEquals(80, OffHeapSessions.slotSize(Board.MAX_SIZE)),
+                () -> assertEquals(Game.SIZE, sut.getMaxBoardSize()),
+                () -> assertEquals(3, (int) sut.withGame(id, Game::getSize)),
+                () -> assertEquals(64, (int) sut.withGame(id, Game::getWinScore)),
+                () -> assertThrows(IllegalArgumentException.class, () -> sut.create(5, 2048)),
+                () -> assertEquals(1, sut.size())
+        );
+    }
+
+    @DisplayName("OffHeapSessions finds every game after random creates and removes")
+    @Test
+    void randomCreatesAndRemovesKeepAllGames() {
+        Random random = new Random(2048);
+        Map<UUID, Integer> expected = new HashMap<>();
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            if (ids.size() < 600 && (ids.isEmpty() || random.nextInt(3) > 0)) {
+                UUID id = sut.create();
+                int moves = random.nextInt(1000);
+                sut.withGame(id, game -> {
+                    game.restore(0, moves);
+                    return null;
+                });
+                expected.put(id, moves);
+                ids.add(id);
+            } else {
+                UUID id = ids.remove(random.nextInt(ids.size()));
+                expected.remove(id);
+                assertTrue(sut.remove(id));
+            }
+        }
+
+        assertEquals(expected.size(), sut.size());
+        expected.forEach((id, moves) -> assertEquals(moves, sut.withGame(id, Game::getMoves)));
+        assertEquals(0, sut.getEvictions());
+    }
+
+    @DisplayName("OffHeapSessions.withGame() serializes concurrent moves on the same game")
+    @Test
+    void withGameSerializesConcurrentMoves() throws Exception {
+        int threads = 8;
+        int movesPerThread = 2_000;
+        UUID id = sut.create();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(pool.submit(() -> {
+                    for (int i = 0; i < movesPerThread; i++) {
+                        sut.withGame(id, game -> {
+                            game.move(Direction.up);
+                            return null;
+                        });
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(threads * movesPerThread, (int) sut.withGame(id, Game::getMoves));
+    }
+
+    @DisplayName("OffHeapSessions.sweep() expires games which were idle for longer than the idle timeout")
+    @Test
+    void sweepExpiresIdleGames() {
+        List<UUID> idle = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            idle.add(sut.create());
+        }
+        UUID active = sut.create();
+        now.addAndGet(TimeUnit.SECONDS.toNanos(6));
+        sut.withGame(active, Game::getMoves);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(6));
+
+        assertAll(
+                () -> assertEquals(200, sut.sweep()),
+                () -> assertEquals(1, sut.size()),
+                () -> assertNull(sut.withGame(idle.get(0), Game::getMoves)),
+                () -> assertNotNull(sut.withGame(active, Game::getMoves)),
+                () -> assertEquals(200, sut.getExpirations())
+        );
+    }
+
+    @DisplayName("OffHeapSessions.create() evicts games if the maximum size is exceeded")
+    @Test
+    void createEvictsGamesBeyondMaximumSize() {
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            ids.add(sut.create());
+        }
+        long found = ids.stream().filter(id -> sut.withGame(id, Game::getMoves) != null).count();
+
+        assertAll(
+                () -> assertEquals(2048, sut.size()),
+                () -> assertEquals(2048, found),
+                () -> assertEquals(5000 - 2048, sut.getEvictions())
+        );
+    }
+
+    @DisplayName("OffHeapSessions in a file keeps all games when it is opened again")
+    @Test
+    void mappedFileKeepsGames() throws IOException {
+        Path file = directory.resolve("games.bin");
+        UUID id;
+        String expected;
+        try (OffHeapSessions games = new OffHeapSessions(1000, 10, TimeUnit.MINUTES, file)) {
+            id = games.create();
+            games.create(3, 256);
+            expected = games.withGame(id, game -> {
+                game.isOver(true);
+                game.tryMove(Direction.left);
+                return game.toString();
+            });
+        }
+
+        try (OffHeapSessions games = new OffHeapSessions(1000, 10, TimeUnit.MINUTES, file)) {
+            assertAll(
+                    () -> assertEquals(2, games.size()),
+                    () -> assertEquals(expected, games.withGame(id, Game::toString)),
+                    () -> assertThrows(IllegalArgumentException.class,
+                            () -> new OffHeapSessions(999, 10, TimeUnit.MINUTES, file))
+            );
+        }
+    }
+}
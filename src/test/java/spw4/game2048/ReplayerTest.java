@@ -0,0 +1,122 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplayerTest {
+
+    @DisplayName("StatefulRandom draws the same numbers as Random and continues from a saved state")
+    @Test
+    void statefulRandomMatchesRandom() {
+        Random expected = new Random(2048);
+        StatefulRandom random = new StatefulRandom(2048);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(expected.nextInt(16), random.nextInt(16));
+        }
+        StatefulRandom copy = new StatefulRandom(0);
+        copy.setState(random.getState());
+        assertEquals(random.nextLong(), copy.nextLong());
+    }
+
+    @DisplayName("Replayer reproduces every turn of a recorded game, also after encoding the recording")
+    @ParameterizedTest(name = "board size = {0}")
+    @ValueSource(ints = {3, 4, 6})
+    void replayReproducesRecordedGame(int size) {
+        Game game = new Game(size, Game.WIN_SCORE);
+        GameRecorder recorder = GameRecorder.record(game, size);
+        List<String> states = play(game, new Random(size), 5000);
+
+        Recording recording = recorder.getRecording();
+        ByteBuffer buffer = ByteBuffer.allocate(recording.encodedSize());
+        recording.writeTo(buffer);
+        buffer.flip();
+        Recording decoded = Recording.readFrom(buffer);
+        Replayer sut = new Replayer(decoded, 16);
+
+        assertAll(
+                () -> assertEquals(recording, decoded),
+                () -> assertEquals(states.size() - 1, sut.length()),
+                () -> assertEquals(game.toString(), sut.seekEnd().toString())
+        );
+        for (int turn = 0; turn < states.size(); turn++) {
+            assertEquals(states.get(turn), sut.seek(turn).toString(), "turn " + turn);
+        }
+    }
+
+    @DisplayName("Replayer plays turns after a checkpoint with the random state of the checkpoint")
+    @Test
+    void seekedGameContinuesLikeRecordedGame() {
+        Game game = new Game();
+        GameRecorder recorder = GameRecorder.record(game, 7);
+        play(game, new Random(7), 300);
+        Replayer sut = new Replayer(recorder.getRecording(), 100);
+
+        Game seeked = sut.seek(100);
+        Game replayed = sut.seek(99);
+        replayed.isOver(true);
+        replayed.move(recorder.getRecording().getDirection(99));
+        assertAll(
+                () -> assertEquals(replayed.toString(), seeked.toString()),
+                () -> assertEquals(replayed.getScore(), seeked.getScore()),
+                () -> assertEquals(replayed.random.nextInt(), seeked.random.nextInt())
+        );
+    }
+
+    @DisplayName("Recording keeps two bits per turn, so 10,000 turns take a few kilobytes")
+    @Test
+    void recordingIsCompact() {
+        Game game = new Game(Board.MAX_SIZE, Integer.MAX_VALUE);
+        GameRecorder recorder = GameRecorder.record(game, 10);
+        Direction[] cycle = {Direction.down, Direction.left, Direction.down, Direction.right};
+        for (int turn = 0; turn < 10_000 && !game.isOver(true); turn++) {
+            game.tryMove(cycle[turn % cycle.length]);
+        }
+
+        Recording recording = recorder.getRecording();
+        assertAll(
+                () -> assertTrue(recording.getTurns() >= 10_000, "turns " + recording.getTurns()),
+                () -> assertTrue(recording.encodedSize() < 4096, "size " + recording.encodedSize())
+        );
+    }
+
+    @DisplayName("GameRecorder rejects moves which do not follow a spawn")
+    @Test
+    void moveWithoutSpawnIsRejected() {
+        Game game = new Game();
+        GameRecorder.record(game, 1);
+        game.setTiles(new int[][]{{2, 0, 0, 0}, {0, 0, 0, 0}, {0, 0, 0, 0}, {0, 0, 0, 0}});
+
+        assertThrows(IllegalStateException.class, () -> game.move(Direction.down));
+    }
+
+    /**
+     * Plays random moves like the servlet does, including blocked ones, and returns the game as text before the
+     * first and after every turn. Blocked moves on a full board are retried, as the following turn does not spawn a
+     * tile and is recorded together with it.
+     */
+    private static List<String> play(Game game, Random random, int turns) {
+        Direction[] directions = Direction.values();
+        List<String> states = new ArrayList<>();
+        states.add(game.toString());
+        for (int turn = 0; turn < turns && !game.isOver(true); turn++) {
+            int first = random.nextInt(directions.length);
+            for (int i = 0; i < directions.length; i++) {
+                if (game.tryMove(directions[(first + i) % directions.length]) != Game.NO_CHANGE
+                        || game.getEmptyCount() > 0) {
+                    break;
+                }
+            }
+            states.add(game.toString());
+        }
+        return states;
+    }
+}
@@ -0,0 +1,97 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SmallBitboardTest {
+
+    @DisplayName("SmallBitboard.fromTiles() and toTiles() convert a 3x3 board without losing information")
+    @Test
+    void fromTilesAndToTilesRoundTrip() {
+        int[][] tiles = {
+                {0, 2, 4},
+                {8, 16, 32},
+                {64, 2048, 32768},
+        };
+        long board = SmallBitboard.fromTiles(tiles);
+        assertAll(
+                () -> assertTrue(Arrays.deepEquals(tiles, SmallBitboard.toTiles(board))),
+                () -> assertEquals(2 + 4 + 8 + 16 + 32 + 64 + 2048 + 32768, SmallBitboard.tileSum(board)),
+                () -> assertEquals(15, SmallBitboard.maxExponent(board)),
+                () -> assertThrows(IllegalArgumentException.class, () -> SmallBitboard.fromTiles(new int[4][4]))
+        );
+    }
+
+    @DisplayName("SmallBitboard.move() matches a 3x3 ArrayBoard for random boards")
+    @ParameterizedTest(name = "direction to move = {0}")
+    @EnumSource(Direction.class)
+    void moveMatchesArrayBoard(Direction direction) {
+        Random random = new Random(2048);
+        Board reference = Board.of(SmallBitboard.SIZE);
+        for (int i = 0; i < 10_000; i++) {
+            long board = randomBoard(random);
+            reference.setTiles(SmallBitboard.toTiles(board));
+            long result = reference.move(direction);
+
+            assertEquals(SmallBitboard.fromTiles(reference.toTiles()), SmallBitboard.move(board, direction));
+            assertEquals(result != Game.NO_CHANGE, SmallBitboard.move(board, direction) != board);
+        }
+    }
+
+    @DisplayName("SmallBitboard.canonical() is the smallest of all 8 symmetries of random boards")
+    @Test
+    void canonicalIsSameForAllSymmetries() {
+        Random random = new Random(2048);
+        for (int i = 0; i < 10_000; i++) {
+            long board = randomBoard(random);
+            long canonical = SmallBitboard.canonical(board);
+            long min = Long.MAX_VALUE;
+            for (long symmetry : symmetries(board)) {
+                assertEquals(canonical, SmallBitboard.canonical(symmetry));
+                min = Math.min(min, symmetry);
+            }
+            assertEquals(min, canonical);
+        }
+    }
+
+    private static long randomBoard(Random random) {
+        long board = 0;
+        for (int shift = 0; shift < 4 * SmallBitboard.CELLS; shift += 4) {
+            if (random.nextBoolean()) {
+                // small exponents make merges likely
+                board |= (long) (1 + random.nextInt(random.nextBoolean() ? 3 : 15)) << shift;
+            }
+        }
+        return board;
+    }
+
+    /**
+     * Returns the 8 rotations and reflections of the board, computed on the tile array as reference.
+     */
+    private static long[] symmetries(long board) {
+        int size = SmallBitboard.SIZE;
+        long[] symmetries = new long[8];
+        int[][] tiles = SmallBitboard.toTiles(board);
+        for (int i = 0; i < 4; i++) {
+            int[][] rotated = new int[size][size];
+            int[][] mirrored = new int[size][size];
+            for (int x = 0; x < size; x++) {
+                for (int y = 0; y < size; y++) {
+                    rotated[y][size - 1 - x] = tiles[x][y];
+                    mirrored[x][size - 1 - y] = tiles[x][y];
+                }
+            }
+            symmetries[2 * i] = SmallBitboard.fromTiles(tiles);
+            symmetries[2 * i + 1] = SmallBitboard.fromTiles(mirrored);
+            tiles = rotated;
+        }
+        return symmetries;
+    }
+}
@@ -0,0 +1,113 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SolverTest {
+    /**
+     * System under test.
+     */
+    private final Solver sut = new Solver(3, 1_000, new TranspositionTable(1 << 12));
+
+    @DisplayName("Solver.bestMove() returns null if no tile can be moved")
+    @Test
+    void bestMoveReturnsNullIfNoTileCanBeMoved() {
+        assertNull(sut.bestMove(Bitboard.fromTiles(new int[][]{
+                {4, 8, 2, 32},
+                {32, 128, 4, 2},
+                {4, 8, 64, 4},
+                {2, 4, 32, 2},
+        })));
+    }
+
+    @DisplayName("Solver.bestMove() returns the only legal move")
+    @Test
+    void bestMoveReturnsOnlyLegalMove() {
+        long board = Bitboard.fromTiles(new int[][]{
+                {2, 4, 2, 4},
+                {4, 2, 4, 2},
+                {2, 4, 2, 4},
+                {4, 2, 4, 0},
+        });
+        Direction move = sut.bestMove(board);
+        assertTrue(move == Direction.right || move == Direction.down, String.valueOf(move));
+        assertTrue(sut.getNodes() > 0);
+    }
+
+    @DisplayName("Solver.bestMove() returns a legal move even if the time budget is exhausted immediately")
+    @Test
+    void bestMoveReturnsLegalMoveWithoutTimeBudget() {
+        Solver hurried = new Solver(8, 0, new TranspositionTable(1 << 12));
+        long board = Bitboard.fromTiles(new int[][]{
+                {2, 0, 0, 0},
+                {0, 0, 0, 0},
+                {0, 0, 0, 0},
+                {0, 0, 0, 0},
+        });
+        Direction move = hurried.bestMove(board);
+        assertNotNull(move);
+        assertNotEquals(board, Bitboard.move(board, move));
+    }
+
+    @DisplayName("Solver.bestMove() searches in parallel if a pool is given")
+    @Test
+    void parallelSearchReturnsLegalMoves() {
+        long board = Bitboard.fromTiles(new int[][]{
+                {256, 64, 16, 4},
+                {128, 32, 8, 2},
+                {2, 0, 4, 0},
+                {0, 0, 0, 2},
+        });
+        long stuck = Bitboard.fromTiles(new int[][]{
+                {2, 4, 2, 4},
+                {4, 2, 4, 2},
+                {2, 4, 2, 4},
+                {4, 2, 4, 0},
+        });
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Solver parallel = new Solver(3, 10_000, new TranspositionTable(1 << 16), pool);
+            Direction move = parallel.bestMove(board);
+            assertNotEquals(board, Bitboard.move(board, move));
+            assertTrue(parallel.getNodes() > 0);
+            Direction only = parallel.bestMove(stuck);
+            assertTrue(only == Direction.right || only == Direction.down, String.valueOf(only));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @DisplayName("TranspositionTable returns stored values only for searches which are not deeper")
+    @Test
+    void transpositionTableHonorsDepth() {
+        TranspositionTable table = new TranspositionTable(1000);
+        table.put(0x1234L, 3, 42.5);
+        assertAll(
+                () -> assertEquals(1024, table.capacity()),
+                () -> assertEquals(42.5, table.get(0x1234L, 3)),
+                () -> assertEquals(42.5, table.get(0x1234L, 2)),
+                () -> assertTrue(Double.isNaN(table.get(0x1234L, 4))),
+                () -> assertTrue(Double.isNaN(table.get(0x4321L, 1)))
+        );
+    }
+
+    @DisplayName("TranspositionTable keeps deeper entries of the current search and replaces older ones")
+    @Test
+    void transpositionTableReplacementPolicy() {
+        TranspositionTable table = new TranspositionTable(1);
+        table.put(1L, 5, 1.0);
+        table.put(2L, 2, 2.0);
+        assertEquals(1.0, table.get(1L, 5));
+
+        table.nextSearch();
+        table.put(2L, 2, 2.0);
+        assertAll(
+                () -> assertTrue(Double.isNaN(table.get(1L, 1))),
+                () -> assertEquals(2.0, table.get(2L, 2))
+        );
+    }
+}
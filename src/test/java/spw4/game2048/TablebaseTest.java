@@ -0,0 +1,174 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TablebaseTest {
+
+    private static final int WIN_SCORE = 32;
+
+    /**
+     * System under test.
+     */
+    private static Tablebase sut;
+    private static int generated;
+
+    @TempDir
+    static Path directory;
+
+    private final Map<Long, Double> solved = new HashMap<>();
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        Path file = directory.resolve("3x3-32.tb");
+        generated = TablebaseGenerator.generate(WIN_SCORE, file);
+        sut = Tablebase.open(file);
+    }
+
+    @DisplayName("Tablebase.open() maps the generated file")
+    @Test
+    void openMapsGeneratedFile() {
+        assertAll(
+                () -> assertEquals(WIN_SCORE, sut.getWinScore()),
+                () -> assertEquals(generated, sut.getPositions()),
+                () -> assertTrue(generated > 0)
+        );
+    }
+
+    @DisplayName("Tablebase.open() rejects a file which is no tablebase")
+    @Test
+    void openRejectsOtherFiles() throws IOException {
+        Path file = Files.write(directory.resolve("other.tb"), new byte[64]);
+        assertThrows(IOException.class, () -> Tablebase.open(file));
+    }
+
+    @DisplayName("Tablebase.winProbability() matches a plain expectimax search")
+    @Test
+    void winProbabilityMatchesExpectimax() {
+        // crowded boards, where the next spawn decides
+        int[][][] positions = {
+                {{16, 4, 8}, {2, 8, 16}, {0, 16, 2}},
+                {{16, 2, 2}, {2, 8, 0}, {16, 4, 16}},
+                {{4, 2, 0}, {8, 16, 8}, {16, 8, 2}},
+                {{0, 8, 2}, {2, 4, 16}, {16, 8, 2}},
+        };
+        for (int[][] tiles : positions) {
+            long board = SmallBitboard.fromTiles(tiles);
+            double expected = expectimax(board);
+            assertTrue(expected > 0 && expected < 1);
+            assertEquals(expected, sut.winProbability(tiles), 1e-5);
+            // symmetric positions share one entry
+            assertEquals(expected, sut.winProbability(SmallBitboard.toTiles(SmallBitboard.transpose(board))), 1e-5);
+        }
+    }
+
+    @DisplayName("Tablebase.winProbability() answers won and lost boards without lookup, and NaN if not covered")
+    @Test
+    void winProbabilityOfTerminalBoards() {
+        assertAll(
+                () -> assertEquals(1, sut.winProbability(new int[][]{
+                        {32, 0, 0},
+                        {0, 0, 0},
+                        {0, 0, 2},
+                })),
+                () -> assertEquals(0, sut.winProbability(new int[][]{
+                        {2, 4, 2},
+                        {4, 2, 4},
+                        {2, 4, 2},
+                })),
+                // a new game starts with two tiles
+                () -> assertTrue(Double.isNaN(sut.winProbability(new int[][]{
+                        {0, 0, 0},
+                        {0, 2, 0},
+                        {0, 0, 0},
+                })))
+        );
+    }
+
+    @DisplayName("Tablebase.bestMove() picks a move with the highest win probability")
+    @Test
+    void bestMoveIsOptimal() {
+        int[][] tiles = {
+                {4, 2, 0},
+                {8, 16, 8},
+                {16, 8, 2},
+        };
+        long board = SmallBitboard.fromTiles(tiles);
+        Direction best = sut.bestMove(tiles);
+        assertNotNull(best);
+        assertEquals(expectimax(board), afterMove(SmallBitboard.move(board, best)), 1e-5);
+        assertNull(sut.bestMove(new int[][]{
+                {2, 4, 2},
+                {4, 2, 4},
+                {2, 4, 2},
+        }));
+    }
+
+    @DisplayName("Tablebase.bestMove() answers every position of games played on the server")
+    @Test
+    void bestMoveCoversServerGames() {
+        Random requests = new Random(2048);
+        for (int seed = 0; seed < 500; seed++) {
+            Game game = new Game(SmallBitboard.SIZE, WIN_SCORE);
+            game.random = new StatefulRandom(seed);
+            game.initialize();
+            // every request spawns a tile first, also hints and page views which do not move, and may fill the board
+            while (!game.isOver(true) && !game.isOver(false) && !game.isWon()) {
+                Direction best = sut.bestMove(game.getTiles());
+                assertNotNull(best, () -> Arrays.deepToString(game.getTiles()));
+                if (requests.nextInt(4) > 0) {
+                    game.move(best);
+                }
+            }
+        }
+    }
+
+    /**
+     * Exact win probability of a position, searched recursively on the raw boards.
+     */
+    private double expectimax(long board) {
+        if (SmallBitboard.maxExponent(board) >= Bitboard.toExponent(WIN_SCORE)) {
+            return 1;
+        }
+        Double known = solved.get(board);
+        if (known != null) {
+            return known;
+        }
+        double best = 0;
+        for (Direction direction : Direction.values()) {
+            long after = SmallBitboard.move(board, direction);
+            if (after != board) {
+                best = Math.max(best, afterMove(after));
+            }
+        }
+        solved.put(board, best);
+        return best;
+    }
+
+    private double afterMove(long board) {
+        if (SmallBitboard.maxExponent(board) >= Bitboard.toExponent(WIN_SCORE)) {
+            return 1;
+        }
+        double sum = 0;
+        int empty = 0;
+        for (int shift = 0; shift < 4 * SmallBitboard.CELLS; shift += 4) {
+            if (((board >>> shift) & 0xF) == 0) {
+                sum += 0.9 * expectimax(board | (1L << shift)) + 0.1 * expectimax(board | (2L << shift));
+                empty++;
+            }
+        }
+        return sum / empty;
+    }
+}